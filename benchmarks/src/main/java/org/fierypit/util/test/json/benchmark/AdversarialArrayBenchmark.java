@@ -0,0 +1,88 @@
+package org.fierypit.util.test.json.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+
+import org.fierypit.util.test.json.JsonMatcher;
+import org.fierypit.util.test.json.MatchBudget;
+import org.fierypit.util.test.json.MatchBudgetExceeded;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the worst case of the order-independent array matchers, with and without a {@link MatchBudget}. The array is
+ * a list of near-duplicate objects, differing only in their last member, in the reverse order of the expectations; one
+ * expectation matches no element, so the mismatch is only found after about N<sup>2</sup>/2 invocations of expectations
+ * against elements (or N<sup>2</sup> for the optimal matcher). With a budget, the time taken should stop growing with the
+ * length of the array once the budget is reached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdversarialArrayBenchmark
+{
+	/** Number of elements in the array. */
+	@Param({ "100", "1000", "5000" })
+	public int length;
+
+	/** Whether the matcher is built with {@link JsonMatcher.ArrayBuilder#containsIgnoreOrderOptimal()}. */
+	@Param({ "false", "true" })
+	public boolean optimal;
+
+	/** Maximum number of invocations of expectations against elements, or zero for no budget. */
+	@Param({ "0", "100000" })
+	public long budget;
+
+	/** Number of identical members in each element. */
+	@Param({ "8" })
+	public int padding;
+
+	private JsonMatcher<JsonArray> matcher;
+	private JsonArray document;
+
+	@Setup
+	public void setup()
+	{
+		JsonMatcher.ArrayBuilder builder = JsonMatcher.array();
+		for (int i = 0; i < length - 1; i++) {
+			builder.add(JsonMatcher.object().add("id", i).contains());
+		}
+		builder.add(JsonMatcher.object().add("id", -1).contains());
+		matcher = optimal ? builder.containsIgnoreOrderOptimal() : builder.containsIgnoreOrder();
+		if (budget > 0) {
+			matcher = matcher.budgeted(MatchBudget.maximumInvocations(budget));
+		}
+
+		JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+		for (int i = length - 1; i >= 0; i--) {
+			arrayBuilder.add(Documents.nearDuplicate(i, padding));
+		}
+		document = arrayBuilder.build();
+	}
+
+	/** Test the array, returning whether it matched, or {@code null} if the budget was exceeded. */
+	@Benchmark
+	public Boolean test()
+	{
+		try {
+			return matcher.test(document);
+		} catch (MatchBudgetExceeded e) {
+			return null;
+		}
+	}
+}
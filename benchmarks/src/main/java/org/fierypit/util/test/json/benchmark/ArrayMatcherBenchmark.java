@@ -0,0 +1,94 @@
+package org.fierypit.util.test.json.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.json.JsonArray;
+import javax.json.JsonValue;
+
+import org.fierypit.util.test.json.JsonMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of each kind of array matcher, over arrays of various lengths. The elements are small objects, expected either
+ * as literal values or by a wildcard object matcher. The order-independent matchers are tested against shuffled arrays; a
+ * mismatching array has one element replaced by {@code null}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArrayMatcherBenchmark
+{
+	/** The build methods of {@link JsonMatcher.ArrayBuilder}. */
+	public enum Kind
+	{
+		EXACT(JsonMatcher.ArrayBuilder::exact, false),
+		EXACT_IGNORE_ORDER(JsonMatcher.ArrayBuilder::exactIgnoreOrder, true),
+		CONTAINS_IGNORE_ORDER(JsonMatcher.ArrayBuilder::containsIgnoreOrder, true),
+		EXACT_IGNORE_ORDER_OPTIMAL(JsonMatcher.ArrayBuilder::exactIgnoreOrderOptimal, true),
+		CONTAINS_IGNORE_ORDER_OPTIMAL(JsonMatcher.ArrayBuilder::containsIgnoreOrderOptimal, true);
+
+		private final Function<JsonMatcher.ArrayBuilder, JsonMatcher<JsonArray>> build;
+		private final boolean shuffle;
+
+		Kind(Function<JsonMatcher.ArrayBuilder, JsonMatcher<JsonArray>> build, boolean shuffle)
+		{
+			this.build = build;
+			this.shuffle = shuffle;
+		}
+	}
+
+	@Param
+	public Kind kind;
+
+	/** Number of elements in the array. */
+	@Param({ "10", "100", "1000" })
+	public int length;
+
+	/** Proportion of elements expected to be literal values, rather than any object of the right shape. */
+	@Param({ "0.0", "0.5", "1.0" })
+	public double literalRatio;
+
+	/** Proportion of documents which match. */
+	@Param({ "1.0", "0.5", "0.0" })
+	public double matchRatio;
+
+	private JsonMatcher<JsonArray> matcher;
+	private JsonValue[] documents;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(Documents.SEED);
+		matcher = kind.build.apply(Documents.arrayBuilder(random, length, literalRatio, !kind.shuffle));
+		documents = Documents.mix(random, matchRatio, match -> Documents.array(random, length, kind.shuffle, match));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Documents.COUNT)
+	public int test()
+	{
+		int matches = 0;
+		for (JsonValue document : documents) {
+			if (matcher.test(document)) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+}
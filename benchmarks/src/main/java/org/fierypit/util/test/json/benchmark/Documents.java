@@ -0,0 +1,178 @@
+package org.fierypit.util.test.json.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+
+import org.fierypit.util.test.json.JsonMatcher;
+
+/**
+ * Generators for the documents and matchers used by the benchmarks. Everything is generated from a fixed seed, so that each
+ * run of a benchmark with the same parameters tests the same documents against the same matchers.
+ */
+final class Documents
+{
+	/** Number of documents tested by each benchmark invocation. */
+	static final int COUNT = 16;
+
+	/** Seed for all random choices. */
+	static final long SEED = 0x6a736f6eL;
+
+	private Documents() {}
+
+	/**
+	 * Generate the documents tested by a benchmark: {@link #COUNT} documents, of which a proportion {@code matchRatio} are
+	 * generated to match and the rest to mismatch, in a random order.
+	 */
+	static JsonValue[] mix(Random random, double matchRatio, Function<Boolean, JsonValue> generator)
+	{
+		int matching = (int) Math.round(matchRatio * COUNT);
+		List<JsonValue> documents = new ArrayList<>(COUNT);
+		for (int i = 0; i < COUNT; i++) {
+			documents.add(generator.apply(i < matching));
+		}
+		Collections.shuffle(documents, random);
+		return documents.toArray(new JsonValue[COUNT]);
+	}
+
+	/** Generate a scalar value: alternately a number and a string. */
+	static JsonValue scalar(Random random, int index)
+	{
+		return (index % 2 == 0)
+				? Json.createValue(random.nextInt(1_000_000))
+				: Json.createValue("value-" + random.nextInt(1_000_000));
+	}
+
+	/**
+	 * Generate an object with {@code width} members at each level. If {@code depth} is more than one, the first member is a
+	 * nested object generated in the same way, one level shallower; the other members are scalars.
+	 */
+	static JsonObject object(Random random, int width, int depth)
+	{
+		JsonObjectBuilder builder = Json.createObjectBuilder();
+		for (int i = 0; i < width; i++) {
+			builder.add("m" + i, (i == 0 && depth > 1) ? object(random, width, depth - 1) : scalar(random, i));
+		}
+		return builder.build();
+	}
+
+	/** Copy an object generated by {@link #object}, replacing its most deeply nested last member by a boolean. */
+	static JsonObject spoil(JsonObject object)
+	{
+		JsonObjectBuilder builder = Json.createObjectBuilder(object);
+		if (object.get("m0") instanceof JsonObject nested) {
+			builder.add("m0", spoil(nested));
+		} else {
+			builder.add("m" + (object.size() - 1), JsonValue.TRUE);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Generate a matcher for an object generated by {@link #object}. Each scalar member is expected to be its literal value
+	 * with probability {@code literalRatio}, or otherwise any value of the same type.
+	 */
+	static JsonMatcher<JsonObject> objectMatcher(Random random, JsonObject object, double literalRatio, boolean exact)
+	{
+		JsonMatcher.ObjectBuilder builder = JsonMatcher.object();
+		for (Map.Entry<String, JsonValue> member : object.entrySet()) {
+			if (member.getValue() instanceof JsonObject nested) {
+				builder.add(member.getKey(), objectMatcher(random, nested, literalRatio, exact));
+			} else {
+				builder.add(member.getKey(), scalarMatcher(random, member.getValue(), literalRatio));
+			}
+		}
+		return exact ? builder.exact() : builder.contains();
+	}
+
+	private static JsonMatcher<?> scalarMatcher(Random random, JsonValue value, double literalRatio)
+	{
+		if (random.nextDouble() < literalRatio) {
+			return JsonMatcher.value(value);
+		}
+		return (value instanceof JsonNumber) ? JsonMatcher.ANY_NUMBER : JsonMatcher.ANY_STRING;
+	}
+
+	/** Generate an element of an array: a small object with an identifier and a name. */
+	static JsonObject element(int index)
+	{
+		return Json.createObjectBuilder()
+				.add("id", index)
+				.add("name", "item-" + index)
+				.build();
+	}
+
+	/**
+	 * Generate an array of {@code length} elements generated by {@link #element}, optionally shuffled. A mismatching array
+	 * has one of its elements replaced by {@code null}.
+	 */
+	static JsonArray array(Random random, int length, boolean shuffle, boolean match)
+	{
+		List<JsonValue> elements = new ArrayList<>(length);
+		for (int i = 0; i < length; i++) {
+			elements.add(element(i));
+		}
+		if (!match) {
+			elements.set(random.nextInt(length), JsonValue.NULL);
+		}
+		if (shuffle) {
+			Collections.shuffle(elements, random);
+		}
+		JsonArrayBuilder builder = Json.createArrayBuilder();
+		elements.forEach(builder::add);
+		return builder.build();
+	}
+
+	/**
+	 * Generate an array builder expecting the elements generated by {@link #array}. Each element is expected to be its literal
+	 * value with probability {@code literalRatio}, or otherwise any object with an identifier and a name. For the ordered
+	 * matcher, the expectations are in the order of the elements; otherwise, the literal expectations come first, so that
+	 * the greedy order-independent matchers do not assign the wildcards to elements needed by later literals.
+	 */
+	static JsonMatcher.ArrayBuilder arrayBuilder(Random random, int length, double literalRatio, boolean ordered)
+	{
+		JsonMatcher<JsonObject> wildcard = JsonMatcher.object()
+				.add("id", JsonMatcher.ANY_NUMBER)
+				.add("name", JsonMatcher.ANY_STRING)
+				.exact();
+		JsonMatcher.ArrayBuilder builder = JsonMatcher.array();
+		int wildcards = 0;
+		for (int i = 0; i < length; i++) {
+			if (random.nextDouble() < literalRatio) {
+				builder.add(JsonMatcher.value(element(i)));
+			} else if (ordered) {
+				builder.add(wildcard);
+			} else {
+				wildcards++;
+			}
+		}
+		for (int i = 0; i < wildcards; i++) {
+			builder.add(wildcard);
+		}
+		return builder;
+	}
+
+	/**
+	 * Generate one of a family of near-duplicate objects: each has the same {@code padding} string members, followed by an
+	 * identifier which distinguishes it from the others.
+	 */
+	static JsonObject nearDuplicate(int id, int padding)
+	{
+		JsonObjectBuilder builder = Json.createObjectBuilder();
+		for (int i = 0; i < padding; i++) {
+			builder.add("p" + i, "padding");
+		}
+		return builder.add("id", id).build();
+	}
+}
@@ -0,0 +1,84 @@
+package org.fierypit.util.test.json.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.fierypit.util.test.json.JsonMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of object matchers, over objects of various widths and nesting depths. Each benchmark operation is one match of
+ * a document; a mismatching document differs from the matching documents only in its most deeply nested member, which is
+ * the worst case for detecting the mismatch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectMatcherBenchmark
+{
+	/** Number of members at each level of the object. */
+	@Param({ "4", "32", "256" })
+	public int width;
+
+	/** Number of levels of nested objects. */
+	@Param({ "1", "4" })
+	public int depth;
+
+	/** Proportion of members expected to be literal values, rather than any value of the right type. */
+	@Param({ "0.0", "0.5", "1.0" })
+	public double literalRatio;
+
+	/** Proportion of documents which match. */
+	@Param({ "1.0", "0.5", "0.0" })
+	public double matchRatio;
+
+	/**
+	 * Whether the matcher is built with {@link JsonMatcher.ObjectBuilder#exact()}, rather than
+	 * {@link JsonMatcher.ObjectBuilder#contains()}.
+	 */
+	@Param({ "true", "false" })
+	public boolean exact;
+
+	private JsonMatcher<JsonObject> matcher;
+	private JsonValue[] documents;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(Documents.SEED);
+		JsonObject document = Documents.object(random, width, depth);
+		JsonObject mismatch = Documents.spoil(document);
+		matcher = Documents.objectMatcher(random, document, literalRatio, exact);
+		documents = Documents.mix(random, matchRatio, match -> match ? document : mismatch);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Documents.COUNT)
+	public int test()
+	{
+		int matches = 0;
+		for (JsonValue document : documents) {
+			if (matcher.test(document)) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+}
@@ -0,0 +1,89 @@
+package org.fierypit.util.test.json.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonValue;
+
+import org.fierypit.util.test.json.JsonMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of literal value matchers and wildcard matchers, for scalar values and for whole documents expected as a single
+ * literal value.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValueMatcherBenchmark
+{
+	/** The kinds of value matched. */
+	public enum Kind
+	{
+		INTEGER, DECIMAL, STRING, DOCUMENT, ANY_NUMBER, ANY_STRING
+	}
+
+	@Param
+	public Kind kind;
+
+	/** Proportion of documents which match. */
+	@Param({ "1.0", "0.5", "0.0" })
+	public double matchRatio;
+
+	private JsonMatcher<?> matcher;
+	private JsonValue[] documents;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(Documents.SEED);
+		JsonValue value = switch (kind) {
+			case INTEGER, ANY_NUMBER -> Json.createValue(123_456_789L);
+			case DECIMAL -> Json.createValue(1234.5678);
+			case STRING, ANY_STRING -> Json.createValue("a string value of moderate length");
+			case DOCUMENT -> Documents.object(random, 32, 4);
+		};
+		JsonValue mismatch = switch (kind) {
+			case INTEGER -> Json.createValue(123_456_788L);
+			case DECIMAL -> Json.createValue(1234.5679);
+			case STRING -> Json.createValue("a string value of moderate length!");
+			case DOCUMENT -> Documents.spoil(value.asJsonObject());
+			case ANY_NUMBER -> Json.createValue("123456789");
+			case ANY_STRING -> JsonValue.NULL;
+		};
+		matcher = switch (kind) {
+			case ANY_NUMBER -> JsonMatcher.ANY_NUMBER;
+			case ANY_STRING -> JsonMatcher.ANY_STRING;
+			default -> JsonMatcher.value(value);
+		};
+		documents = Documents.mix(random, matchRatio, match -> match ? value : mismatch);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Documents.COUNT)
+	public int test()
+	{
+		int matches = 0;
+		for (JsonValue document : documents) {
+			if (matcher.test(document)) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+}
@@ -0,0 +1,164 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+/**
+ * Object matcher which periodically reorders its expected members so that those most likely to reject a value are tested first.
+ * See {@link JsonMatcher.AdaptiveMatcher}.
+ */
+class AdaptiveObjectMatcher
+extends ObjectMatcher
+implements JsonMatcher.AdaptiveMatcher<JsonObject>
+{
+	/** Average number of tests between reorderings. */
+	private static final int REORDER_INTERVAL = 4096;
+
+	/** Minimum number of tests counted before reordering; below this, the failure rates are too uncertain to act on. */
+	private static final long MIN_SAMPLES = 256;
+
+	// The expected members, indexed in the initial evaluation order of the superclass.
+	private final String[] names;
+	private final JsonMatcher<?>[] matchers;
+	private final int[] costs;
+	private final boolean[] captures;
+
+	// Number of tests reaching the member checks, and number of failures of each member, since the last reordering.
+	private final LongAdder tests = new LongAdder();
+	private final LongAdder[] failures;
+
+	private volatile int[] order;
+	private volatile boolean frozen;
+
+	AdaptiveObjectMatcher(Map<String, JsonMatcher<?>> expected, boolean exact)
+	{
+		super(expected, exact);
+
+		Map<String, JsonMatcher<?>> initial = expected();
+		int size = initial.size();
+		this.names = initial.keySet().toArray(new String[size]);
+		this.matchers = initial.values().toArray(new JsonMatcher<?>[size]);
+		this.costs = new int[size];
+		this.captures = new boolean[size];
+		this.failures = new LongAdder[size];
+		for (int i = 0; i < size; i++) {
+			costs[i] = Cost.of(matchers[i]);
+			captures[i] = Cost.mayCapture(matchers[i]);
+			failures[i] = new LongAdder();
+		}
+
+		// Start with the static order, but with capturing members last.
+		Integer[] indices = new Integer[size];
+		Arrays.setAll(indices, i -> i);
+		Arrays.sort(indices, Comparator.comparing(i -> captures[i]));
+		this.order = Arrays.stream(indices).mapToInt(Integer::intValue).toArray();
+	}
+
+	@Override
+	public boolean test(JsonValue value)
+	{
+		if (!(value instanceof JsonObject jsonObject)) {
+			return false;	// Not an object.
+		}
+
+		if (!testShape(jsonObject)) {
+			return false;
+		}
+
+		int[] order = this.order;
+		if (frozen) {
+			for (int i : order) {
+				JsonValue memberValue = jsonObject.get(names[i]);
+				if (memberValue == null || !matchers[i].test(memberValue)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		tests.increment();
+		boolean match = true;
+		for (int i : order) {
+			JsonValue memberValue = jsonObject.get(names[i]);
+			if (memberValue == null || !matchers[i].test(memberValue)) {
+				failures[i].increment();
+				match = false;
+				break;
+			}
+		}
+		if (ThreadLocalRandom.current().nextInt(REORDER_INTERVAL) == 0) {
+			reorder();
+		}
+		return match;
+	}
+
+	/**
+	 * Reorder the members by their failure rate since the last reordering, relative to their cost. The failure rate of a member
+	 * is the number of times it failed divided by the number of times it was tested; a member is tested whenever no earlier
+	 * member failed. Testing independent checks in descending order of failure rate divided by cost minimizes the expected
+	 * total cost. Counts from tests running concurrently with the reordering may be attributed to the wrong order, which only
+	 * affects the accuracy of the next reordering.
+	 */
+	synchronized void reorder()
+	{
+		if (frozen || tests.sum() < MIN_SAMPLES) {
+			return;
+		}
+
+		int[] order = this.order;
+		long remaining = tests.sumThenReset();
+		double[] scores = new double[order.length];
+		for (int i : order) {
+			long failed = failures[i].sumThenReset();
+			scores[i] = (remaining > 0) ? (double) failed / remaining / (costs[i] + 1) : 0.0;
+			remaining -= failed;
+		}
+
+		// Sort stably, so that members with equal scores (in particular, members never tested) keep their relative order.
+		List<Integer> sorted = new ArrayList<>(order.length);
+		Arrays.stream(order).forEach(sorted::add);
+		sorted.sort(Comparator.<Integer, Boolean>comparing(i -> captures[i])
+				.thenComparing(i -> captures[i] ? 0.0 : -scores[i]));
+		this.order = sorted.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	@Override
+	public List<String> evaluationOrder()
+	{
+		return Arrays.stream(order).mapToObj(i -> names[i]).toList();
+	}
+
+	@Override
+	public JsonMatcher.AdaptiveMatcher<JsonObject> freeze()
+	{
+		frozen = true;
+		return this;
+	}
+
+	@Override
+	public boolean isFrozen()
+	{
+		return frozen;
+	}
+
+	/** Adaptive matchers have state of their own, so are only equal to themselves. */
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj == this;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return System.identityHashCode(this);
+	}
+}
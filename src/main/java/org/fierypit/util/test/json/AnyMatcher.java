@@ -2,6 +2,10 @@ package org.fierypit.util.test.json;
 
 import java.util.Objects;
 
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
 import javax.json.JsonValue;
 
 class AnyMatcher<T extends JsonValue>
@@ -9,11 +13,17 @@ implements JsonMatcher<T>
 {
 	private final Class<T> type;
 	private final String string;
+	private final Shape shape;
 
 	AnyMatcher(Class<T> type, String string)
 	{
 		this.type = type;
 		this.string = string;
+		this.shape = (type == JsonObject.class) ? Shape.of(JsonValue.ValueType.OBJECT)
+				: (type == JsonArray.class) ? Shape.of(JsonValue.ValueType.ARRAY)
+				: (type == JsonString.class) ? Shape.of(JsonValue.ValueType.STRING)
+				: (type == JsonNumber.class) ? Shape.of(JsonValue.ValueType.NUMBER)
+				: Shape.ANY;
 	}
 
 	@Override
@@ -22,6 +32,30 @@ implements JsonMatcher<T>
 		return type.isInstance(Objects.requireNonNull(value));
 	}
 
+	Class<T> type()
+	{
+		return type;
+	}
+
+	Shape shape()
+	{
+		return shape;
+	}
+
+	/** Instances of subclasses, which may override {@link #test(JsonValue)}, are only equal to themselves. */
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj == this || (getClass() == AnyMatcher.class && obj != null && obj.getClass() == AnyMatcher.class
+				&& type == ((AnyMatcher<?>) obj).type && string.equals(((AnyMatcher<?>) obj).string));
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return (getClass() == AnyMatcher.class) ? type.hashCode() * 31 + string.hashCode() : System.identityHashCode(this);
+	}
+
 	@Override
 	public String toString()
 	{
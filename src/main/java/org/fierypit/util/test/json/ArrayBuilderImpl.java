@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.json.JsonArray;
@@ -12,17 +13,43 @@ import javax.json.JsonValue;
 class ArrayBuilderImpl
 implements JsonMatcher.ArrayBuilder
 {
-	private final List<JsonMatcher<?>> expected;
+	// The expectations, which are shared with duplicates of this builder and with the matchers built from it until it is
+	// modified, so that duplicating a builder or building a matcher does not copy them. If shared is set, the list must be
+	// copied before it is modified.
+	private List<JsonMatcher<?>> expected;
+	private boolean shared;
+	private int parallelThreshold;
 
 	ArrayBuilderImpl()
 	{
 		this.expected = new ArrayList<>();
+		this.parallelThreshold = ParallelArrays.DISABLED;
 	}
 
 	/** Private copy constructor for use by {@link #duplicate()}  */
 	private ArrayBuilderImpl(ArrayBuilderImpl orig)
 	{
-		this.expected = new ArrayList<>(orig.expected);
+		orig.shared = true;
+		this.expected = orig.expected;
+		this.shared = true;
+		this.parallelThreshold = orig.parallelThreshold;
+	}
+
+	/** Get the expectations for modification, first copying them if they are shared. */
+	private List<JsonMatcher<?>> modifiable()
+	{
+		if (shared) {
+			expected = new ArrayList<>(expected);
+			shared = false;
+		}
+		return expected;
+	}
+
+	/** Get the expectations to be kept by a new matcher, which shares them until this builder is next modified. */
+	private List<JsonMatcher<?>> shared()
+	{
+		shared = true;
+		return Collections.unmodifiableList(expected);
 	}
 
 	@Override
@@ -82,7 +109,7 @@ implements JsonMatcher.ArrayBuilder
 	@Override
 	public JsonMatcher.ArrayBuilder add(JsonMatcher<?> valueMatcher)
 	{
-		expected.add(valueMatcher);
+		modifiable().add(valueMatcher);
 		return this;
 	}
 
@@ -147,7 +174,7 @@ implements JsonMatcher.ArrayBuilder
 	public JsonMatcher.ArrayBuilder set(int index, JsonMatcher<?> valueMatcher)
 	{
 		// We rely on ArrayList.set() to throw the expected IndexOutOfBoundsException if the index is invalid.
-		expected.set(index, valueMatcher);
+		modifiable().set(index, valueMatcher);
 		return this;
 	}
 
@@ -160,14 +187,25 @@ implements JsonMatcher.ArrayBuilder
 	@Override
 	public JsonMatcher.ArrayBuilder remove(int index)
 	{
-		expected.remove(index);
+		modifiable().remove(index);
 		return this;
 	}
 
 	@Override
 	public JsonMatcher.ArrayBuilder reset()
 	{
-		expected.clear();
+		expected = new ArrayList<>();
+		shared = false;
+		return this;
+	}
+
+	@Override
+	public JsonMatcher.ArrayBuilder parallelThreshold(int size)
+	{
+		if (size <= 0) {
+			throw new IllegalArgumentException("parallel threshold must be positive: " + size);
+		}
+		parallelThreshold = size;
 		return this;
 	}
 
@@ -180,18 +218,30 @@ implements JsonMatcher.ArrayBuilder
 	@Override
 	public JsonMatcher<JsonArray> exact()
 	{
-		return new OrderedArrayMatcher(expected);
+		return JsonMatcher.intern(new OrderedArrayMatcher(shared(), parallelThreshold));
 	}
 
 	@Override
 	public JsonMatcher<JsonArray> exactIgnoreOrder()
 	{
-		return new UnorderedArrayMatcher(expected, true);
+		return JsonMatcher.intern(new UnorderedArrayMatcher(shared(), true, parallelThreshold));
 	}
 
 	@Override
 	public JsonMatcher<JsonArray> containsIgnoreOrder()
 	{
-		return new UnorderedArrayMatcher(expected, false);
+		return JsonMatcher.intern(new UnorderedArrayMatcher(shared(), false, parallelThreshold));
+	}
+
+	@Override
+	public JsonMatcher<JsonArray> exactIgnoreOrderOptimal()
+	{
+		return JsonMatcher.intern(new BipartiteArrayMatcher(shared(), true));
+	}
+
+	@Override
+	public JsonMatcher<JsonArray> containsIgnoreOrderOptimal()
+	{
+		return JsonMatcher.intern(new BipartiteArrayMatcher(shared(), false));
 	}
 }
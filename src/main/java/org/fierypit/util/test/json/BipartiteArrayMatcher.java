@@ -0,0 +1,389 @@
+package org.fierypit.util.test.json;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.json.JsonArray;
+import javax.json.JsonValue;
+
+/**
+ * Matcher implementation which matches a {@link JsonArray} ignoring order, by finding a maximum bipartite matching between the
+ * expectations and the array elements. Unlike {@link UnorderedArrayMatcher}, this finds an assignment of elements to
+ * expectations whenever one exists, regardless of the order in which the expectations were declared.
+ */
+class BipartiteArrayMatcher
+implements JsonMatcher<JsonArray>
+{
+	private static final int UNMATCHED = -1;
+	private static final int INFINITY = Integer.MAX_VALUE;
+
+	private static final int EDGE_START_SLOT = 0;
+	private static final int EDGE_END_SLOT = 1;
+	private static final int TARGETS_SLOT = 2;
+	private static final int LEFT_PAIR_SLOT = 3;
+	private static final int RIGHT_PAIR_SLOT = 4;
+	private static final int DISTANCE_SLOT = 5;
+	private static final int QUEUE_SLOT = 6;
+	private static final int NEXT_EDGE_SLOT = 7;
+	private static final int STACK_SLOT = 8;
+	private static final int TYPE_COUNTS_SLOT = 9;
+	private static final int LITERAL_INDEX_SLOT = 10;
+
+	private final List<JsonMatcher<?>> expected;
+	private final boolean exact;
+	private final Shape shape;
+
+	// For each type, the number of expectations which only accept values of that type, or null if no expectation is complex
+	// enough for counting the element types before building the graph to be worthwhile.
+	private final int[] singleTypeCounts;
+
+	// Expectations which are fixed scalar values, whose compatible elements can be found by hash lookup rather than by testing
+	// every element. Each distinct value has an id, and the entries in literalIds are -1 for expectations which are not fixed
+	// scalars.
+	private final int[] literalIds;
+	private final Map<JsonValue, Integer> literals;
+
+	// For each expectation, the index of the first expectation using the same matcher instance.
+	private final int[] firstOccurrence;
+
+	private final boolean mayCapture;
+	private final int hashCode;
+
+	/** Create a matcher for the given expectations, which are kept rather than copied, so must not be modified later. */
+	BipartiteArrayMatcher(List<JsonMatcher<?>> expected, boolean exact)
+	{
+		expected.forEach(Objects::requireNonNull);
+		this.expected = expected;
+		this.exact = exact;
+		this.shape = Shape.array(this.expected.size(), exact);
+		this.singleTypeCounts = this.expected.stream().allMatch(Shape::isLeaf) ? null : Shape.singleTypeCounts(this.expected);
+
+		this.literalIds = new int[this.expected.size()];
+		this.literals = LiteralLookup.assignIds(this.expected, literalIds);
+
+		Map<JsonMatcher<?>, Integer> firstIndices = new IdentityHashMap<>();
+		this.firstOccurrence = new int[this.expected.size()];
+		for (int i = 0; i < firstOccurrence.length; i++) {
+			Integer first = firstIndices.putIfAbsent(this.expected.get(i), i);
+			firstOccurrence[i] = (first != null) ? first : i;
+		}
+		this.mayCapture = this.expected.stream().anyMatch(Cost::mayCapture);
+		this.hashCode = this.expected.hashCode() * 2 + (exact ? 1 : 0);
+	}
+
+	@Override
+	public boolean test(JsonValue value)
+	{
+		return test(value, null);
+	}
+
+	/**
+	 * Evaluate within a context, or without one if {@code context} is {@code null}. Building the graph tests expectations
+	 * against elements which may not be assigned to them, so within a context the captures made while building the graph are
+	 * discarded, and once a complete matching has been found, each expectation is evaluated again against the element
+	 * assigned to it to record its captures. The context is left unchanged if the value does not match.
+	 */
+	boolean test(JsonValue value, MatchContext context)
+	{
+		if (!(value instanceof JsonArray jsonArray)) {
+			return false;	// Not an array.
+		}
+
+		int expectedSize = expected.size();
+		int jsonArraySize = jsonArray.size();
+		if (exact ? jsonArraySize != expectedSize : jsonArraySize < expectedSize) {
+			return false;
+		}
+
+		Budget budget = Budget.current();
+		SlowMatchEvent event = SlowMatchEvent.beginIfEnabled();
+		boolean match = test(jsonArray, expectedSize, jsonArraySize, context, event, budget);
+		if (event != null) {
+			event.commit(this, jsonArray, expectedSize, match);
+		}
+		return match;
+	}
+
+	private boolean test(JsonArray jsonArray, int expectedSize, int jsonArraySize, MatchContext context, SlowMatchEvent event,
+			Budget budget)
+	{
+		try (Scratch scratch = Scratch.acquire()) {
+			if (singleTypeCounts != null
+					&& !Shape.typesAvailable(singleTypeCounts, jsonArray, scratch.ints(TYPE_COUNTS_SLOT, singleTypeCounts.length))) {
+				return false;	// Too few elements of some type, so some expectation cannot be matched.
+			}
+
+			// Build the compatibility graph: the elements matched by expectation i are targets[edgeStart[i]] up to (but not
+			// including) targets[edgeEnd[i]]. Building this requires testing every expectation against every element, so is
+			// O(N*M); the matching itself is O(E*sqrt(N+M)). Repeated expectations share the edges of their first occurrence,
+			// so each distinct matcher is only tested against each element once.
+			int[] edgeStart = scratch.ints(EDGE_START_SLOT, expectedSize);
+			int[] edgeEnd = scratch.ints(EDGE_END_SLOT, expectedSize);
+			int[] targets = scratch.ints(TARGETS_SLOT, jsonArraySize);
+			int edgeCount = 0;
+			int[] literalIndex = literals.isEmpty() ? null : LiteralLookup.index(jsonArray, literals, scratch, LITERAL_INDEX_SLOT);
+			for (int i = 0; i < expectedSize; i++) {
+				if (firstOccurrence[i] != i) {
+					edgeStart[i] = edgeStart[firstOccurrence[i]];
+					edgeEnd[i] = edgeEnd[firstOccurrence[i]];
+					continue;
+				}
+				if (targets.length - edgeCount < jsonArraySize) {
+					targets = scratch.grow(TARGETS_SLOT, targets, Math.max(targets.length * 2, edgeCount + jsonArraySize));
+				}
+
+				edgeStart[i] = edgeCount;
+				if (literalIds[i] >= 0) {
+					for (int j = 0; j < LiteralLookup.size(literalIndex, literalIds[i]); j++) {
+						targets[edgeCount++] = LiteralLookup.get(literalIndex, literalIds[i], j);
+					}
+				} else {
+					JsonMatcher<?> matcher = expected.get(i);
+					if (event != null) {
+						event.invocations += jsonArraySize;
+					}
+					for (int j = 0; j < jsonArraySize; j++) {
+						if (budget != null) {
+							budget.charge();
+						}
+						if (testAndDiscard(matcher, jsonArray.get(j), context)) {
+							targets[edgeCount++] = j;
+						}
+					}
+				}
+				edgeEnd[i] = edgeCount;
+				if (edgeEnd[i] == edgeStart[i]) {
+					return false;	// This expectation is not matched by any element in the array.
+				}
+			}
+
+			if (context == null) {
+				return maximumMatching(expectedSize, edgeStart, edgeEnd, targets, jsonArraySize, scratch, null) == expectedSize;
+			}
+			int[] assignment = new int[expectedSize];
+			if (maximumMatching(expectedSize, edgeStart, edgeEnd, targets, jsonArraySize, scratch, assignment) != expectedSize) {
+				return false;
+			}
+			int mark = context.mark();
+			if (event != null) {
+				event.invocations += expectedSize;
+			}
+			for (int i = 0; i < expectedSize; i++) {
+				if (!MatchContext.test(expected.get(i), jsonArray.get(assignment[i]), context)) {
+					context.rollback(mark);
+					return false;	// Only possible if a custom matcher gives inconsistent results.
+				}
+			}
+			return true;
+		}
+	}
+
+	private static boolean testAndDiscard(JsonMatcher<?> matcher, JsonValue element, MatchContext context)
+	{
+		if (context == null) {
+			return matcher.test(element);
+		}
+		int mark = context.mark();
+		boolean match = MatchContext.test(matcher, element, context);
+		context.rollback(mark);
+		return match;
+	}
+
+	boolean mayCapture()
+	{
+		return mayCapture;
+	}
+
+	List<JsonMatcher<?>> expected()
+	{
+		return expected;
+	}
+
+	boolean isExact()
+	{
+		return exact;
+	}
+
+	Shape shape()
+	{
+		return shape;
+	}
+
+	/**
+	 * Find the size of a maximum matching in a bipartite graph, using the Hopcroft-Karp algorithm. The left vertices are the
+	 * expectations, and the right vertices the array elements. The edges from left vertex {@code i} go to right vertices
+	 * {@code targets[edgeStart[i]]} up to (but not including) {@code targets[edgeEnd[i]]}. If {@code assignment} is not
+	 * {@code null}, the right vertex matched to each left vertex (or {@link #UNMATCHED}) is stored in it.
+	 * @return the number of left vertices matched
+	 */
+	static int maximumMatching(int leftCount, int[] edgeStart, int[] edgeEnd, int[] targets, int rightCount, Scratch scratch,
+			int[] assignment)
+	{
+		Graph graph = new Graph(leftCount, rightCount, edgeStart, edgeEnd, targets, scratch);
+
+		// Start with a greedy matching, which is often complete (or nearly so) already.
+		int matched = 0;
+		for (int left = 0; left < leftCount; left++) {
+			for (int edge = edgeStart[left]; edge < edgeEnd[left]; edge++) {
+				int right = targets[edge];
+				if (graph.rightPair[right] == UNMATCHED) {
+					graph.leftPair[left] = right;
+					graph.rightPair[right] = left;
+					matched++;
+					break;
+				}
+			}
+		}
+
+		// Each phase finds a maximal set of vertex-disjoint shortest augmenting paths; there are at most O(sqrt(V)) phases.
+		while (matched < leftCount) {
+			int limit = graph.layer();
+			if (limit == INFINITY) {
+				break;	// No augmenting path, so the matching is maximum.
+			}
+			System.arraycopy(edgeStart, 0, graph.nextEdge, 0, leftCount);
+			for (int left = 0; left < leftCount; left++) {
+				if (graph.leftPair[left] == UNMATCHED && graph.augment(left, limit)) {
+					matched++;
+				}
+			}
+		}
+		if (assignment != null) {
+			System.arraycopy(graph.leftPair, 0, assignment, 0, leftCount);
+		}
+		return matched;
+	}
+
+	/** State of the Hopcroft-Karp algorithm, with its working arrays taken from the scratch pool. */
+	private static final class Graph
+	{
+		final int leftCount;
+		final int[] edgeStart;
+		final int[] edgeEnd;
+		final int[] targets;
+		final int[] leftPair;
+		final int[] rightPair;
+		final int[] distance;
+		final int[] queue;
+		final int[] nextEdge;
+		final int[] stack;
+
+		Graph(int leftCount, int rightCount, int[] edgeStart, int[] edgeEnd, int[] targets, Scratch scratch)
+		{
+			this.leftCount = leftCount;
+			this.edgeStart = edgeStart;
+			this.edgeEnd = edgeEnd;
+			this.targets = targets;
+			this.leftPair = scratch.ints(LEFT_PAIR_SLOT, leftCount);
+			this.rightPair = scratch.ints(RIGHT_PAIR_SLOT, rightCount);
+			this.distance = scratch.ints(DISTANCE_SLOT, leftCount);
+			this.queue = scratch.ints(QUEUE_SLOT, leftCount);
+			this.nextEdge = scratch.ints(NEXT_EDGE_SLOT, leftCount);
+			this.stack = scratch.ints(STACK_SLOT, leftCount);
+			Arrays.fill(leftPair, 0, leftCount, UNMATCHED);
+			Arrays.fill(rightPair, 0, rightCount, UNMATCHED);
+		}
+
+		/**
+		 * Breadth-first search from the unmatched left vertices along alternating paths, setting the layer of each left vertex
+		 * reached. Returns the length of the shortest augmenting path, or {@link #INFINITY} if there is none.
+		 */
+		int layer()
+		{
+			int head = 0;
+			int tail = 0;
+			for (int left = 0; left < leftCount; left++) {
+				if (leftPair[left] == UNMATCHED) {
+					distance[left] = 0;
+					queue[tail++] = left;
+				} else {
+					distance[left] = INFINITY;
+				}
+			}
+
+			int limit = INFINITY;
+			while (head < tail) {
+				int left = queue[head++];
+				if (distance[left] + 1 > limit) {
+					continue;	// Paths through here are longer than the shortest augmenting path.
+				}
+				for (int edge = edgeStart[left]; edge < edgeEnd[left]; edge++) {
+					int nextLeft = rightPair[targets[edge]];
+					if (nextLeft == UNMATCHED) {
+						limit = Math.min(limit, distance[left] + 1);
+					} else if (distance[nextLeft] == INFINITY) {
+						distance[nextLeft] = distance[left] + 1;
+						queue[tail++] = nextLeft;
+					}
+				}
+			}
+			return limit;
+		}
+
+		/**
+		 * Depth-first search for an augmenting path of length {@code limit} from an unmatched left vertex, following the layers
+		 * set by {@link #layer()}. If found, the matching is updated along the path. This is done iteratively with an explicit
+		 * stack, since paths may be as long as the array.
+		 */
+		boolean augment(int root, int limit)
+		{
+			int depth = 0;
+			stack[depth++] = root;
+			while (depth > 0) {
+				int left = stack[depth - 1];
+				if (nextEdge[left] == edgeEnd[left]) {
+					distance[left] = INFINITY;	// Dead end; don't try this vertex again in this phase.
+					depth--;
+					if (depth > 0) {
+						nextEdge[stack[depth - 1]]++;
+					}
+					continue;
+				}
+
+				int nextLeft = rightPair[targets[nextEdge[left]]];
+				if (nextLeft == UNMATCHED) {
+					if (distance[left] + 1 == limit) {
+						// Found an augmenting path: each left vertex on the stack takes the right vertex it is exploring.
+						for (int i = 0; i < depth; i++) {
+							int pathLeft = stack[i];
+							int pathRight = targets[nextEdge[pathLeft]];
+							leftPair[pathLeft] = pathRight;
+							rightPair[pathRight] = pathLeft;
+						}
+						return true;
+					}
+					nextEdge[left]++;
+				} else if (distance[nextLeft] == distance[left] + 1) {
+					stack[depth++] = nextLeft;
+				} else {
+					nextEdge[left]++;
+				}
+			}
+			return false;
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj == this || (obj instanceof BipartiteArrayMatcher other && hashCode == other.hashCode
+				&& exact == other.exact && expected.equals(other.expected));
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public String toString()
+	{
+		return (exact ? "(exactIgnoreOrderOptimal)[" : "(containsIgnoreOrderOptimal)[")
+				+ expected.stream().map(Object::toString).collect(Collectors.joining(",")) + "]";
+	}
+}
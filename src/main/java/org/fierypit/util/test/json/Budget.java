@@ -0,0 +1,123 @@
+package org.fierypit.util.test.json;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * The budget of an evaluation of a matcher created by {@link JsonMatcher#budgeted(MatchBudget)}, which is in progress on
+ * the current thread. The order-independent array matchers look this up once per evaluation, and charge each invocation of
+ * an expectation against an element to it. The time limit is only checked on every {@value #CLOCK_INTERVAL}th invocation,
+ * since reading the clock can cost as much as the invocation itself. If budgeted matchers are nested, each invocation is
+ * charged to all of the budgets in progress.
+ * <p>
+ * Parallel array matchers {@link #enter(Budget) enter} the budget of the calling thread in the tasks which they run on other
+ * threads, so invocations made by those tasks are charged to it too. The thread which began the evaluation counts its
+ * invocations in a plain field, and other threads count theirs in a field updated atomically, so the evaluation of a
+ * matcher which is not parallel pays nothing for this.
+ */
+final class Budget
+{
+	/** Number of invocations between checks of the time limit; a power of two. */
+	static final int CLOCK_INTERVAL = 64;
+
+	private static final ThreadLocal<Budget> CURRENT = new ThreadLocal<>();
+
+	private static final AtomicLongFieldUpdater<Budget> SHARED_INVOCATIONS =
+			AtomicLongFieldUpdater.newUpdater(Budget.class, "sharedInvocations");
+
+	private final MatchBudget limits;
+	private final Budget outer;
+	private final long deadline;
+	private final boolean timed;
+	private final Thread owner;
+
+	// The invocations charged on the thread which began the evaluation, and on any other threads.
+	private long invocations;
+	private volatile long sharedInvocations;
+
+	private Budget(MatchBudget limits, Budget outer)
+	{
+		this.limits = limits;
+		this.outer = outer;
+		this.timed = limits.timeLimit().isPresent();
+		this.deadline = timed ? System.nanoTime() + limits.timeLimit().get().toNanos() : 0;
+		this.owner = Thread.currentThread();
+	}
+
+	/** Get the budget of the evaluation in progress on this thread, or {@code null} if there is none. */
+	static Budget current()
+	{
+		return CURRENT.get();
+	}
+
+	/** Start an evaluation on this thread with a budget, returning the budget to pass to {@link #end()}. */
+	static Budget begin(MatchBudget limits)
+	{
+		Budget budget = new Budget(limits, CURRENT.get());
+		CURRENT.set(budget);
+		return budget;
+	}
+
+	/**
+	 * Continue the evaluation using a budget on this thread, which need not be the thread which began it, returning the
+	 * budget to pass to {@link #exit(Budget)}.
+	 * @param budget the budget, or {@code null} if the evaluation has none
+	 */
+	static Budget enter(Budget budget)
+	{
+		Budget previous = CURRENT.get();
+		if (budget != previous) {
+			set(budget);
+		}
+		return previous;
+	}
+
+	/** Stop continuing an evaluation on this thread, restoring the budget returned by {@link #enter(Budget)}. */
+	static void exit(Budget previous)
+	{
+		if (CURRENT.get() != previous) {
+			set(previous);
+		}
+	}
+
+	private static void set(Budget budget)
+	{
+		if (budget == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(budget);
+		}
+	}
+
+	/** End the evaluation using this budget, restoring the budget of any enclosing evaluation. */
+	void end()
+	{
+		set(outer);
+	}
+
+	/** Charge one invocation to this budget and any enclosing budgets. */
+	void charge()
+	{
+		for (Budget budget = this; budget != null; budget = budget.outer) {
+			budget.chargeOne();
+		}
+	}
+
+	private void chargeOne()
+	{
+		// Each thread checks the clock after every CLOCK_INTERVAL invocations of the counter which it updates.
+		long count;
+		long tick;
+		if (Thread.currentThread() == owner) {
+			tick = ++invocations;
+			count = tick + sharedInvocations;
+		} else {
+			tick = SHARED_INVOCATIONS.incrementAndGet(this);
+			count = tick + invocations;	// Possibly stale, but the owner thread sees every invocation.
+		}
+		if (count > limits.maximumInvocations()) {
+			throw new MatchBudgetExceeded(limits, limits.maximumInvocations(), "invocation limit reached");
+		} else if (timed && (tick & (CLOCK_INTERVAL - 1)) == 0 && System.nanoTime() - deadline > 0) {
+			throw new MatchBudgetExceeded(limits, count, "time limit reached");
+		}
+	}
+}
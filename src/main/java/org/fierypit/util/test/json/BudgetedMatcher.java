@@ -0,0 +1,59 @@
+package org.fierypit.util.test.json;
+
+import javax.json.JsonValue;
+
+/**
+ * Matcher which limits the work done by each evaluation of another matcher. See {@link JsonMatcher#budgeted(MatchBudget)}.
+ */
+class BudgetedMatcher<T extends JsonValue>
+implements DelegatingMatcher<T>
+{
+	private final JsonMatcher<T> matcher;
+	private final MatchBudget budget;
+
+	BudgetedMatcher(JsonMatcher<T> matcher, MatchBudget budget)
+	{
+		this.matcher = matcher;
+		this.budget = budget;
+	}
+
+	@Override
+	public boolean test(JsonValue value)
+	{
+		Budget evaluation = Budget.begin(budget);
+		try {
+			return matcher.test(value);
+		} finally {
+			evaluation.end();
+		}
+	}
+
+	/** Evaluate within a context, with the same budget. */
+	@Override
+	public boolean test(JsonValue value, MatchContext context)
+	{
+		Budget evaluation = Budget.begin(budget);
+		try {
+			return MatchContext.test(matcher, value, context);
+		} finally {
+			evaluation.end();
+		}
+	}
+
+	@Override
+	public JsonMatcher<T> delegate()
+	{
+		return matcher;
+	}
+
+	MatchBudget budget()
+	{
+		return budget;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "(budgeted)" + matcher.toString();
+	}
+}
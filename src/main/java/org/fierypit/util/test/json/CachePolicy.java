@@ -0,0 +1,52 @@
+package org.fierypit.util.test.json;
+
+/**
+ * Policy for a result cache created by {@link JsonMatcher#cached(CachePolicy)}. A policy is immutable, so may be shared by
+ * any number of caches.
+ */
+public final class CachePolicy
+{
+	/** The maximum number of entries in a cache using the default policy. */
+	public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+	/** Policy with the default maximum size. */
+	public static final CachePolicy DEFAULT = new CachePolicy(DEFAULT_MAXIMUM_SIZE);
+
+	private final int maximumSize;
+
+	private CachePolicy(int maximumSize)
+	{
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Get a policy limiting the number of results held in a cache. The cache is organized as a table of slots addressed by the
+	 * identity hash code of each value, so a new result replaces any result held in the same slot, and a cache may hold
+	 * somewhat fewer results than its maximum size.
+	 * @param maximumSize the maximum number of results held
+	 * @return the policy
+	 * @exception IllegalArgumentException if {@code maximumSize} is not positive, or is greater than 2<sup>30</sup>
+	 */
+	public static CachePolicy maximumSize(int maximumSize)
+	{
+		if (maximumSize <= 0 || maximumSize > 1 << 30) {
+			throw new IllegalArgumentException("maximum size out of range: " + maximumSize);
+		}
+		return new CachePolicy(maximumSize);
+	}
+
+	/**
+	 * Get the maximum number of results held in a cache using this policy.
+	 * @return the maximum size
+	 */
+	public int maximumSize()
+	{
+		return maximumSize;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "(maximumSize:" + maximumSize + ")";
+	}
+}
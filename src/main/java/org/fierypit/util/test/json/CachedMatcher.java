@@ -0,0 +1,121 @@
+package org.fierypit.util.test.json;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+/**
+ * Matcher which remembers the results of another matcher for the object and array instances it has been tested against. See
+ * {@link JsonMatcher.CachingMatcher}.
+ * <p>
+ * The cache is a direct-mapped table addressed by the identity hash code of each value. Each slot holds an immutable entry
+ * weakly referring to the value, so a new result simply replaces the entry in its slot, and an entry whose value has been
+ * garbage collected is treated as empty. Slots are read and written without locking; racing threads may each evaluate the
+ * matcher and store the same result.
+ */
+class CachedMatcher<T extends JsonValue>
+implements JsonMatcher.CachingMatcher<T>, DelegatingMatcher<T>
+{
+	private final JsonMatcher<T> matcher;
+	private final CachePolicy policy;
+	private final boolean enabled;
+	private final AtomicReferenceArray<Entry> entries;
+	private final int mask;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	CachedMatcher(JsonMatcher<T> matcher, CachePolicy policy)
+	{
+		this.matcher = matcher;
+		this.policy = policy;
+		// Skipping a matcher which captures would skip its captures, so such matchers are always evaluated.
+		this.enabled = !Cost.mayCapture(matcher);
+		int capacity = Integer.highestOneBit(policy.maximumSize());
+		this.entries = new AtomicReferenceArray<>(enabled ? capacity : 0);
+		this.mask = capacity - 1;
+	}
+
+	@Override
+	public boolean test(JsonValue value)
+	{
+		if (!enabled || !(value instanceof JsonObject || value instanceof JsonArray)) {
+			return matcher.test(value);
+		}
+
+		int slot = slot(value);
+		Entry entry = entries.get(slot);
+		if (entry != null && entry.get() == value) {
+			hits.increment();
+			return entry.result;
+		}
+
+		misses.increment();
+		boolean result = matcher.test(value);
+		entries.set(slot, new Entry(value, result));
+		return result;
+	}
+
+	private int slot(JsonValue value)
+	{
+		int hash = System.identityHashCode(value);
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	@Override
+	public long hits()
+	{
+		return hits.sum();
+	}
+
+	@Override
+	public long misses()
+	{
+		return misses.sum();
+	}
+
+	@Override
+	public void clear()
+	{
+		for (int i = 0; i < entries.length(); i++) {
+			entries.set(i, null);
+		}
+		hits.reset();
+		misses.reset();
+	}
+
+	@Override
+	public CachePolicy policy()
+	{
+		return policy;
+	}
+
+	@Override
+	public JsonMatcher<T> delegate()
+	{
+		return matcher;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "(cached)" + matcher.toString();
+	}
+
+	/** A remembered result, weakly referring to the value tested. */
+	private static final class Entry
+	extends WeakReference<JsonValue>
+	{
+		final boolean result;
+
+		Entry(JsonValue value, boolean result)
+		{
+			super(value);
+			this.result = result;
+		}
+	}
+}
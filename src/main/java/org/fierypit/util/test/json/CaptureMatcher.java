@@ -5,31 +5,75 @@ import java.util.function.Consumer;
 import javax.json.JsonValue;
 
 class CaptureMatcher<T extends JsonValue>
-implements JsonMatcher<T>
+implements DelegatingMatcher<T>
 {
 	private final JsonMatcher<T> matcher;
 	private final Consumer<T> consumer;
+	private final String name;
 
 	CaptureMatcher(JsonMatcher<T> matcher, Consumer<T> consumer)
 	{
 		this.matcher = matcher;
 		this.consumer = consumer;
+		this.name = null;
+	}
+
+	/** Create a named capture, which has no consumer and only captures when evaluated by {@link JsonMatcher#match}. */
+	CaptureMatcher(JsonMatcher<T> matcher, String name)
+	{
+		this.matcher = matcher;
+		this.consumer = null;
+		this.name = name;
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
 	public boolean test(JsonValue value)
 	{
 		boolean match = matcher.test(value);
+		if (match && consumer != null) {
+			accept(value);
+		}
+		return match;
+	}
+
+	/** Evaluate within a context, recording the capture in the context rather than performing it. */
+	@Override
+	public boolean test(JsonValue value, MatchContext context)
+	{
+		boolean match = MatchContext.test(matcher, value, context);
 		if (match) {
-			consumer.accept((T) value);
+			context.capture(this, value);
 		}
 		return match;
 	}
 
+	@SuppressWarnings("unchecked")
+	void accept(JsonValue value)
+	{
+		consumer.accept((T) value);
+	}
+
+	@Override
+	public JsonMatcher<T> delegate()
+	{
+		return matcher;
+	}
+
+	/** Get the consumer, which is {@code null} for a named capture. */
+	Consumer<T> consumer()
+	{
+		return consumer;
+	}
+
+	/** Get the name, which is {@code null} unless this is a named capture. */
+	String name()
+	{
+		return name;
+	}
+
 	@Override
 	public String toString()
 	{
-		return "(capture)" + matcher.toString();
+		return ((name != null) ? "(capture:" + name + ")" : "(capture)") + matcher.toString();
 	}
 }
@@ -0,0 +1,483 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal class file writer, supporting just enough of the class file format for {@link MatcherCompiler} to generate its
+ * classes. Classes are written with class file version 49 (Java 5), which does not require stack map frames; this keeps the
+ * writer very simple, since it never needs to compute the types of local variables and stack slots at branch targets.
+ */
+final class ClassFileWriter
+{
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_PRIVATE = 0x0002;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+
+	private static final int CLASS_FILE_VERSION = 49;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private final ByteVector constantPool = new ByteVector();
+	private final Map<String, Integer> constantIndices = new HashMap<>();
+	private int constantCount = 1;	// constant pool indices start at 1
+
+	private final int access;
+	private final int thisClass;
+	private final int superClass;
+	private final List<ByteVector> fields = new ArrayList<>();
+	private final List<ByteVector> methods = new ArrayList<>();
+
+	ClassFileWriter(int access, String name, String superName)
+	{
+		this.access = access;
+		this.thisClass = classConstant(name);
+		this.superClass = classConstant(superName);
+	}
+
+	void addField(int access, String name, String descriptor)
+	{
+		ByteVector field = new ByteVector();
+		field.putShort(access).putShort(utf8Constant(name)).putShort(utf8Constant(descriptor)).putShort(0);
+		fields.add(field);
+	}
+
+	void addMethod(int access, String name, String descriptor, Code code)
+	{
+		code.resolveLabels();
+		ByteVector method = new ByteVector();
+		method.putShort(access).putShort(utf8Constant(name)).putShort(utf8Constant(descriptor)).putShort(1);
+		method.putShort(utf8Constant("Code")).putInt(12 + code.bytes.length);
+		method.putShort(code.maxStack).putShort(code.maxLocals);
+		method.putInt(code.bytes.length).putBytes(code.bytes.toByteArray());
+		method.putShort(0);	// exception table length
+		method.putShort(0);	// attribute count
+		methods.add(method);
+	}
+
+	byte[] toByteArray()
+	{
+		ByteVector out = new ByteVector();
+		out.putInt(0xCAFEBABE).putShort(0).putShort(CLASS_FILE_VERSION);
+		out.putShort(constantCount).putBytes(constantPool.toByteArray());
+		out.putShort(access).putShort(thisClass).putShort(superClass);
+		out.putShort(0);	// interface count
+		out.putShort(fields.size());
+		fields.forEach(field -> out.putBytes(field.toByteArray()));
+		out.putShort(methods.size());
+		methods.forEach(method -> out.putBytes(method.toByteArray()));
+		out.putShort(0);	// attribute count
+		return out.toByteArray();
+	}
+
+	private int utf8Constant(String value)
+	{
+		return constant("U" + value, () -> constantPool.putByte(CONSTANT_UTF8).putUtf8(value));
+	}
+
+	private int classConstant(String internalName)
+	{
+		int nameIndex = utf8Constant(internalName);
+		return constant("C" + internalName, () -> constantPool.putByte(CONSTANT_CLASS).putShort(nameIndex));
+	}
+
+	private int stringConstant(String value)
+	{
+		int valueIndex = utf8Constant(value);
+		return constant("S" + value, () -> constantPool.putByte(CONSTANT_STRING).putShort(valueIndex));
+	}
+
+	private int integerConstant(int value)
+	{
+		return constant("I" + value, () -> constantPool.putByte(CONSTANT_INTEGER).putInt(value));
+	}
+
+	private int memberConstant(int tag, String owner, String name, String descriptor)
+	{
+		int ownerIndex = classConstant(owner);
+		int nameIndex = utf8Constant(name);
+		int descriptorIndex = utf8Constant(descriptor);
+		int nameAndTypeIndex = constant("N" + name + " " + descriptor,
+				() -> constantPool.putByte(CONSTANT_NAME_AND_TYPE).putShort(nameIndex).putShort(descriptorIndex));
+		return constant(tag + owner + " " + name + " " + descriptor,
+				() -> constantPool.putByte(tag).putShort(ownerIndex).putShort(nameAndTypeIndex));
+	}
+
+	private int constant(String key, Runnable writer)
+	{
+		Integer index = constantIndices.get(key);
+		if (index == null) {
+			if (constantCount >= 0xFFFF) {
+				throw new IllegalStateException("constant pool overflow");
+			}
+			writer.run();
+			index = constantCount++;
+			constantIndices.put(key, index);
+		}
+		return index;
+	}
+
+	/** Branch target within a {@link Code} block. */
+	static final class Label
+	{
+		private int position = -1;
+		private final List<int[]> references = new ArrayList<>();	// {instruction position, operand position}
+	}
+
+	/**
+	 * Bytecode for a single method. Only the instructions needed by the matcher compiler are supported. The maximum stack depth
+	 * is tracked as instructions are added; all branches in the generated code are taken with an empty operand stack.
+	 */
+	final class Code
+	{
+		private final ByteVector bytes = new ByteVector();
+		private final List<Label> labels = new ArrayList<>();
+		private int stack;
+		private int maxStack;
+		private int maxLocals;
+
+		Code(int parameterSlots)
+		{
+			this.maxLocals = parameterSlots;
+		}
+
+		int size()
+		{
+			return bytes.length;
+		}
+
+		int newLocal()
+		{
+			return maxLocals++;
+		}
+
+		Code aload(int local)
+		{
+			return localInstruction(0x19, 0x2A, local, 1);
+		}
+
+		Code astore(int local)
+		{
+			return localInstruction(0x3A, 0x4B, local, -1);
+		}
+
+		Code aaload()
+		{
+			return simple(0x32, -1);
+		}
+
+		Code pop()
+		{
+			return simple(0x57, -1);
+		}
+
+		Code ireturn()
+		{
+			return simple(0xAC, -1);
+		}
+
+		Code vreturn()
+		{
+			return simple(0xB1, 0);
+		}
+
+		Code iconst(int value)
+		{
+			if (value >= -1 && value <= 5) {
+				simple(0x03 + value, 1);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				bytes.putByte(0x10).putByte(value);
+				adjustStack(1);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				bytes.putByte(0x11).putShort(value);
+				adjustStack(1);
+			} else {
+				ldcIndex(integerConstant(value));
+			}
+			return this;
+		}
+
+		Code ldc(String value)
+		{
+			return ldcIndex(stringConstant(value));
+		}
+
+		Code getstatic(String owner, String name, String descriptor)
+		{
+			return memberInstruction(0xB2, memberConstant(CONSTANT_FIELDREF, owner, name, descriptor), 1);
+		}
+
+		Code getfield(String owner, String name, String descriptor)
+		{
+			return memberInstruction(0xB4, memberConstant(CONSTANT_FIELDREF, owner, name, descriptor), 0);
+		}
+
+		Code putfield(String owner, String name, String descriptor)
+		{
+			return memberInstruction(0xB5, memberConstant(CONSTANT_FIELDREF, owner, name, descriptor), -2);
+		}
+
+		Code invokevirtual(String owner, String name, String descriptor)
+		{
+			return memberInstruction(0xB6, memberConstant(CONSTANT_METHODREF, owner, name, descriptor),
+					invocationStackEffect(descriptor, true));
+		}
+
+		Code invokespecial(String owner, String name, String descriptor)
+		{
+			return memberInstruction(0xB7, memberConstant(CONSTANT_METHODREF, owner, name, descriptor),
+					invocationStackEffect(descriptor, true));
+		}
+
+		Code invokestatic(String owner, String name, String descriptor)
+		{
+			return memberInstruction(0xB8, memberConstant(CONSTANT_METHODREF, owner, name, descriptor),
+					invocationStackEffect(descriptor, false));
+		}
+
+		Code invokeinterface(String owner, String name, String descriptor)
+		{
+			int count = returnSlots(descriptor) - invocationStackEffect(descriptor, true);	// argument slots plus receiver
+			memberInstruction(0xB9, memberConstant(CONSTANT_INTERFACE_METHODREF, owner, name, descriptor),
+					invocationStackEffect(descriptor, true));
+			bytes.putByte(count).putByte(0);
+			return this;
+		}
+
+		Code checkcast(String type)
+		{
+			return memberInstruction(0xC0, classConstant(type), 0);
+		}
+
+		Code instanceOf(String type)
+		{
+			return memberInstruction(0xC1, classConstant(type), 0);
+		}
+
+		Code ifeq(Label label)
+		{
+			return branch(0x99, label, -1);
+		}
+
+		Code ifnull(Label label)
+		{
+			return branch(0xC6, label, -1);
+		}
+
+		Code ifIcmpne(Label label)
+		{
+			return branch(0xA0, label, -2);
+		}
+
+		Code ifIcmplt(Label label)
+		{
+			return branch(0xA1, label, -2);
+		}
+
+		Code ifAcmpeq(Label label)
+		{
+			return branch(0xA5, label, -2);
+		}
+
+		Code ifAcmpne(Label label)
+		{
+			return branch(0xA6, label, -2);
+		}
+
+		Code goTo(Label label)
+		{
+			return branch(0xA7, label, 0);
+		}
+
+		Code place(Label label)
+		{
+			label.position = bytes.length;
+			return this;
+		}
+
+		private Code simple(int opcode, int stackEffect)
+		{
+			bytes.putByte(opcode);
+			adjustStack(stackEffect);
+			return this;
+		}
+
+		private Code localInstruction(int opcode, int shortOpcodeBase, int local, int stackEffect)
+		{
+			if (local <= 3) {
+				bytes.putByte(shortOpcodeBase + local);
+			} else if (local <= 0xFF) {
+				bytes.putByte(opcode).putByte(local);
+			} else {
+				bytes.putByte(0xC4).putByte(opcode).putShort(local);	// wide
+			}
+			adjustStack(stackEffect);
+			return this;
+		}
+
+		private Code ldcIndex(int index)
+		{
+			if (index <= 0xFF) {
+				bytes.putByte(0x12).putByte(index);
+			} else {
+				bytes.putByte(0x13).putShort(index);
+			}
+			adjustStack(1);
+			return this;
+		}
+
+		private Code memberInstruction(int opcode, int index, int stackEffect)
+		{
+			bytes.putByte(opcode).putShort(index);
+			adjustStack(stackEffect);
+			return this;
+		}
+
+		private Code branch(int opcode, Label label, int stackEffect)
+		{
+			if (!labels.contains(label)) {
+				labels.add(label);
+			}
+			label.references.add(new int[] { bytes.length, bytes.length + 1 });
+			bytes.putByte(opcode).putShort(0);	// offset is filled in by resolveLabels()
+			adjustStack(stackEffect);
+			return this;
+		}
+
+		private void resolveLabels()
+		{
+			for (Label label : labels) {
+				if (label.position < 0) {
+					throw new IllegalStateException("label not placed");
+				}
+				for (int[] reference : label.references) {
+					int offset = label.position - reference[0];
+					if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+						throw new IllegalStateException("branch offset too large");
+					}
+					bytes.setShort(reference[1], offset);
+				}
+			}
+		}
+
+		private void adjustStack(int stackEffect)
+		{
+			stack += stackEffect;
+			maxStack = Math.max(maxStack, stack);
+		}
+	}
+
+	/** Count the net change in stack depth caused by invoking a method with the given descriptor. */
+	private static int invocationStackEffect(String descriptor, boolean hasReceiver)
+	{
+		int argumentSlots = 0;
+		int i = 1;	// skip '('
+		while (descriptor.charAt(i) != ')') {
+			char c = descriptor.charAt(i);
+			argumentSlots += (c == 'J' || c == 'D') ? 2 : 1;
+			while (descriptor.charAt(i) == '[') {
+				i++;
+			}
+			i = (descriptor.charAt(i) == 'L') ? descriptor.indexOf(';', i) + 1 : i + 1;
+		}
+		return returnSlots(descriptor) - argumentSlots - (hasReceiver ? 1 : 0);
+	}
+
+	private static int returnSlots(String descriptor)
+	{
+		char c = descriptor.charAt(descriptor.indexOf(')') + 1);
+		return (c == 'V') ? 0 : (c == 'J' || c == 'D') ? 2 : 1;
+	}
+
+	/** Growable big-endian byte array, with just the operations the class file format needs. */
+	private static final class ByteVector
+	{
+		private byte[] data = new byte[64];
+		private int length;
+
+		ByteVector putByte(int value)
+		{
+			ensureCapacity(1);
+			data[length++] = (byte) value;
+			return this;
+		}
+
+		ByteVector putShort(int value)
+		{
+			if (value < Short.MIN_VALUE || value > 0xFFFF) {
+				throw new IllegalArgumentException("value out of range for u2: " + value);
+			}
+			ensureCapacity(2);
+			data[length++] = (byte) (value >>> 8);
+			data[length++] = (byte) value;
+			return this;
+		}
+
+		ByteVector putInt(int value)
+		{
+			ensureCapacity(4);
+			data[length++] = (byte) (value >>> 24);
+			data[length++] = (byte) (value >>> 16);
+			data[length++] = (byte) (value >>> 8);
+			data[length++] = (byte) value;
+			return this;
+		}
+
+		ByteVector putBytes(byte[] bytes)
+		{
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, data, length, bytes.length);
+			length += bytes.length;
+			return this;
+		}
+
+		/** Write a string in the "modified UTF-8" encoding used by the class file format, preceded by its length. */
+		ByteVector putUtf8(String value)
+		{
+			ByteVector encoded = new ByteVector();
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c >= 0x0001 && c <= 0x007F) {
+					encoded.putByte(c);
+				} else if (c <= 0x07FF) {
+					encoded.putByte(0xC0 | (c >> 6)).putByte(0x80 | (c & 0x3F));
+				} else {
+					encoded.putByte(0xE0 | (c >> 12)).putByte(0x80 | ((c >> 6) & 0x3F)).putByte(0x80 | (c & 0x3F));
+				}
+			}
+			if (encoded.length > 0xFFFF) {
+				throw new IllegalArgumentException("string constant too long");
+			}
+			return putShort(encoded.length).putBytes(encoded.toByteArray());
+		}
+
+		void setShort(int position, int value)
+		{
+			data[position] = (byte) (value >>> 8);
+			data[position + 1] = (byte) value;
+		}
+
+		byte[] toByteArray()
+		{
+			return Arrays.copyOf(data, length);
+		}
+
+		private void ensureCapacity(int extra)
+		{
+			if (length + extra > data.length) {
+				data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+			}
+		}
+	}
+}
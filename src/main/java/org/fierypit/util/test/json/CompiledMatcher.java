@@ -0,0 +1,40 @@
+package org.fierypit.util.test.json;
+
+import javax.json.JsonValue;
+
+/**
+ * Base class for matchers generated by {@link MatcherCompiler}. The generated subclass implements {@link #test(JsonValue)};
+ * everything else is delegated to the matcher tree that was compiled.
+ */
+abstract class CompiledMatcher<T extends JsonValue>
+implements DelegatingMatcher<T>
+{
+	private final JsonMatcher<T> source;
+
+	CompiledMatcher(JsonMatcher<T> source)
+	{
+		this.source = source;
+	}
+
+	/** Get the matcher tree from which this matcher was compiled. */
+	@Override
+	public JsonMatcher<T> delegate()
+	{
+		return source;
+	}
+
+	@Override
+	public abstract boolean test(JsonValue value);
+
+	@Override
+	public JsonMatcher<T> compile()
+	{
+		return this;
+	}
+
+	@Override
+	public String toString()
+	{
+		return source.toString();
+	}
+}
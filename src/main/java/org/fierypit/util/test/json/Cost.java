@@ -0,0 +1,83 @@
+package org.fierypit.util.test.json;
+
+import javax.json.JsonValue;
+
+/**
+ * Static model of the relative cost of evaluating matchers, used to decide the order in which an object matcher evaluates its
+ * expected members. The model is deliberately coarse: it ranks matchers by kind rather than estimating the actual work, which
+ * is enough to ensure that cheap checks which are likely to fail are made before expensive nested ones.
+ */
+final class Cost
+{
+	/** Comparison with a fixed scalar value. */
+	static final int LITERAL = 0;
+
+	/** Check of the type of a value, possibly with a numeric comparison. */
+	static final int ANY_TYPE = 1;
+
+	/** Regular expression match of a string. */
+	static final int PATTERN = 2;
+
+	/** Ordered array matcher, or comparison with a fixed array. */
+	static final int ORDERED_ARRAY = 3;
+
+	/** Object matcher, or comparison with a fixed object. */
+	static final int OBJECT = 4;
+
+	/** Order-independent array matcher, whose cost grows with the square of the array size. */
+	static final int UNORDERED_ARRAY = 5;
+
+	/** Custom matcher, whose cost is unknown. */
+	static final int UNKNOWN = 6;
+
+	private Cost() {}
+
+	/** Get the cost rank of a matcher. */
+	static int of(JsonMatcher<?> matcher)
+	{
+		if (matcher instanceof ValueMatcher<?> valueMatcher) {
+			return switch (valueMatcher.value().getValueType()) {
+				case ARRAY -> ORDERED_ARRAY;
+				case OBJECT -> OBJECT;
+				default -> LITERAL;
+			};
+		} else if (matcher instanceof AnyMatcher || matcher instanceof NumberMatcher) {
+			return ANY_TYPE;
+		} else if (matcher instanceof RegexMatcher) {
+			return PATTERN;
+		} else if (matcher instanceof OrderedArrayMatcher) {
+			return ORDERED_ARRAY;
+		} else if (matcher instanceof ObjectMatcher) {
+			return OBJECT;
+		} else if (matcher instanceof UnorderedArrayMatcher || matcher instanceof BipartiteArrayMatcher) {
+			return UNORDERED_ARRAY;
+		} else if (matcher instanceof DelegatingMatcher<?> delegatingMatcher) {
+			return of(delegatingMatcher.delegate());
+		} else {
+			return UNKNOWN;
+		}
+	}
+
+	/**
+	 * Whether evaluating a matcher may perform a capture. Only captures within the built-in matchers can be detected; custom
+	 * matchers are assumed not to capture. The built-in composite matchers determine this once, when they are created.
+	 */
+	static boolean mayCapture(JsonMatcher<?> matcher)
+	{
+		if (matcher instanceof CaptureMatcher) {
+			return true;
+		} else if (matcher instanceof ObjectMatcher objectMatcher) {
+			return objectMatcher.mayCapture();
+		} else if (matcher instanceof OrderedArrayMatcher arrayMatcher) {
+			return arrayMatcher.mayCapture();
+		} else if (matcher instanceof UnorderedArrayMatcher arrayMatcher) {
+			return arrayMatcher.mayCapture();
+		} else if (matcher instanceof BipartiteArrayMatcher arrayMatcher) {
+			return arrayMatcher.mayCapture();
+		} else if (matcher instanceof DelegatingMatcher<?> delegatingMatcher) {
+			return mayCapture(delegatingMatcher.delegate());
+		} else {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package org.fierypit.util.test.json;
+
+import javax.json.JsonValue;
+
+/**
+ * Matcher which evaluates another matcher, possibly doing some work around it, and otherwise has the same cost, shape,
+ * captures and mismatches. Code which inspects matcher trees looks through these using {@link #delegate()}, rather than
+ * handling each kind separately.
+ */
+interface DelegatingMatcher<T extends JsonValue>
+extends JsonMatcher<T>
+{
+	/** Get the matcher which this matcher evaluates. */
+	JsonMatcher<T> delegate();
+
+	/** Evaluate within a context, recording any captures. By default, this evaluates the delegate within the context. */
+	default boolean test(JsonValue value, MatchContext context)
+	{
+		return MatchContext.test(delegate(), value, context);
+	}
+}
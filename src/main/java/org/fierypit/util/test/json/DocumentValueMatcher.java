@@ -0,0 +1,41 @@
+package org.fierypit.util.test.json;
+
+import javax.json.JsonValue;
+
+/**
+ * Matcher for a single large object or array, with the same semantics as {@link ValueMatcher}. The {@link StructuralHash}
+ * of the expected value is computed when the matcher is created, so a value which differs anywhere is usually rejected by
+ * comparing its hash, which is itself remembered for large values; only a value with the same hash is compared in full.
+ * Each value found to be equal is remembered with its hash, so testing the same instance again only costs a lookup for as
+ * long as its hash remains in the table. A value tested against several equal documents is only remembered as equal to
+ * the last of them.
+ */
+class DocumentValueMatcher<T extends JsonValue>
+extends ValueMatcher<T>
+{
+	private final long structuralHash;
+
+	/** Create a matcher for a value, given its {@link StructuralHash}. */
+	DocumentValueMatcher(T value, long structuralHash)
+	{
+		super(value);
+		this.structuralHash = structuralHash;
+	}
+
+	@Override
+	public boolean test(JsonValue value)
+	{
+		if (value == value()) {
+			return true;
+		} else if (value == null || value.getValueType() != value().getValueType()) {
+			return false;
+		}
+		if (StructuralHash.knownEqual(value, value())) {
+			return true;
+		} else if (StructuralHash.of(value) != structuralHash || !value().equals(value)) {
+			return false;
+		}
+		StructuralHash.rememberEqual(value, value());
+		return true;
+	}
+}
@@ -0,0 +1,156 @@
+package org.fierypit.util.test.json;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+/**
+ * Finds the first point at which a value fails to match a matcher, for {@link JsonMatcher#explain(JsonValue)}. The built-in
+ * matchers are evaluated again here, one level at a time, so their own evaluation carries no cost for explaining failures.
+ * Nested matchers are evaluated within a {@link MatchContext} which is then discarded, so that explaining a mismatch never
+ * performs any captures.
+ */
+final class Explainer
+{
+	private Explainer() {}
+
+	static Optional<Mismatch> explain(JsonMatcher<?> matcher, JsonValue value)
+	{
+		if (test(matcher, value)) {
+			return Optional.empty();
+		}
+		return Optional.of(explain(matcher, value, ""));
+	}
+
+	/** Explain why a value does not match, given that it does not. */
+	private static Mismatch explain(JsonMatcher<?> matcher, JsonValue value, String pointer)
+	{
+		if (matcher instanceof DelegatingMatcher<?> delegatingMatcher) {
+			return explain(delegatingMatcher.delegate(), value, pointer);
+		} else if (matcher instanceof ObjectMatcher objectMatcher) {
+			return explainObject(objectMatcher, value, pointer);
+		} else if (matcher instanceof OrderedArrayMatcher arrayMatcher) {
+			return explainOrderedArray(arrayMatcher, value, pointer);
+		} else if (matcher instanceof UnorderedArrayMatcher arrayMatcher) {
+			return explainUnorderedArray(arrayMatcher.expected(), arrayMatcher, value, pointer, false);
+		} else if (matcher instanceof BipartiteArrayMatcher arrayMatcher) {
+			return explainUnorderedArray(arrayMatcher.expected(), arrayMatcher, value, pointer, true);
+		} else {
+			return new Mismatch(pointer, matcher, value, "value does not match");
+		}
+	}
+
+	private static Mismatch explainObject(ObjectMatcher matcher, JsonValue value, String pointer)
+	{
+		if (!(value instanceof JsonObject jsonObject)) {
+			return new Mismatch(pointer, matcher, value, "not an object");
+		}
+
+		Map<String, JsonMatcher<?>> expected = matcher.expected();
+		if (matcher.isExact() && jsonObject.size() != expected.size()) {
+			// The size is checked before any member is evaluated, as by the matcher itself. An object of the wrong size is
+			// either missing an expected member, or has an unexpected one.
+			for (Map.Entry<String, JsonMatcher<?>> entry : expected.entrySet()) {
+				if (!jsonObject.containsKey(entry.getKey())) {
+					return new Mismatch(pointer + "/" + escape(entry.getKey()), entry.getValue(), null, "missing member");
+				}
+			}
+			for (Map.Entry<String, JsonValue> member : jsonObject.entrySet()) {
+				if (!expected.containsKey(member.getKey())) {
+					return new Mismatch(pointer + "/" + escape(member.getKey()), null, member.getValue(), "unexpected member");
+				}
+			}
+		}
+
+		// An exact object of the right size with every expected member has no unexpected members.
+		for (Map.Entry<String, JsonMatcher<?>> entry : expected.entrySet()) {
+			String memberPointer = pointer + "/" + escape(entry.getKey());
+			JsonValue memberValue = jsonObject.get(entry.getKey());
+			if (memberValue == null) {
+				return new Mismatch(memberPointer, entry.getValue(), null, "missing member");
+			} else if (!test(entry.getValue(), memberValue)) {
+				return explain(entry.getValue(), memberValue, memberPointer);
+			}
+		}
+		return new Mismatch(pointer, matcher, value, "object does not match");	// Only if a matcher is inconsistent.
+	}
+
+	private static Mismatch explainOrderedArray(OrderedArrayMatcher matcher, JsonValue value, String pointer)
+	{
+		if (!(value instanceof JsonArray jsonArray)) {
+			return new Mismatch(pointer, matcher, value, "not an array");
+		}
+
+		List<JsonMatcher<?>> expected = matcher.expected();
+		for (int i = 0; i < Math.min(expected.size(), jsonArray.size()); i++) {
+			if (!test(expected.get(i), jsonArray.get(i))) {
+				return explain(expected.get(i), jsonArray.get(i), pointer + "/" + i);
+			}
+		}
+		if (jsonArray.size() < expected.size()) {
+			int missing = jsonArray.size();
+			return new Mismatch(pointer + "/" + missing, expected.get(missing), null, "missing element");
+		} else if (jsonArray.size() > expected.size()) {
+			int extra = expected.size();
+			return new Mismatch(pointer + "/" + extra, null, jsonArray.get(extra), "unexpected element");
+		}
+		return new Mismatch(pointer, matcher, value, "array does not match");	// Only if a matcher is inconsistent.
+	}
+
+	/**
+	 * Explain an order-independent array mismatch. The elements are assigned to expectations as by {@link UnorderedArrayMatcher},
+	 * and the first expectation which no remaining element matches is reported. For a {@link BipartiteArrayMatcher}, this is
+	 * only accurate if some expectation matches no element at all; otherwise, the array as a whole is reported.
+	 */
+	private static Mismatch explainUnorderedArray(List<JsonMatcher<?>> expected, JsonMatcher<?> matcher, JsonValue value,
+			String pointer, boolean optimal)
+	{
+		if (!(value instanceof JsonArray jsonArray)) {
+			return new Mismatch(pointer, matcher, value, "not an array");
+		}
+
+		boolean exact = (matcher instanceof UnorderedArrayMatcher arrayMatcher)
+				? arrayMatcher.isExact()
+				: ((BipartiteArrayMatcher) matcher).isExact();
+		if (exact ? jsonArray.size() != expected.size() : jsonArray.size() < expected.size()) {
+			return new Mismatch(pointer, matcher, value,
+					"expected " + (exact ? "" : "at least ") + expected.size() + " elements, found " + jsonArray.size());
+		}
+
+		boolean[] used = new boolean[jsonArray.size()];
+		expectation_loop: for (JsonMatcher<?> expectation : expected) {
+			boolean anyMatch = false;
+			for (int i = 0; i < used.length; i++) {
+				if (test(expectation, jsonArray.get(i))) {
+					anyMatch = true;
+					if (!used[i]) {
+						used[i] = true;
+						continue expectation_loop;
+					}
+				}
+			}
+			if (!anyMatch || !optimal) {
+				return new Mismatch(pointer, expectation, value, anyMatch
+						? "no remaining element matches expectation"
+						: "no element matches expectation");
+			}
+		}
+		return new Mismatch(pointer, matcher, value, "no assignment of elements to expectations");
+	}
+
+	/** Test a value without performing any captures. */
+	private static boolean test(JsonMatcher<?> matcher, JsonValue value)
+	{
+		return MatchContext.test(matcher, value, new MatchContext());
+	}
+
+	/** Escape a member name as a JSON Pointer reference token. */
+	private static String escape(String name)
+	{
+		return name.replace("~", "~0").replace("/", "~1");
+	}
+}
@@ -0,0 +1,56 @@
+package org.fierypit.util.test.json;
+
+import javax.json.JsonValue;
+
+/**
+ * Matcher which records the number of evaluations, the number of matches and the latency of another matcher in the metrics
+ * registered for a name. See {@link JsonMatcher#instrumented(String)}.
+ */
+class InstrumentedMatcher<T extends JsonValue>
+implements DelegatingMatcher<T>
+{
+	private final JsonMatcher<T> matcher;
+	private final MatcherMetrics metrics;
+
+	InstrumentedMatcher(JsonMatcher<T> matcher, MatcherMetrics metrics)
+	{
+		this.matcher = matcher;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public boolean test(JsonValue value)
+	{
+		long start = System.nanoTime();
+		boolean match = matcher.test(value);
+		metrics.record(match, System.nanoTime() - start);
+		return match;
+	}
+
+	/** Evaluate within a context, recording the evaluation in the same way. */
+	@Override
+	public boolean test(JsonValue value, MatchContext context)
+	{
+		long start = System.nanoTime();
+		boolean match = MatchContext.test(matcher, value, context);
+		metrics.record(match, System.nanoTime() - start);
+		return match;
+	}
+
+	@Override
+	public JsonMatcher<T> delegate()
+	{
+		return matcher;
+	}
+
+	MatcherMetrics metrics()
+	{
+		return metrics;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "(instrumented:" + metrics.getName() + ")" + matcher.toString();
+	}
+}
@@ -0,0 +1,81 @@
+package org.fierypit.util.test.json;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pool of canonical matcher instances, used by {@link JsonMatcher#intern(JsonMatcher)}. The pool refers to its matchers only
+ * weakly, so a canonical matcher which is no longer used elsewhere is removed from the pool once it has been garbage collected.
+ * The pool is a concurrent map, so matchers can be built on many threads at once without contending for a lock.
+ */
+final class Interner
+{
+	// Each key maps to itself. A key whose matcher has been collected is only equal to itself, and is removed from the map
+	// when it is next taken from the queue.
+	private static final ConcurrentMap<Key, Key> CANONICAL = new ConcurrentHashMap<>();
+	private static final ReferenceQueue<JsonMatcher<?>> COLLECTED = new ReferenceQueue<>();
+
+	private Interner() {}
+
+	/** Get the canonical instance of a matcher, which becomes canonical itself if there is no equal matcher in the pool. */
+	@SuppressWarnings("unchecked")
+	static <M extends JsonMatcher<?>> M intern(M matcher)
+	{
+		expunge();
+		Key key = new Key(matcher, COLLECTED);
+		while (true) {
+			Key existing = CANONICAL.putIfAbsent(key, key);
+			if (existing == null) {
+				return matcher;
+			}
+			JsonMatcher<?> canonical = existing.get();
+			if (canonical != null) {
+				return (M) canonical;
+			}
+			CANONICAL.remove(existing, existing);	// Collected since it was found to be equal, so replace it.
+		}
+	}
+
+	/** Remove the keys of collected matchers. */
+	private static void expunge()
+	{
+		for (Reference<?> key; (key = COLLECTED.poll()) != null; ) {
+			CANONICAL.remove(key, key);
+		}
+	}
+
+	/** Weak reference to a matcher, which is equal to any other reference to an equal matcher. */
+	private static final class Key
+	extends WeakReference<JsonMatcher<?>>
+	{
+		// The hash code of the matcher, which must remain the same after it has been collected.
+		private final int hash;
+
+		Key(JsonMatcher<?> matcher, ReferenceQueue<JsonMatcher<?>> queue)
+		{
+			super(matcher, queue);
+			this.hash = matcher.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (obj == this) {
+				return true;
+			} else if (obj instanceof Key other && hash == other.hash) {
+				JsonMatcher<?> matcher = get();
+				return (matcher != null && matcher.equals(other.get()));
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+}
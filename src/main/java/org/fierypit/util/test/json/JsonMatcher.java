@@ -1,19 +1,26 @@
 package org.fierypit.util.test.json;
 
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
 import javax.json.JsonString;
+import javax.json.JsonStructure;
 import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
 
 /**
  * Object representing a pattern which can be matched against JSON structures.
@@ -150,6 +157,8 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 
 	/**
 	 * Get a matcher expecting a single JSON value, which must match exactly.
+	 * For a large object or array, a hash of its whole structure is computed when the matcher is created, and the hashes of
+	 * large values tested are remembered, so most values which differ are rejected without comparing them in full.
 	 * @param value the expected value
 	 * @return a {@link JsonMatcher} which will match the exact value
 	 * @exception NullPointerException if {@code value} is {@code null}
@@ -167,11 +176,108 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 			return (JsonMatcher<T>) EMPTY_ARRAY;
 		} else if (value.equals(JsonValue.EMPTY_JSON_OBJECT)) {
 			return (JsonMatcher<T>) EMPTY_OBJECT;
+		} else if (value instanceof JsonNumber jsonNumber) {
+			return (JsonMatcher<T>) intern(new NumberValueMatcher(jsonNumber));
+		} else if (value instanceof JsonStructure) {
+			long[] size = new long[1];
+			long structuralHash = StructuralHash.of(value, size);
+			return intern((size[0] >= StructuralHash.MIN_CACHED_SIZE)
+					? new DocumentValueMatcher<>(value, structuralHash)
+					: new ValueMatcher<>(value));
 		} else {
-			return new ValueMatcher<>(value);
+			return intern(new ValueMatcher<>(value));
 		}
 	}
 
+	/**
+	 * Get a matcher expecting a string which matches a regular expression in full. This is equivalent to
+	 * {@link #regex(Pattern) regex(Pattern.compile(regex))}.
+	 * @param regex the regular expression
+	 * @return a matcher expecting a string {@link JsonValue} matching the expression
+	 * @exception NullPointerException if {@code regex} is {@code null}
+	 * @exception java.util.regex.PatternSyntaxException if {@code regex} is not a valid regular expression
+	 */
+	static JsonMatcher<JsonString> regex(String regex)
+	{
+		return regex(Pattern.compile(regex));
+	}
+
+	/**
+	 * Get a matcher expecting a string which matches a compiled regular expression in full, as by
+	 * {@link java.util.regex.Matcher#matches()}. Any literal text required by the expression (such as a fixed prefix or suffix)
+	 * is found when the matcher is created, and strings without that text are rejected without running the expression. The
+	 * {@link java.util.regex.Matcher} used is kept for each thread, so testing a string does not create one. Two such matchers
+	 * are equal if their expressions and flags are equal.
+	 * @param pattern the compiled regular expression
+	 * @return a matcher expecting a string {@link JsonValue} matching the expression
+	 * @exception NullPointerException if {@code pattern} is {@code null}
+	 */
+	static JsonMatcher<JsonString> regex(Pattern pattern)
+	{
+		return intern(new RegexMatcher(Objects.requireNonNull(pattern)));
+	}
+
+	/**
+	 * Get a matcher expecting an integral number within a range. A number is integral if {@link JsonNumber#isIntegral()} is
+	 * true, so {@code 1.0} and {@code 1e2} are not. The comparison uses {@link JsonNumber#longValueExact()}, so does not
+	 * create a {@link BigDecimal} for numbers parsed or created from {@code int} or {@code long} values.
+	 * @param min the smallest number expected
+	 * @param max the largest number expected
+	 * @return a matcher expecting a numeric {@link JsonValue} which is integral and from {@code min} to {@code max} inclusive
+	 * @exception IllegalArgumentException if {@code min} is greater than {@code max}
+	 */
+	static JsonMatcher<JsonNumber> range(long min, long max)
+	{
+		if (min > max) {
+			throw new IllegalArgumentException("empty range: " + min + ".." + max);
+		}
+		return intern(new NumberMatcher.LongRange(min, max));
+	}
+
+	/**
+	 * Get a matcher expecting a number within a range. The comparison is exact: a number is compared using
+	 * {@link JsonNumber#doubleValue()} where that decides the result, and as a {@link BigDecimal} only where its double value
+	 * equals one of the bounds. Either bound may be infinite, for a range open on that side.
+	 * @param min the smallest number expected
+	 * @param max the largest number expected
+	 * @return a matcher expecting a numeric {@link JsonValue} from {@code min} to {@code max} inclusive
+	 * @exception IllegalArgumentException if either bound is NaN, or {@code min} is greater than {@code max}
+	 */
+	static JsonMatcher<JsonNumber> range(double min, double max)
+	{
+		if (!(min <= max)) {
+			throw new IllegalArgumentException("empty range: " + min + ".." + max);
+		}
+		return intern(new NumberMatcher.DoubleRange(min, max));
+	}
+
+	/**
+	 * Get a matcher expecting any integral number, that is, a number for which {@link JsonNumber#isIntegral()} is true.
+	 * @return a matcher expecting an integral numeric {@link JsonValue}
+	 */
+	static JsonMatcher<JsonNumber> integral()
+	{
+		return NumberMatcher.INTEGRAL;
+	}
+
+	/**
+	 * Get the canonical instance of a matcher. The built-in matchers (other than adaptive and cached matchers, which have
+	 * state of their own) implement {@link Object#equals(Object)} and {@link Object#hashCode()} structurally: two matchers are
+	 * equal if they are of the same kind and mode, and their expectations are equal. This returns the first matcher equal to
+	 * the given one which was passed to this method and is still in use, or the given matcher if there is none, so identical
+	 * templates built separately share a single tree. The matchers returned by {@link #value(JsonValue)} and by the builders
+	 * are always interned, so this is only needed for other matchers. The pool of canonical matchers refers to them weakly,
+	 * so interning never prevents a matcher from being garbage collected.
+	 * @param <T> the type of JSON value matched
+	 * @param matcher the matcher
+	 * @return a matcher equal to {@code matcher}, which is the same instance for all equal matchers
+	 * @exception NullPointerException if {@code matcher} is {@code null}
+	 */
+	static <T extends JsonValue> JsonMatcher<T> intern(JsonMatcher<T> matcher)
+	{
+		return Interner.intern(Objects.requireNonNull(matcher));
+	}
+
 	/**
 	 * Get a matcher for a single value of a variety of types. This factory method is used when adding elements from collections.
 	 * The following types are accepted for {@code value}, and will map to these corresponding JSON values:
@@ -257,6 +363,9 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 			JsonValue.ValueType valueType = value.getValueType();
 			return valueType == JsonValue.ValueType.FALSE || valueType == JsonValue.ValueType.TRUE;
 		}
+		@Override Shape shape() {
+			return Shape.of(JsonValue.ValueType.FALSE, JsonValue.ValueType.TRUE);
+		}
 	};
 
 	/** Flyweight matcher for any JSON object. */
@@ -281,6 +390,9 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 	 * Note that the use of generics to match the types between matcher and consumer relies on the matchers correctly declaring
 	 * their generic type. If a custom matcher declares the wrong type, then a capture using this custom matcher will fail with
 	 * a {@code ClassCastException}.
+	 * When the tree is evaluated by {@link #test(JsonValue)}, the value is passed to the consumer as soon as this matcher
+	 * matches it, even if the tree as a whole does not match. When evaluated by {@link #match(JsonValue)}, it is only passed to
+	 * the consumer once the whole tree has matched.
 	 * @param consumer a consumer of JSON values
 	 */
 	default JsonMatcher<T> capture(Consumer<T> consumer)
@@ -288,6 +400,199 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 		return new CaptureMatcher<>(this, consumer);
 	}
 
+	/**
+	 * Get a new matcher which wraps this one, capturing the values it matches under a name.
+	 * Named captures are only recorded when the tree is evaluated by {@link #match(JsonValue)}, which returns the captured
+	 * values in its {@link MatchResult}; when evaluated by any other method, the new matcher behaves exactly as this one. The
+	 * same name may be used by more than one capture in a tree.
+	 * @param name the name under which to capture values
+	 * @exception NullPointerException if {@code name} is {@code null}
+	 */
+	default JsonMatcher<T> capture(String name)
+	{
+		return new CaptureMatcher<>(this, Objects.requireNonNull(name));
+	}
+
+	/**
+	 * Match a {@link JsonValue} against this matcher, performing captures transactionally.
+	 * Captures made while evaluating the tree are recorded for this call only, and are discarded whenever the part of the tree
+	 * containing them fails to match, for example when an object matcher fails on a later member, or an order-independent array
+	 * matcher tries an expectation against an element it is not finally assigned to. Only if the whole tree matches are the
+	 * recorded values passed to the consumers of {@link #capture(Consumer)} captures, in the order they were made, and
+	 * returned for {@link #capture(String)} captures. A single matcher may therefore be used by any number of threads at once,
+	 * each obtaining its own captures, without any locking. Captures within custom matchers are made as by
+	 * {@link #test(JsonValue)}, since custom matchers are always evaluated by that method.
+	 * @param value the value to match
+	 * @return the result of the match, including any named captures
+	 * @exception NullPointerException if {@code value} is {@code null}
+	 */
+	default MatchResult match(JsonValue value)
+	{
+		return MatchContext.match(this, Objects.requireNonNull(value));
+	}
+
+	/**
+	 * Compile this matcher into a new matcher which behaves identically, but which is specialized for this matcher's exact
+	 * structure. The compiled matcher is generated as a hidden class whose {@code test} method performs all of the checks
+	 * needed by the matcher tree inline, which allows the JIT compiler to optimize it far more effectively than the general
+	 * purpose matchers. This is worthwhile when a matcher is built once and then tested against a large number of values.
+	 * Order-independent array matchers and custom matchers within the tree are called as they would be from the original tree.
+	 * Captures within the tree are performed in the same order and the same circumstances as for the original matcher.
+	 * The tree must not be modified after compilation; since all of the built-in matchers are immutable, this only affects
+	 * custom matchers. If this matcher cannot be compiled, or would not benefit from compilation, it is returned unchanged.
+	 * @return a compiled matcher equivalent to this one, or this matcher
+	 */
+	default JsonMatcher<T> compile()
+	{
+		return MatcherCompiler.compile(this);
+	}
+
+	/**
+	 * Explain why a {@link JsonValue} does not match this matcher, by finding the first point at which it fails to match.
+	 * The built-in matchers are evaluated again, one level at a time, following the first failing member or element down the
+	 * tree, so explaining a mismatch costs roughly as much again as testing the value, but {@link #test(JsonValue)} itself is
+	 * unaffected. Object members are examined in the order in which they are evaluated, so the mismatch reported is the first
+	 * one that causes {@code test} to fail. For an order-independent array matcher, the elements are assigned to expectations
+	 * as by {@link ArrayBuilder#containsIgnoreOrder()}, and the first expectation which no remaining element matches is
+	 * reported along with the whole array. Custom matchers are reported as a whole. Captures are not performed, except
+	 * within custom matchers.
+	 * @param value the value to explain
+	 * @return a description of the first mismatch, or an empty {@link Optional} if the value matches
+	 * @exception NullPointerException if {@code value} is {@code null}
+	 */
+	default Optional<Mismatch> explain(JsonValue value)
+	{
+		return Explainer.explain(this, Objects.requireNonNull(value));
+	}
+
+	/**
+	 * Get a new matcher which wraps this one, remembering its result for each {@link JsonObject} and {@link JsonArray}
+	 * instance it is tested against. This is worthwhile when the same instances are tested repeatedly, for example when
+	 * documents are assembled from shared fragments. Values are compared by identity, not by equality, so equal values which
+	 * are different instances are evaluated separately, and the cache only refers to values weakly, so does not prevent them
+	 * from being garbage collected. The number of results held is bounded by the policy. Other values are always evaluated,
+	 * since they are as cheap to evaluate as to look up. This matcher must be immutable (as all of the built-in matchers are),
+	 * and the values tested must not be modified while they are cached. If this matcher contains captures, the cache is not
+	 * used, so that the captures are always performed.
+	 * @param policy the cache policy
+	 * @return a matcher caching this one's results
+	 * @exception NullPointerException if {@code policy} is {@code null}
+	 */
+	default CachingMatcher<T> cached(CachePolicy policy)
+	{
+		return new CachedMatcher<>(this, Objects.requireNonNull(policy));
+	}
+
+	/**
+	 * Get a new matcher which wraps this one, recording metrics of its evaluations under a name: the number of values tested,
+	 * the number which matched, and a histogram of the time taken to test them. The metrics are exported as an MBean on the
+	 * platform MBean server, and can also be obtained from {@link MatcherRegistry#metrics(String)}; see
+	 * {@link MatcherMetricsMBean}. All matchers instrumented with the same name share the same metrics. Recording uses
+	 * {@link java.util.concurrent.atomic.LongAdder}s, so adds little cost even when many threads test the same matcher, and
+	 * matchers which are not instrumented are unaffected. Only evaluations of the new matcher itself are recorded, so to find
+	 * the hot or slow parts of a tree, instrument each part of interest separately.
+	 * @param name the name under which to record metrics
+	 * @return a matcher recording metrics of this one's evaluations
+	 * @exception NullPointerException if {@code name} is {@code null}
+	 * @exception IllegalStateException if the metrics cannot be registered with the platform MBean server, including if
+	 *            another MBean (such as one registered by a copy of this library in another class loader) already has their
+	 *            name
+	 */
+	default JsonMatcher<T> instrumented(String name)
+	{
+		return new InstrumentedMatcher<>(this, MatcherRegistry.register(Objects.requireNonNull(name)));
+	}
+
+	/**
+	 * Get a new matcher which wraps this one, abandoning any evaluation which exceeds a budget by throwing
+	 * {@link MatchBudgetExceeded}. The budget is charged for each invocation of an expectation of an order-independent array
+	 * matcher against an array element, so bounds the worst case of those matchers (which is O(N<sup>2</sup>) invocations
+	 * for an array of N elements) when testing untrusted values. Each evaluation has a budget of its own, and the evaluations
+	 * of a budgeted matcher nested within this one are charged to both budgets. Invocations performed on other threads by
+	 * {@link ArrayBuilder#parallelThreshold(int) parallel} array matchers are charged to the budget of the evaluation too.
+	 * @param budget the budget for each evaluation
+	 * @return a matcher limiting the work done by this one
+	 * @exception NullPointerException if {@code budget} is {@code null}
+	 */
+	default JsonMatcher<T> budgeted(MatchBudget budget)
+	{
+		return new BudgetedMatcher<>(this, Objects.requireNonNull(budget));
+	}
+
+	/**
+	 * Test whether the next value from a JSON parser matches this matcher, without building the value.
+	 * The built-in object matchers and ordered array matchers are evaluated directly from the parser events, skipping any
+	 * members ignored by a {@code contains} matcher with {@link JsonParser#skipObject()} or {@link JsonParser#skipArray()}.
+	 * Matching stops as soon as the result is known, so an object which does not match is usually only partly read. Any
+	 * other matchers within the tree (including order-independent array matchers, captures and custom matchers) are tested
+	 * against a value built from the parser, so only the parts of the input they need are built.
+	 * The members of an object are tested in the order they appear in the input, so captures within object matchers are
+	 * performed in that order. If a member name appears more than once in an object, every occurrence must match.
+	 * After a match, the parser is positioned at the last event of the value; otherwise, it is left at an unspecified event
+	 * within the value, and should not be used further.
+	 * @param parser a parser positioned immediately before the value to be tested
+	 * @return {@code true} if the matcher matches the value, or {@code false} otherwise
+	 * @exception javax.json.stream.JsonParsingException if the input read is not valid JSON
+	 * @exception java.util.NoSuchElementException if there is no further value available from the parser
+	 * @exception NullPointerException if {@code parser} is {@code null}
+	 */
+	default boolean testStreaming(JsonParser parser)
+	{
+		return StreamingMatcher.test(this, parser);
+	}
+
+	/**
+	 * Test whether the JSON value read from a {@link Reader} matches this matcher, without building the value.
+	 * This behaves as {@link #testStreaming(JsonParser)}, using a parser created by {@link Json#createParser(Reader)}. The
+	 * reader is closed before returning. Since matching stops as soon as the result is known, any input after that point
+	 * (including any syntax errors) is ignored.
+	 * @param reader the reader from which to read the value
+	 * @return {@code true} if the matcher matches the value, or {@code false} otherwise
+	 * @exception javax.json.stream.JsonParsingException if the input read is not valid JSON
+	 * @exception javax.json.JsonException if an I/O error occurs
+	 * @exception java.util.NoSuchElementException if the input is empty
+	 * @exception NullPointerException if {@code reader} is {@code null}
+	 */
+	default boolean testStreaming(Reader reader)
+	{
+		try (JsonParser parser = Json.createParser(reader)) {
+			return testStreaming(parser);
+		}
+	}
+
+	/**
+	 * Test whether the UTF-8 encoded JSON value in a buffer matches this matcher, without decoding it.
+	 * The built-in object matchers and ordered array matchers are evaluated by reading the bytes directly: member names and
+	 * string literals are compared with the input as pre-encoded UTF-8 byte sequences, integer literals are compared without
+	 * allocating, and members and elements which are not needed are skipped by scanning for their end. Any other matchers
+	 * within the tree (including order-independent array matchers, captures and custom matchers) are tested against a value
+	 * read from the bytes that it occupies, so only the parts of the input they need are decoded.
+	 * As with {@link #testStreaming(JsonParser)}, matching stops as soon as the result is known, object members are tested in
+	 * the order they appear in the input, and any input after the value is ignored. Syntax errors within members or elements
+	 * that are skipped may not be detected.
+	 * @param buffer the buffer whose remaining bytes contain the value; its position and limit are not changed
+	 * @return {@code true} if the matcher matches the value, or {@code false} otherwise
+	 * @exception javax.json.stream.JsonParsingException if the input read is not valid JSON
+	 * @exception NullPointerException if {@code buffer} is {@code null}
+	 */
+	default boolean testUtf8(ByteBuffer buffer)
+	{
+		return Utf8Matcher.test(this, buffer);
+	}
+
+	/**
+	 * Test whether the UTF-8 encoded JSON value in a byte array matches this matcher, without decoding it.
+	 * This behaves as {@link #testUtf8(ByteBuffer)}.
+	 * @param bytes the bytes containing the value
+	 * @return {@code true} if the matcher matches the value, or {@code false} otherwise
+	 * @exception javax.json.stream.JsonParsingException if the input read is not valid JSON
+	 * @exception NullPointerException if {@code bytes} is {@code null}
+	 */
+	default boolean testUtf8(byte[] bytes)
+	{
+		return Utf8Matcher.test(this, ByteBuffer.wrap(bytes));
+	}
+
 	/**
 	 * Interface to a builder, constructing a matcher to match {@link JsonObject} values.
 	 * Each of the various {@code add} calls in this builder mutate the state of this builder by adding an expected member to the
@@ -300,6 +605,10 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 	 * Matchers created with {@link #exact()} require all of the expected members to be present, and no others; whereas matchers
 	 * created with {@link #contains()} require all of the expected members to be present, but will permit (and ignore) any
 	 * additional members with different names.
+	 * The built matchers test the cheapest expectations first: fixed scalar values, then type checks, then nested arrays and
+	 * objects, and finally order-independent arrays and custom matchers. A non-matching object is therefore usually rejected
+	 * without evaluating any expensive nested matchers. Expected members containing captures are always tested in the order in
+	 * which they were first added to the builder, relative to each other.
 	 */
 	interface ObjectBuilder
 	{
@@ -429,6 +738,10 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 		/**
 		 * Duplicate this builder, returning a new builder with the same set of expectations. The original and duplicate are
 		 * entirely independent: changes made to one will not affect the other.
+		 * The expectations are shared by the original and duplicate, and by any matchers built from either, until one of the
+		 * builders is next modified, so duplicating a builder takes constant time. The first modification after a duplicate or a
+		 * build copies the expectations, however, which takes time proportional to their number, as does building a matcher,
+		 * which indexes them.
 		 * @return a new builder initially containing the current set of expectations from this builder
 		 */
 		ObjectBuilder duplicate();
@@ -448,6 +761,92 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 		 * @return a matcher that matches objects containing at least the members in this builder's current state
 		 */
 		JsonMatcher<JsonObject> contains();
+
+		/**
+		 * Build a matcher which matches the same objects as one built by {@link #exact()}, but which adapts the order in which it
+		 * tests the expected members to the values it is tested against. See {@link AdaptiveMatcher} for details.
+		 * The matcher returned from this method will not reflect any changes to the builder made after this call.
+		 * @return an adaptive matcher that matches objects exactly matching this builder's current state
+		 */
+		AdaptiveMatcher<JsonObject> exactAdaptive();
+
+		/**
+		 * Build a matcher which matches the same objects as one built by {@link #contains()}, but which adapts the order in
+		 * which it tests the expected members to the values it is tested against. See {@link AdaptiveMatcher} for details.
+		 * The matcher returned from this method will not reflect any changes to the builder made after this call.
+		 * @return an adaptive matcher that matches objects containing at least the members in this builder's current state
+		 */
+		AdaptiveMatcher<JsonObject> containsAdaptive();
+	}
+
+	/**
+	 * Matcher which learns the most efficient order in which to test its expectations from the values it is tested against.
+	 * <p>
+	 * Which expectation is most likely to reject a value usually depends on the data: one member may reject most values for
+	 * one matcher, and another member for another. An adaptive matcher counts, for each expectation, how often it is the one
+	 * that rejects a value. Every few thousand tests (chosen at random, so that threads need not share a counter) it reorders
+	 * its expectations so that those with the highest failure rate relative to their cost are tested first. The counters are
+	 * {@link java.util.concurrent.atomic.LongAdder}s, so counting adds little cost even when many threads test the same matcher.
+	 * <p>
+	 * Once a good order has been learned, it can be fixed with {@link #freeze()}, after which the matcher no longer counts
+	 * failures and behaves like an ordinary matcher using the learned order.
+	 * <p>
+	 * Reordering never changes which values are matched. Expectations containing captures are always tested after all of the
+	 * others, in the order in which they were added to the builder, so that captures are performed in a predictable order and
+	 * only once every other expectation has been met. Adaptive matchers are not inlined by {@link #compile()}.
+	 * @param <T> the type of JSON value matched
+	 */
+	interface AdaptiveMatcher<T extends JsonValue> extends JsonMatcher<T>
+	{
+		/**
+		 * Get the names of the expected members, in the order in which they are currently tested.
+		 * @return the current evaluation order
+		 */
+		List<String> evaluationOrder();
+
+		/**
+		 * Stop adapting, keeping the current evaluation order from now on. Calling this more than once has no further effect.
+		 * @return this matcher, for chaining
+		 */
+		AdaptiveMatcher<T> freeze();
+
+		/**
+		 * Determine whether this matcher has been frozen by {@link #freeze()}.
+		 * @return {@code true} if the evaluation order is fixed, or {@code false} if it is still adapting
+		 */
+		boolean isFrozen();
+	}
+
+	/**
+	 * Matcher which remembers the results of another matcher, created by {@link JsonMatcher#cached(CachePolicy)}. It counts
+	 * the tests answered from its cache, and those which had to be evaluated, so that the effectiveness of the cache can be
+	 * monitored. The counters only include tests of objects and arrays, since other values are never cached.
+	 * @param <T> the type of JSON value matched
+	 */
+	interface CachingMatcher<T extends JsonValue> extends JsonMatcher<T>
+	{
+		/**
+		 * Get the number of tests answered from the cache.
+		 * @return the number of cache hits
+		 */
+		long hits();
+
+		/**
+		 * Get the number of tests of objects and arrays which were not answered from the cache.
+		 * @return the number of cache misses
+		 */
+		long misses();
+
+		/**
+		 * Discard all of the cached results, and reset the counters to zero.
+		 */
+		void clear();
+
+		/**
+		 * Get the policy of the cache.
+		 * @return the cache policy
+		 */
+		CachePolicy policy();
 	}
 
 	// TODO Fix javadoc for ArrayBuilder; note that order-ignoring matchers are O(N^2).
@@ -457,9 +856,10 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 	 * expected member to the end of the array to be matched (or by replacing an existing expectation, in the case of
 	 * {@code set}). All such expected members must be present in a {@link JsonArray} for it to be matched.
 	 * To actually perform matches, a matcher must be built from this builder using one of the {@link #exact()},
-	 * {@link #exactIgnoreOrder()} or {@link #containsIgnoreOrder()} methods. These methods each construct a matcher reflecting
-	 * the expectations in the builder at the time of the call. After such a call, the builder object remains valid and can have
-	 * its expectations further modified, but these changes will not be reflected in any matchers already built.
+	 * {@link #exactIgnoreOrder()} or {@link #containsIgnoreOrder()} methods (or the optimal variants of the latter two,
+	 * {@link #exactIgnoreOrderOptimal()} and {@link #containsIgnoreOrderOptimal()}). These methods each construct a matcher
+	 * reflecting the expectations in the builder at the time of the call. After such a call, the builder object remains valid and
+	 * can have its expectations further modified, but these changes will not be reflected in any matchers already built.
 	 * The {@link #exact()}, {@link #exactIgnoreOrder()} and {@link #containsIgnoreOrder()} all create matchers, but the returned
 	 * matchers differ in their behaviour. Matchers created with {@link #exact()} will only match a JSON array that contains
 	 * exactly the expected values in the expected order, just like {@link JsonArray#equals(Object)} would. On the other hand,
@@ -468,7 +868,8 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 	 * present, and no others; a matcher created by {@link #containsIgnoreOrder()} requires all expected values (repeated as
 	 * indicated) to be present, but permits others to be present as long as all expected values are. Note, however, that these
 	 * order-ignoring matchers will take time proportional to the product of the number of expectations and the size of the array
-	 * being matched - therefore O(N<sup>2</sup>) if both have the same length.
+	 * being matched - therefore O(N<sup>2</sup>) if both have the same length. Evaluations of these matchers which take longer
+	 * than a threshold are recorded as a {@link SlowMatchEvent} by the JDK Flight Recorder, if a recording is running.
 	 */
 	interface ArrayBuilder
 	{
@@ -655,9 +1056,30 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 		 */
 		ArrayBuilder reset();
 
+		/**
+		 * Set the array size at or above which matchers built by this builder check the elements of an array in parallel.
+		 * A matcher built by {@link #exact()} then checks the elements in chunks, in parallel, and one built by
+		 * {@link #exactIgnoreOrder()} or {@link #containsIgnoreOrder()} searches for the element matching each expectation
+		 * in chunks, in parallel. The chunks are checked by {@link java.util.concurrent.RecursiveTask}s in the
+		 * {@link java.util.concurrent.ForkJoinPool} of the calling thread, or the common pool, and no further elements are
+		 * checked once the result is known. The elements matched are the same as when checked sequentially, and captures
+		 * within the expectations are performed in the same order, but only for elements which are finally matched: for an
+		 * {@link #exact()} matcher, only if every element matches. The optimal matchers are not affected. Since splitting the
+		 * work has a cost of its own, this is only worthwhile for arrays of many thousands of elements, or with expensive
+		 * expectations. By default, elements are always checked sequentially.
+		 * @param size the minimum array size to check in parallel, or {@link Integer#MAX_VALUE} to always check sequentially
+		 * @return this builder
+		 * @exception IllegalArgumentException if {@code size} is not positive
+		 */
+		ArrayBuilder parallelThreshold(int size);
+
 		/**
 		 * Duplicate this builder, returning a new builder with the same set of expectations. The original and duplicate are
 		 * entirely independent: changes made to one will not affect the other.
+		 * The expectations are shared by the original and duplicate, and by any matchers built from either, until one of the
+		 * builders is next modified, so duplicating a builder takes constant time. The first modification after a duplicate or a
+		 * build copies the expectations, however, which takes time proportional to their number, as does building a matcher,
+		 * which indexes them.
 		 * @return a new builder initially containing the current set of expectations from this builder
 		 */
 		ArrayBuilder duplicate();
@@ -682,7 +1104,8 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 		 * If the order of these expectations were reversed, then the ANY_STRING would consume the first string in the array,
 		 * even if that is the only instance of the string {@code "a"}. This matching algorithm runs in time proportional to
 		 * the product of the number of expectations and the length of the array - that is, O(N<sup>2</sup>) if both are the same
-		 * length.
+		 * length. However, expectations which are fixed strings, numbers, booleans or nulls are found using a hash lookup (with
+		 * exactly the same result), so only the other expectations contribute to this product.
 		 * @return a matcher that matches objects exactly matching this builder's current state, ignoring order
 		 */
 		JsonMatcher<JsonArray> exactIgnoreOrder();	// ignore the ordering of elements in both template and value
@@ -699,10 +1122,40 @@ public interface JsonMatcher<T extends JsonValue> extends Predicate<JsonValue>
 		 * If the order of these expectations were reversed, then the ANY_STRING would consume the first string in the array,
 		 * even if that is the only instance of the string {@code "a"}. This matching algorithm runs in time proportional to
 		 * the product of the number of expectations and the length of the array - that is, O(N<sup>2</sup>) if both are the same
-		 * length.
+		 * length. However, expectations which are fixed strings, numbers, booleans or nulls are found using a hash lookup (with
+		 * exactly the same result), so only the other expectations contribute to this product.
 		 * @return a matcher that matches objects matching all of the expectations in this builder's current state, ignoring
 		 *         order, and ignoring any extra elements
 		 */
 		JsonMatcher<JsonArray> containsIgnoreOrder();
+
+		/**
+		 * Build a matcher which matches arrays containing exactly the expected members from the current state of this builder,
+		 * with no additional members, but allowing any order for the elements in the array.
+		 * The matcher returned from this method will not reflect any changes to the builder made after this call.
+		 * Unlike {@link #exactIgnoreOrder()}, the returned matcher does not assign elements to expectations on a first-come,
+		 * first-served basis: it will match whenever there is any way of assigning a distinct element to each expectation. For
+		 * example, if {@code builder.add(ANY_NUMBER).add(1)} were called, the resulting matcher would match {@code [1,2]}, whereas
+		 * the matcher from {@link #exactIgnoreOrder()} would not (as ANY_NUMBER would consume the 1). This is done by testing
+		 * every expectation against every element, then finding a maximum bipartite matching between expectations and elements
+		 * using the Hopcroft-Karp algorithm. Testing takes time proportional to the product of the number of expectations and the
+		 * length of the array, and the matching takes O(E&middot;&radic;V) time, where E is the number of (expectation, element)
+		 * pairs that match and V the total number of expectations and elements. Since every expectation is tested against every
+		 * element, any captures within the expectations may be performed for elements other than those finally assigned.
+		 * @return a matcher that matches arrays exactly matching this builder's current state, ignoring order
+		 */
+		JsonMatcher<JsonArray> exactIgnoreOrderOptimal();
+
+		/**
+		 * Build a matcher which matches arrays containing all of the expected members from the current state of this builder,
+		 * allowing any order for the elements in the array, and allowing additional elements in the array.
+		 * The matcher returned from this method will not reflect any changes to the builder made after this call.
+		 * Unlike {@link #containsIgnoreOrder()}, the returned matcher will match whenever there is any way of assigning a
+		 * distinct element to each expectation, regardless of the order in which the expectations were added. See
+		 * {@link #exactIgnoreOrderOptimal()} for details of the matching algorithm.
+		 * @return a matcher that matches arrays matching all of the expectations in this builder's current state, ignoring
+		 *         order, and ignoring any extra elements
+		 */
+		JsonMatcher<JsonArray> containsIgnoreOrderOptimal();
 	}
 }
@@ -0,0 +1,125 @@
+package org.fierypit.util.test.json;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.JsonArray;
+import javax.json.JsonValue;
+
+/**
+ * Helpers for finding array elements equal to fixed scalar values by hash lookup, rather than by testing each element in turn.
+ * Only scalar values (strings, numbers, booleans and null) are looked up in this way, since hashing large structures in the
+ * array being matched could easily cost more than it saves.
+ */
+final class LiteralLookup
+{
+	private static final int HEADER = 2;
+
+	private LiteralLookup() {}
+
+	static boolean isScalar(JsonValue value)
+	{
+		return switch (value.getValueType()) {
+			case OBJECT, ARRAY -> false;
+			default -> true;
+		};
+	}
+
+	/** Get the fixed scalar value expected by a matcher, or {@code null} if it does not expect a fixed scalar. */
+	static JsonValue literalValue(JsonMatcher<?> matcher)
+	{
+		if (matcher instanceof ValueMatcher<?> valueMatcher && isScalar(valueMatcher.value())) {
+			return valueMatcher.value();
+		}
+		return null;
+	}
+
+	/**
+	 * Give each distinct fixed scalar value expected by a list of matchers an id, storing the id of the value expected by
+	 * each matcher (or -1 if it does not expect a fixed scalar) in {@code ids}, and returning the map from values to ids.
+	 */
+	static Map<JsonValue, Integer> assignIds(List<JsonMatcher<?>> expected, int[] ids)
+	{
+		Map<JsonValue, Integer> literalIds = new HashMap<>();
+		for (int i = 0; i < ids.length; i++) {
+			JsonValue literal = literalValue(expected.get(i));
+			ids[i] = (literal != null) ? literalIds.computeIfAbsent(literal, key -> literalIds.size()) : -1;
+		}
+		return Map.copyOf(literalIds);
+	}
+
+	/**
+	 * Build a lookup from each literal id to the ascending indices of the elements in an array with that value, in an array
+	 * taken from a scratch slot. The lookup is read with {@link #size(int[], int)}, {@link #get(int[], int, int)} and
+	 * {@link #nextUnused(int[], int, long[])}.
+	 */
+	static int[] index(JsonArray jsonArray, Map<JsonValue, Integer> literalIds, Scratch scratch, int slot)
+	{
+		// Layout: literal count, element count, then start offsets (one extra, for the end), heads, element ids and positions.
+		int literalCount = literalIds.size();
+		int elementCount = jsonArray.size();
+		int offsets = HEADER;
+		int heads = offsets + literalCount + 1;
+		int elementIds = heads + literalCount;
+		int positions = elementIds + elementCount;
+		int[] index = scratch.ints(slot, positions + elementCount);
+		index[0] = literalCount;
+		index[1] = elementCount;
+		Arrays.fill(index, offsets, elementIds, 0);
+
+		// Count the elements with each value, then place their indices in order, as in a counting sort.
+		for (int i = 0; i < elementCount; i++) {
+			JsonValue element = jsonArray.get(i);
+			Integer id = isScalar(element) ? literalIds.get(element) : null;
+			index[elementIds + i] = (id != null) ? id : -1;
+			if (id != null) {
+				index[offsets + id + 1]++;
+			}
+		}
+		for (int id = 0; id < literalCount; id++) {
+			index[offsets + id + 1] += index[offsets + id];
+			index[heads + id] = index[offsets + id];
+		}
+		for (int i = 0; i < elementCount; i++) {
+			int id = index[elementIds + i];
+			if (id >= 0) {
+				index[positions + index[heads + id]++] = i;
+			}
+		}
+		System.arraycopy(index, offsets, index, heads, literalCount);
+		return index;
+	}
+
+	/** Get the number of elements with a literal value. */
+	static int size(int[] index, int id)
+	{
+		return index[HEADER + id + 1] - index[HEADER + id];
+	}
+
+	/** Get the {@code i}th index of the elements with a literal value. */
+	static int get(int[] index, int id, int i)
+	{
+		return index[positions(index) + index[HEADER + id] + i];
+	}
+
+	/** Get the first index of an element with a literal value which is not already consumed, or -1 if there are none. */
+	static int nextUnused(int[] index, int id, long[] used)
+	{
+		int heads = HEADER + index[0] + 1;
+		int end = index[HEADER + id + 1];
+		int positions = positions(index);
+		int head = index[heads + id];
+		while (head < end && Scratch.get(used, index[positions + head])) {
+			head++;
+		}
+		index[heads + id] = head;
+		return (head < end) ? index[positions + head] : -1;
+	}
+
+	private static int positions(int[] index)
+	{
+		return HEADER + 2 * index[0] + 1 + index[1];
+	}
+}
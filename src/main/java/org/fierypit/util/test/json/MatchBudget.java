@@ -0,0 +1,110 @@
+package org.fierypit.util.test.json;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Limits on the work done by each evaluation of a matcher created by {@link JsonMatcher#budgeted(MatchBudget)}. The work is
+ * measured in invocations of the expectations of order-independent array matchers against array elements, since these are
+ * the only built-in matchers whose cost can grow faster than the size of the value tested; the time limit is checked at the
+ * same points. A budget is immutable, so may be shared by any number of matchers.
+ */
+public final class MatchBudget
+{
+	private final long maximumInvocations;
+	private final Duration timeLimit;
+
+	private MatchBudget(long maximumInvocations, Duration timeLimit)
+	{
+		this.maximumInvocations = maximumInvocations;
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Get a budget limiting the number of invocations of expectations against elements in each evaluation.
+	 * @param maximumInvocations the maximum number of invocations
+	 * @return the budget
+	 * @exception IllegalArgumentException if {@code maximumInvocations} is not positive
+	 */
+	public static MatchBudget maximumInvocations(long maximumInvocations)
+	{
+		return new MatchBudget(checkInvocations(maximumInvocations), null);
+	}
+
+	/**
+	 * Get a budget limiting the time taken by each evaluation.
+	 * @param timeLimit the maximum time
+	 * @return the budget
+	 * @exception IllegalArgumentException if {@code timeLimit} is not positive
+	 * @exception NullPointerException if {@code timeLimit} is {@code null}
+	 */
+	public static MatchBudget timeLimit(Duration timeLimit)
+	{
+		return new MatchBudget(Long.MAX_VALUE, checkTimeLimit(timeLimit));
+	}
+
+	/**
+	 * Get a budget with the same time limit as this one (if any), limiting the number of invocations in each evaluation.
+	 * @param maximumInvocations the maximum number of invocations
+	 * @return the budget
+	 * @exception IllegalArgumentException if {@code maximumInvocations} is not positive
+	 */
+	public MatchBudget withMaximumInvocations(long maximumInvocations)
+	{
+		return new MatchBudget(checkInvocations(maximumInvocations), timeLimit);
+	}
+
+	/**
+	 * Get a budget with the same maximum number of invocations as this one, limiting the time taken by each evaluation.
+	 * @param timeLimit the maximum time
+	 * @return the budget
+	 * @exception IllegalArgumentException if {@code timeLimit} is not positive
+	 * @exception NullPointerException if {@code timeLimit} is {@code null}
+	 */
+	public MatchBudget withTimeLimit(Duration timeLimit)
+	{
+		return new MatchBudget(maximumInvocations, checkTimeLimit(timeLimit));
+	}
+
+	/**
+	 * Get the maximum number of invocations of expectations against elements in each evaluation.
+	 * @return the maximum number of invocations, or {@link Long#MAX_VALUE} if the number is not limited
+	 */
+	public long maximumInvocations()
+	{
+		return maximumInvocations;
+	}
+
+	/**
+	 * Get the maximum time taken by each evaluation.
+	 * @return the time limit, or an empty {@link Optional} if the time is not limited
+	 */
+	public Optional<Duration> timeLimit()
+	{
+		return Optional.ofNullable(timeLimit);
+	}
+
+	private static long checkInvocations(long maximumInvocations)
+	{
+		if (maximumInvocations <= 0) {
+			throw new IllegalArgumentException("maximum invocations not positive: " + maximumInvocations);
+		}
+		return maximumInvocations;
+	}
+
+	private static Duration checkTimeLimit(Duration timeLimit)
+	{
+		if (Objects.requireNonNull(timeLimit).isNegative() || timeLimit.isZero()) {
+			throw new IllegalArgumentException("time limit not positive: " + timeLimit);
+		}
+		return timeLimit;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "(maximumInvocations:" + ((maximumInvocations == Long.MAX_VALUE) ? "unlimited" : maximumInvocations)
+				+ ",timeLimit:" + ((timeLimit == null) ? "unlimited" : timeLimit) + ")";
+	}
+}
@@ -0,0 +1,39 @@
+package org.fierypit.util.test.json;
+
+/**
+ * Thrown by a matcher created by {@link JsonMatcher#budgeted(MatchBudget)} when an evaluation exceeds its budget. This is a
+ * distinct outcome from a mismatch: it means that the value was not fully tested, so it is not known whether it matches.
+ */
+public final class MatchBudgetExceeded
+extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	private final transient MatchBudget budget;
+	private final long invocations;
+
+	MatchBudgetExceeded(MatchBudget budget, long invocations, String reason)
+	{
+		super(reason + " after " + invocations + " invocations, with budget " + budget);
+		this.budget = budget;
+		this.invocations = invocations;
+	}
+
+	/**
+	 * Get the budget which was exceeded.
+	 * @return the budget, or {@code null} if this exception has been deserialized
+	 */
+	public MatchBudget budget()
+	{
+		return budget;
+	}
+
+	/**
+	 * Get the number of invocations of expectations against elements performed before the evaluation was abandoned.
+	 * @return the number of invocations
+	 */
+	public long invocations()
+	{
+		return invocations;
+	}
+}
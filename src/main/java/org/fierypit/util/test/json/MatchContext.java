@@ -0,0 +1,110 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.JsonValue;
+
+/**
+ * State of a single evaluation by {@link JsonMatcher#match(JsonValue)}: a log of the captures made so far. Captures are only
+ * recorded in the log while matching; the log is only acted upon (passing captured values to consumers, and collecting named
+ * captures into the {@link MatchResult}) once the whole tree has matched.
+ * <p>
+ * Matchers which can contain captures evaluate their children through {@link #test(JsonMatcher, JsonValue, MatchContext)},
+ * and must leave the log as they found it whenever they return {@code false}, by taking a {@link #mark()} before evaluating
+ * their children and calling {@link #rollback(int)} if they fail. Matchers which cannot capture are simply evaluated with
+ * {@link JsonMatcher#test(JsonValue)}, so trees without captures are evaluated at the same cost as by {@code test}.
+ */
+final class MatchContext
+{
+	private CaptureMatcher<?>[] captures = new CaptureMatcher<?>[8];
+	private JsonValue[] values = new JsonValue[8];
+	private int size;
+
+	/** Evaluate a whole tree, returning the result with its captures committed if it matched. */
+	static MatchResult match(JsonMatcher<?> matcher, JsonValue value)
+	{
+		MatchContext context = new MatchContext();
+		if (!test(matcher, value, context)) {
+			return MatchResult.NO_MATCH;
+		}
+		return context.commit();
+	}
+
+	/** Evaluate a matcher within a context, recording any captures it makes. */
+	static boolean test(JsonMatcher<?> matcher, JsonValue value, MatchContext context)
+	{
+		if (matcher instanceof DelegatingMatcher<?> delegatingMatcher && Cost.mayCapture(delegatingMatcher)) {
+			return delegatingMatcher.test(value, context);
+		} else if (matcher instanceof ObjectMatcher objectMatcher && objectMatcher.mayCapture()) {
+			return objectMatcher.test(value, context);
+		} else if (matcher instanceof OrderedArrayMatcher arrayMatcher && arrayMatcher.mayCapture()) {
+			return arrayMatcher.test(value, context);
+		} else if (matcher instanceof UnorderedArrayMatcher arrayMatcher && arrayMatcher.mayCapture()) {
+			return arrayMatcher.test(value, context);
+		} else if (matcher instanceof BipartiteArrayMatcher arrayMatcher && arrayMatcher.mayCapture()) {
+			return arrayMatcher.test(value, context);
+		} else {
+			return matcher.test(value);
+		}
+	}
+
+	/** Record a capture. */
+	void capture(CaptureMatcher<?> capture, JsonValue value)
+	{
+		if (size == captures.length) {
+			captures = Arrays.copyOf(captures, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		captures[size] = capture;
+		values[size] = value;
+		size++;
+	}
+
+	/** Get a mark, to which the log can be rolled back. */
+	int mark()
+	{
+		return size;
+	}
+
+	/** Discard all captures recorded since a mark was taken. */
+	void rollback(int mark)
+	{
+		Arrays.fill(values, mark, size, null);
+		size = mark;
+	}
+
+	/** Append the captures recorded in another context, as if they had been made in this one. */
+	void append(MatchContext other)
+	{
+		for (int i = 0; i < other.size; i++) {
+			capture(other.captures[i], other.values[i]);
+		}
+	}
+
+	/** Pass the values recorded for captures with consumers to their consumers, in the order they were made. */
+	void perform()
+	{
+		for (int i = 0; i < size; i++) {
+			if (captures[i].name() == null) {
+				captures[i].accept(values[i]);
+			}
+		}
+	}
+
+	/** Act upon the captures recorded, in the order they were made. */
+	private MatchResult commit()
+	{
+		perform();
+		Map<String, List<JsonValue>> named = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			if (captures[i].name() != null) {
+				named.computeIfAbsent(captures[i].name(), name -> new ArrayList<>()).add(values[i]);
+			}
+		}
+		return new MatchResult(true, named);
+	}
+}
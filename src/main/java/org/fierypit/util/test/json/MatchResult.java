@@ -0,0 +1,63 @@
+package org.fierypit.util.test.json;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.json.JsonValue;
+
+/**
+ * The result of matching a value with {@link JsonMatcher#match(JsonValue)}: whether the value matched, and if so, the values
+ * captured by named captures created with {@link JsonMatcher#capture(String)}. A result is immutable.
+ */
+public final class MatchResult
+{
+	static final MatchResult NO_MATCH = new MatchResult(false, Map.of());
+
+	private final boolean matched;
+	private final Map<String, List<JsonValue>> captures;
+
+	MatchResult(boolean matched, Map<String, List<JsonValue>> captures)
+	{
+		this.matched = matched;
+		this.captures = captures;
+	}
+
+	/**
+	 * Determine whether the value matched.
+	 * @return {@code true} if the value matched, or {@code false} otherwise
+	 */
+	public boolean matched()
+	{
+		return matched;
+	}
+
+	/**
+	 * Get the first value captured with a name.
+	 * @param name the capture name
+	 * @return the first value captured with this name, or an empty {@link Optional} if there is none (which is always the case
+	 *         if the value did not match)
+	 */
+	public Optional<JsonValue> capture(String name)
+	{
+		List<JsonValue> values = captures.get(name);
+		return (values != null) ? Optional.of(values.get(0)) : Optional.empty();
+	}
+
+	/**
+	 * Get all of the values captured with a name, in the order they were captured.
+	 * @param name the capture name
+	 * @return the values captured with this name, which is empty if there are none (which is always the case if the value
+	 *         did not match)
+	 */
+	public List<JsonValue> captures(String name)
+	{
+		return List.copyOf(captures.getOrDefault(name, List.of()));
+	}
+
+	@Override
+	public String toString()
+	{
+		return matched ? "(matched)" + captures : "(not matched)";
+	}
+}
@@ -0,0 +1,313 @@
+package org.fierypit.util.test.json;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+import org.fierypit.util.test.json.ClassFileWriter.Code;
+import org.fierypit.util.test.json.ClassFileWriter.Label;
+
+/**
+ * Compiler which turns a tree of matchers into a single specialized class, defined as a hidden class so that it can be unloaded
+ * once the compiled matcher is no longer referenced.
+ * <p>
+ * The generated {@code test} method contains the whole tree inline: object member names are string constants, the members of
+ * objects and ordered arrays are checked one after another with no loops, type checks are plain {@code instanceof} instructions,
+ * and string literals are compared directly against {@link JsonString#getString()}. Each {@link JsonValue} literal, capture
+ * consumer and custom matcher used by the tree is held in a final field of the hidden class, which the JIT compiler is able
+ * to treat as a constant. Matchers the compiler does not understand (including custom matchers and order-independent array
+ * matchers) are called through {@link JsonMatcher#test(JsonValue)} as usual.
+ * <p>
+ * The generated code evaluates the tree in exactly the same order as the interpreted matchers, so captures are performed
+ * in the same order, and in the same circumstances.
+ */
+final class MatcherCompiler
+{
+	private MatcherCompiler() {}
+
+	/**
+	 * Methods larger than this are never compiled by HotSpot (see {@code -XX:-DontCompileHugeMethods}), which would defeat the
+	 * purpose; trees that generate larger methods are split into several classes.
+	 */
+	private static final int MAX_METHOD_SIZE = 8000;
+
+	private static final String CLASS_NAME = "org/fierypit/util/test/json/CompiledMatcher$Generated";
+	private static final String SUPER_NAME = "org/fierypit/util/test/json/CompiledMatcher";
+	private static final String JSON_MATCHER = "org/fierypit/util/test/json/JsonMatcher";
+	private static final String JSON_VALUE = "javax/json/JsonValue";
+	private static final String JSON_VALUE_DESCRIPTOR = "L" + JSON_VALUE + ";";
+	private static final String VALUE_TYPE_DESCRIPTOR = "Ljavax/json/JsonValue$ValueType;";
+	private static final String JSON_MATCHER_DESCRIPTOR = "L" + JSON_MATCHER + ";";
+	private static final String CONSUMER = "java/util/function/Consumer";
+	private static final String OBJECT_MATCHER = "org/fierypit/util/test/json/ObjectMatcher";
+	private static final String OBJECT_MATCHER_DESCRIPTOR = "L" + OBJECT_MATCHER + ";";
+	private static final String ARRAY_MATCHER = "org/fierypit/util/test/json/OrderedArrayMatcher";
+	private static final String ARRAY_MATCHER_DESCRIPTOR = "L" + ARRAY_MATCHER + ";";
+
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(void.class, JsonMatcher.class, Object[].class);
+
+	/**
+	 * Compile a matcher tree. If the matcher is not one that benefits from compilation (a custom matcher, or an already
+	 * compiled one), it is returned unchanged.
+	 */
+	static <T extends JsonValue> JsonMatcher<T> compile(JsonMatcher<T> matcher)
+	{
+		if (!isInlinable(matcher)) {
+			return matcher;
+		}
+
+		// Try to inline the whole tree; if the generated method is too large, move deeper subtrees into classes of their own.
+		for (int maxDepth = depth(matcher); maxDepth > 0; maxDepth /= 2) {
+			JsonMatcher<T> compiled = tryCompile(matcher, maxDepth);
+			if (compiled != null) {
+				return compiled;
+			}
+		}
+		return matcher;	// Too large to compile, even one level at a time.
+	}
+
+	private static boolean isInlinable(JsonMatcher<?> matcher)
+	{
+		return matcher instanceof ValueMatcher
+				|| matcher instanceof AnyMatcher
+				|| (matcher instanceof ObjectMatcher && !(matcher instanceof AdaptiveObjectMatcher))
+				|| (matcher instanceof OrderedArrayMatcher arrayMatcher && arrayMatcher.parallelThreshold() == ParallelArrays.DISABLED)
+				|| matcher instanceof CaptureMatcher;
+	}
+
+	private static int depth(JsonMatcher<?> matcher)
+	{
+		int childDepth = 0;
+		if (matcher instanceof ObjectMatcher objectMatcher) {
+			for (JsonMatcher<?> child : objectMatcher.expected().values()) {
+				childDepth = Math.max(childDepth, depth(child));
+			}
+		} else if (matcher instanceof OrderedArrayMatcher arrayMatcher) {
+			for (JsonMatcher<?> child : arrayMatcher.expected()) {
+				childDepth = Math.max(childDepth, depth(child));
+			}
+		} else if (matcher instanceof CaptureMatcher<?> captureMatcher) {
+			childDepth = depth(captureMatcher.delegate());
+		}
+		return childDepth + 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends JsonValue> JsonMatcher<T> tryCompile(JsonMatcher<T> matcher, int maxDepth)
+	{
+		byte[] classBytes;
+		Generator generator = new Generator(maxDepth);
+		try {
+			classBytes = generator.generate(matcher);
+		} catch (IllegalStateException | IllegalArgumentException e) {
+			return null;	// Generated class exceeds some class file limit.
+		}
+		if (classBytes == null) {
+			return null;
+		}
+
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classBytes, true);
+			MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(), CONSTRUCTOR_TYPE);
+			return (JsonMatcher<T>) constructor.invoke(matcher, generator.constants.toArray());
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException("unable to instantiate compiled matcher", t);
+		}
+	}
+
+	/** Generator for a single hidden class. */
+	private static final class Generator
+	{
+		private final int maxDepth;
+		private final ClassFileWriter writer = new ClassFileWriter(
+				ClassFileWriter.ACC_FINAL | ClassFileWriter.ACC_SUPER, CLASS_NAME, SUPER_NAME);
+		private final List<Object> constants = new ArrayList<>();
+		private final List<String> constantDescriptors = new ArrayList<>();
+		private Code code;
+
+		Generator(int maxDepth)
+		{
+			this.maxDepth = maxDepth;
+		}
+
+		/** Generate the class, or return {@code null} if the {@code test} method would be too large. */
+		byte[] generate(JsonMatcher<?> matcher)
+		{
+			code = writer.new Code(2);	// this, value
+			Label fail = new Label();
+			generateMatch(matcher, 1, fail, 0);
+			code.iconst(1).ireturn();
+			code.place(fail).iconst(0).ireturn();
+			if (code.size() > MAX_METHOD_SIZE) {
+				return null;
+			}
+			writer.addMethod(ClassFileWriter.ACC_PUBLIC, "test", "(" + JSON_VALUE_DESCRIPTOR + ")Z", code);
+
+			// Constructor, initializing the constant fields from an array.
+			Code constructor = writer.new Code(3);	// this, source, constants
+			constructor.aload(0).aload(1).invokespecial(SUPER_NAME, "<init>", "(" + JSON_MATCHER_DESCRIPTOR + ")V");
+			for (int i = 0; i < constants.size(); i++) {
+				String descriptor = constantDescriptors.get(i);
+				writer.addField(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_FINAL, "c" + i, descriptor);
+				constructor.aload(0).aload(2).iconst(i).aaload()
+						.checkcast(descriptor.substring(1, descriptor.length() - 1))
+						.putfield(CLASS_NAME, "c" + i, descriptor);
+			}
+			constructor.vreturn();
+			writer.addMethod(0, "<init>", "(" + JSON_MATCHER_DESCRIPTOR + "[Ljava/lang/Object;)V", constructor);
+
+			return writer.toByteArray();
+		}
+
+		/**
+		 * Generate code which tests the value in local variable {@code local}, falling through if the value matches, and
+		 * branching to {@code fail} if it does not. The operand stack is empty before and after.
+		 */
+		private void generateMatch(JsonMatcher<?> matcher, int local, Label fail, int depth)
+		{
+			if (!isInlinable(matcher)) {
+				generateCall(matcher, local, fail);
+			} else if (depth >= maxDepth && !(matcher instanceof ValueMatcher || matcher instanceof AnyMatcher)) {
+				generateCall(compile(matcher), local, fail);	// Subtree too deep to inline, so compile it separately.
+			} else if (matcher instanceof NumberValueMatcher || matcher instanceof DocumentValueMatcher) {
+				generateCall(matcher, local, fail);	// Already compares more cheaply than equals.
+			} else if (matcher instanceof ValueMatcher<?> valueMatcher) {
+				generateValue(valueMatcher.value(), local, fail);
+			} else if (matcher == JsonMatcher.ANY_BOOLEAN) {
+				Label match = new Label();
+				code.aload(local).invokeinterface(JSON_VALUE, "getValueType", "()" + VALUE_TYPE_DESCRIPTOR)
+						.getstatic("javax/json/JsonValue$ValueType", "TRUE", VALUE_TYPE_DESCRIPTOR)
+						.ifAcmpeq(match);
+				code.aload(local).invokeinterface(JSON_VALUE, "getValueType", "()" + VALUE_TYPE_DESCRIPTOR)
+						.getstatic("javax/json/JsonValue$ValueType", "FALSE", VALUE_TYPE_DESCRIPTOR)
+						.ifAcmpne(fail);
+				code.place(match);
+			} else if (matcher instanceof AnyMatcher<?> anyMatcher && anyMatcher.getClass() == AnyMatcher.class) {
+				code.aload(local).invokestatic("java/util/Objects", "requireNonNull", "(Ljava/lang/Object;)Ljava/lang/Object;");
+				if (anyMatcher.type() == JsonValue.class) {
+					code.pop();
+				} else {
+					code.instanceOf(internalName(anyMatcher.type())).ifeq(fail);
+				}
+			} else if (matcher instanceof ObjectMatcher objectMatcher) {
+				generateObject(objectMatcher, local, fail, depth);
+			} else if (matcher instanceof OrderedArrayMatcher arrayMatcher) {
+				generateArray(arrayMatcher, local, fail, depth);
+			} else if (matcher instanceof CaptureMatcher<?> captureMatcher) {
+				generateMatch(captureMatcher.delegate(), local, fail, depth + 1);
+				if (captureMatcher.consumer() == null) {
+					return;	// Named capture, only recorded by JsonMatcher.match.
+				}
+				code.aload(0).getfield(CLASS_NAME, constant(captureMatcher.consumer(), Consumer.class), "L" + CONSUMER + ";")
+						.aload(local)
+						.invokeinterface(CONSUMER, "accept", "(Ljava/lang/Object;)V");
+			} else {
+				generateCall(matcher, local, fail);	// AnyMatcher subclass
+			}
+		}
+
+		private void generateCall(JsonMatcher<?> matcher, int local, Label fail)
+		{
+			code.aload(0).getfield(CLASS_NAME, constant(matcher, JsonMatcher.class), JSON_MATCHER_DESCRIPTOR)
+					.aload(local)
+					.invokeinterface(JSON_MATCHER, "test", "(" + JSON_VALUE_DESCRIPTOR + ")Z")
+					.ifeq(fail);
+		}
+
+		private void generateValue(JsonValue expected, int local, Label fail)
+		{
+			if (expected instanceof JsonString jsonString) {
+				// The JsonString contract defines equality in terms of getString(), so compare against a string constant.
+				code.aload(local).instanceOf("javax/json/JsonString").ifeq(fail);
+				code.aload(local).checkcast("javax/json/JsonString")
+						.invokeinterface("javax/json/JsonString", "getString", "()Ljava/lang/String;")
+						.ldc(jsonString.getString())
+						.invokevirtual("java/lang/String", "equals", "(Ljava/lang/Object;)Z")
+						.ifeq(fail);
+			} else {
+				code.aload(0).getfield(CLASS_NAME, constant(expected, JsonValue.class), JSON_VALUE_DESCRIPTOR)
+						.aload(local)
+						.invokevirtual("java/lang/Object", "equals", "(Ljava/lang/Object;)Z")
+						.ifeq(fail);
+			}
+		}
+
+		private void generateObject(ObjectMatcher matcher, int local, Label fail, int depth)
+		{
+			int object = code.newLocal();
+			code.aload(local).instanceOf("javax/json/JsonObject").ifeq(fail);
+			code.aload(local).checkcast("javax/json/JsonObject").astore(object);
+			if (matcher.checkShapes()) {
+				// The same checks as the interpreted matcher, so no nested matcher is evaluated against a value it rejects.
+				code.aload(0).getfield(CLASS_NAME, constant(matcher, ObjectMatcher.class), OBJECT_MATCHER_DESCRIPTOR)
+						.aload(object)
+						.invokevirtual(OBJECT_MATCHER, "testShape", "(Ljavax/json/JsonObject;)Z")
+						.ifeq(fail);
+			} else {
+				code.aload(object).invokeinterface("java/util/Map", "size", "()I")
+						.iconst(matcher.expected().size());
+				if (matcher.isExact()) {
+					code.ifIcmpne(fail);
+				} else {
+					code.ifIcmplt(fail);
+				}
+			}
+			for (Map.Entry<String, JsonMatcher<?>> entry : matcher.expected().entrySet()) {
+				int member = code.newLocal();
+				code.aload(object).ldc(entry.getKey())
+						.invokeinterface("java/util/Map", "get", "(Ljava/lang/Object;)Ljava/lang/Object;")
+						.checkcast(JSON_VALUE)
+						.astore(member);
+				code.aload(member).ifnull(fail);
+				generateMatch(entry.getValue(), member, fail, depth + 1);
+			}
+		}
+
+		private void generateArray(OrderedArrayMatcher matcher, int local, Label fail, int depth)
+		{
+			List<JsonMatcher<?>> expected = matcher.expected();
+			int array = code.newLocal();
+			code.aload(local).instanceOf("javax/json/JsonArray").ifeq(fail);
+			code.aload(local).checkcast("javax/json/JsonArray").astore(array);
+			code.aload(array).invokeinterface("java/util/List", "size", "()I")
+					.iconst(expected.size())
+					.ifIcmpne(fail);
+			if (matcher.checkShapes()) {
+				code.aload(0).getfield(CLASS_NAME, constant(matcher, OrderedArrayMatcher.class), ARRAY_MATCHER_DESCRIPTOR)
+						.aload(array)
+						.invokevirtual(ARRAY_MATCHER, "testShape", "(Ljavax/json/JsonArray;)Z")
+						.ifeq(fail);
+			}
+			for (int i = 0; i < expected.size(); i++) {
+				int element = code.newLocal();
+				code.aload(array).iconst(i)
+						.invokeinterface("java/util/List", "get", "(I)Ljava/lang/Object;")
+						.checkcast(JSON_VALUE)
+						.astore(element);
+				generateMatch(expected.get(i), element, fail, depth + 1);
+			}
+		}
+
+		/** Add a constant field, returning its name. */
+		private String constant(Object value, Class<?> type)
+		{
+			constants.add(value);
+			constantDescriptors.add("L" + internalName(type) + ";");
+			return "c" + (constants.size() - 1);
+		}
+
+		private static String internalName(Class<?> type)
+		{
+			return type.getName().replace('.', '/');
+		}
+	}
+}
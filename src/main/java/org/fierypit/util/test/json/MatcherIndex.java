@@ -0,0 +1,201 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+/**
+ * Index over a large number of object matchers, which finds all of the matchers that match a given JSON value without having to
+ * test the value against every matcher.
+ * <p>
+ * When a matcher built by {@link JsonMatcher.ObjectBuilder} is added, each of its expected members whose expected value is a
+ * fixed scalar (a string, number, boolean or null, as created by the {@code add} methods taking such values) is entered into a
+ * discrimination network keyed by the member name and the literal value. When matching a value, the index looks up each member
+ * of the value in this network and counts, for each matcher, how many of its literal members are present with the expected
+ * value. Only the matchers for which every literal member was found are then tested in full, along with any matchers that have
+ * no literal members at all (including custom matchers, which cannot be indexed). The cost of matching therefore depends on the
+ * number of matchers that could plausibly match, rather than the total number of matchers in the index.
+ * <p>
+ * Matching may be performed by many threads concurrently, but the index must not be modified while doing so.
+ */
+public final class MatcherIndex
+{
+	/** An indexed matcher. */
+	private static final class Entry
+	{
+		final int id;
+		final JsonMatcher<JsonObject> matcher;
+		final int literalCount;
+
+		Entry(int id, JsonMatcher<JsonObject> matcher, int literalCount)
+		{
+			this.id = id;
+			this.matcher = matcher;
+			this.literalCount = literalCount;
+		}
+	}
+
+	/** Per-thread working storage for {@link #match(JsonValue)}, so that matching does not allocate per matcher. */
+	private static final class Counters
+	{
+		int[] counts = new int[0];	// count of literal members matched, by entry ID
+		int[] touched = new int[0];	// entry IDs with non-zero counts
+		int touchedCount;
+	}
+
+	private final List<Entry> entries = new ArrayList<>();
+	private final Map<JsonMatcher<JsonObject>, Entry> entriesByMatcher = new IdentityHashMap<>();
+	private final Map<String, Map<JsonValue, List<Entry>>> literals = new HashMap<>();
+	private final List<Entry> unindexed = new ArrayList<>();
+	private final ThreadLocal<Counters> counters = ThreadLocal.withInitial(Counters::new);
+
+	/**
+	 * Add a matcher to this index. Adding a matcher which is already present in the index has no effect.
+	 * @param matcher the matcher to add
+	 * @return this {@link MatcherIndex}, for chaining
+	 * @exception NullPointerException if {@code matcher} is {@code null}
+	 */
+	public MatcherIndex add(JsonMatcher<JsonObject> matcher)
+	{
+		if (entriesByMatcher.containsKey(matcher)) {
+			return this;
+		}
+
+		Map<String, JsonValue> matcherLiterals = literalMembers(matcher);
+		Entry entry = new Entry(entries.size(), matcher, matcherLiterals.size());
+		entries.add(entry);
+		entriesByMatcher.put(matcher, entry);
+
+		if (matcherLiterals.isEmpty()) {
+			unindexed.add(entry);
+		} else {
+			for (Map.Entry<String, JsonValue> literal : matcherLiterals.entrySet()) {
+				literals.computeIfAbsent(literal.getKey(), name -> new HashMap<>())
+						.computeIfAbsent(literal.getValue(), value -> new ArrayList<>())
+						.add(entry);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Get the number of matchers in this index.
+	 * @return the number of matchers added
+	 */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Find all of the matchers in this index that match a value.
+	 * @param value the value to test
+	 * @return the matchers which match {@code value}, in the order in which they were added to the index
+	 * @exception NullPointerException if {@code value} is {@code null}
+	 */
+	public Set<JsonMatcher<JsonObject>> match(JsonValue value)
+	{
+		int[] candidates = (value instanceof JsonObject jsonObject) ? candidates(jsonObject) : new int[0];
+
+		// Test the candidates and unindexed matchers together, in the order they were added.
+		Set<JsonMatcher<JsonObject>> matches = new LinkedHashSet<>();
+		int candidateIndex = 0;
+		int unindexedIndex = 0;
+		while (candidateIndex < candidates.length || unindexedIndex < unindexed.size()) {
+			Entry entry;
+			if (unindexedIndex == unindexed.size()
+					|| (candidateIndex < candidates.length && candidates[candidateIndex] < unindexed.get(unindexedIndex).id)) {
+				entry = entries.get(candidates[candidateIndex++]);
+			} else {
+				entry = unindexed.get(unindexedIndex++);
+			}
+			if (entry.matcher.test(value)) {
+				matches.add(entry.matcher);
+			}
+		}
+		return Collections.unmodifiableSet(matches);
+	}
+
+	/** Find the IDs of the entries for which all literal members are present in an object, in ascending order. */
+	private int[] candidates(JsonObject jsonObject)
+	{
+		Counters counters = this.counters.get();
+		if (counters.counts.length < entries.size()) {
+			counters.counts = new int[entries.size()];
+			counters.touched = new int[entries.size()];
+		}
+
+		// Iterate over whichever is smaller: the members of the object, or the member names in the index.
+		if (jsonObject.size() <= literals.size()) {
+			for (Map.Entry<String, JsonValue> member : jsonObject.entrySet()) {
+				Map<JsonValue, List<Entry>> values = literals.get(member.getKey());
+				if (values != null) {
+					count(counters, values, member.getValue());
+				}
+			}
+		} else {
+			for (Map.Entry<String, Map<JsonValue, List<Entry>>> literal : literals.entrySet()) {
+				JsonValue memberValue = jsonObject.get(literal.getKey());
+				if (memberValue != null) {
+					count(counters, literal.getValue(), memberValue);
+				}
+			}
+		}
+
+		// Collect the entries with a full count, resetting the counters ready for the next call.
+		int[] candidates = new int[counters.touchedCount];
+		int candidateCount = 0;
+		for (int i = 0; i < counters.touchedCount; i++) {
+			int id = counters.touched[i];
+			if (counters.counts[id] == entries.get(id).literalCount) {
+				candidates[candidateCount++] = id;
+			}
+			counters.counts[id] = 0;
+		}
+		counters.touchedCount = 0;
+
+		candidates = Arrays.copyOf(candidates, candidateCount);
+		Arrays.sort(candidates);
+		return candidates;
+	}
+
+	private static void count(Counters counters, Map<JsonValue, List<Entry>> values, JsonValue memberValue)
+	{
+		if (!LiteralLookup.isScalar(memberValue)) {
+			return;	// Only scalars are indexed, and avoiding hashing large structures here is worthwhile.
+		}
+		List<Entry> matching = values.get(memberValue);
+		if (matching != null) {
+			for (Entry entry : matching) {
+				if (counters.counts[entry.id]++ == 0) {
+					counters.touched[counters.touchedCount++] = entry.id;
+				}
+			}
+		}
+	}
+
+	/** Extract the members of an object matcher which expect a fixed scalar value. */
+	private static Map<String, JsonValue> literalMembers(JsonMatcher<JsonObject> matcher)
+	{
+		JsonMatcher<?> source = (matcher instanceof CompiledMatcher<?> compiledMatcher) ? compiledMatcher.delegate() : matcher;
+		Map<String, JsonValue> result = new HashMap<>();
+		if (source instanceof ObjectMatcher objectMatcher) {
+			for (Map.Entry<String, JsonMatcher<?>> member : objectMatcher.expected().entrySet()) {
+				JsonValue literal = LiteralLookup.literalValue(member.getValue());
+				if (literal != null) {
+					result.put(member.getKey(), literal);
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,142 @@
+package org.fierypit.util.test.json;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a named matcher. All of the counters are {@link LongAdder}s (or a {@link LongAccumulator}, for the maximum), so
+ * threads recording evaluations concurrently rarely contend. The metrics are read without synchronization, so a snapshot
+ * taken while evaluations are being recorded may be slightly inconsistent.
+ */
+final class MatcherMetrics
+implements MatcherMetricsMBean
+{
+	/** One bucket for each possible bit length of a non-negative {@code long}. */
+	private static final int BUCKETS = 64;
+
+	private final String name;
+	private final LongAdder evaluations = new LongAdder();
+	private final LongAdder matches = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+	MatcherMetrics(String name)
+	{
+		this.name = name;
+		for (int i = 0; i < BUCKETS; i++) {
+			histogram[i] = new LongAdder();
+		}
+	}
+
+	/** Record one evaluation. */
+	void record(boolean match, long nanos)
+	{
+		nanos = Math.max(nanos, 0);
+		evaluations.increment();
+		if (match) {
+			matches.increment();
+		}
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		histogram[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();	// Bit length of nanos.
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public long getEvaluations()
+	{
+		return evaluations.sum();
+	}
+
+	@Override
+	public long getMatches()
+	{
+		return matches.sum();
+	}
+
+	@Override
+	public double getMatchRate()
+	{
+		long evaluations = getEvaluations();
+		return (evaluations > 0) ? (double) getMatches() / evaluations : 0.0;
+	}
+
+	@Override
+	public double getMeanLatencyNanos()
+	{
+		long evaluations = getEvaluations();
+		return (evaluations > 0) ? (double) totalNanos.sum() / evaluations : 0.0;
+	}
+
+	@Override
+	public long getMaxLatencyNanos()
+	{
+		return maxNanos.get();
+	}
+
+	@Override
+	public long getLatencyP50Nanos()
+	{
+		return percentile(0.50);
+	}
+
+	@Override
+	public long getLatencyP99Nanos()
+	{
+		return percentile(0.99);
+	}
+
+	@Override
+	public long[] getLatencyHistogram()
+	{
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = histogram[i].sum();
+		}
+		return counts;
+	}
+
+	/** Get the upper bound of the bucket containing a percentile of the recorded latencies. */
+	private long percentile(double fraction)
+	{
+		long[] counts = getLatencyHistogram();
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		long rank = (long) Math.ceil(total * fraction);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0) {
+				return (i == BUCKETS - 1) ? Long.MAX_VALUE : (1L << i) - 1;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public void reset()
+	{
+		evaluations.reset();
+		matches.reset();
+		totalNanos.reset();
+		maxNanos.reset();
+		for (LongAdder bucket : histogram) {
+			bucket.reset();
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%s: %d evaluations, %d matches, mean %.0f ns, p99 <= %d ns",
+				name, getEvaluations(), getMatches(), getMeanLatencyNanos(), getLatencyP99Nanos());
+	}
+}
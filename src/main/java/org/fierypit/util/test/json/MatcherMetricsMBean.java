@@ -0,0 +1,73 @@
+package org.fierypit.util.test.json;
+
+/**
+ * Management interface exposing the metrics of a named matcher created by {@link JsonMatcher#instrumented(String)}. Each
+ * name is registered with the platform MBean server as
+ * {@code org.fierypit.util.test.json:type=JsonMatcher,name="<name>"}, and the same metrics can be obtained within the
+ * application from {@link MatcherRegistry#metrics(String)}.
+ * <p>
+ * Latencies are recorded in a histogram with one bucket per power of two nanoseconds, so the percentiles reported are the
+ * upper bounds of the buckets containing them, accurate to within a factor of two.
+ */
+public interface MatcherMetricsMBean
+{
+	/**
+	 * Get the name of the matcher.
+	 * @return the name
+	 */
+	String getName();
+
+	/**
+	 * Get the number of values tested.
+	 * @return the number of evaluations
+	 */
+	long getEvaluations();
+
+	/**
+	 * Get the number of values tested which matched.
+	 * @return the number of matches
+	 */
+	long getMatches();
+
+	/**
+	 * Get the proportion of values tested which matched.
+	 * @return the match rate, between 0 and 1, or 0 if no values have been tested
+	 */
+	double getMatchRate();
+
+	/**
+	 * Get the mean time taken to test a value.
+	 * @return the mean latency in nanoseconds, or 0 if no values have been tested
+	 */
+	double getMeanLatencyNanos();
+
+	/**
+	 * Get the longest time taken to test a value.
+	 * @return the maximum latency in nanoseconds
+	 */
+	long getMaxLatencyNanos();
+
+	/**
+	 * Get the median time taken to test a value.
+	 * @return the upper bound of the median latency in nanoseconds
+	 */
+	long getLatencyP50Nanos();
+
+	/**
+	 * Get the 99th percentile of the time taken to test a value.
+	 * @return the upper bound of the 99th percentile latency in nanoseconds
+	 */
+	long getLatencyP99Nanos();
+
+	/**
+	 * Get the latency histogram. Element {@code i} is the number of tests which took less than 2<sup>i</sup> nanoseconds, but
+	 * at least 2<sup>i-1</sup> (or, for element 0, no time at all as measured by {@link System#nanoTime()}).
+	 * @return the number of tests in each latency bucket
+	 */
+	long[] getLatencyHistogram();
+
+	/**
+	 * Reset all of the metrics to zero.
+	 */
+	void reset();
+}
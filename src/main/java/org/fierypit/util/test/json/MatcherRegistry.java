@@ -0,0 +1,110 @@
+package org.fierypit.util.test.json;
+
+import java.lang.management.ManagementFactory;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Registry of the metrics of the named matchers created by {@link JsonMatcher#instrumented(String)}. The metrics for each name
+ * are created when the first matcher with that name is created, and are registered with the platform MBean server as
+ * {@code org.fierypit.util.test.json:type=JsonMatcher,name="<name>"}. All of the matchers instrumented with the same name
+ * record their evaluations in the same metrics. If an MBean is already registered under that name, for example by a copy of
+ * this class loaded by another class loader, it is left alone, and the matcher cannot be instrumented with that name.
+ */
+public final class MatcherRegistry
+{
+	/** The domain of the names under which the metrics are registered. */
+	public static final String DOMAIN = "org.fierypit.util.test.json";
+
+	private static final ConcurrentMap<String, MatcherMetrics> METRICS = new ConcurrentHashMap<>();
+
+	private MatcherRegistry() {}
+
+	/** Get the metrics for a name, creating and registering them if they do not exist. */
+	static MatcherMetrics register(String name)
+	{
+		return METRICS.computeIfAbsent(name, key -> {
+			MatcherMetrics metrics = new MatcherMetrics(key);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			try {
+				server.registerMBean(new StandardMBean(metrics, MatcherMetricsMBean.class), objectName(key));
+			} catch (InstanceAlreadyExistsException e) {
+				throw new IllegalStateException("metrics for matcher " + key + " are already registered by another class loader",
+						e);
+			} catch (JMException e) {
+				throw new IllegalStateException("cannot register metrics for matcher " + key, e);
+			}
+			return metrics;
+		});
+	}
+
+	/**
+	 * Get the metrics of the matchers with a name.
+	 * @param name the name given to {@link JsonMatcher#instrumented(String)}
+	 * @return the metrics, or an empty {@link Optional} if no matcher has been instrumented with this name since it was last
+	 *         unregistered
+	 * @exception NullPointerException if {@code name} is {@code null}
+	 */
+	public static Optional<MatcherMetricsMBean> metrics(String name)
+	{
+		return Optional.ofNullable(METRICS.get(Objects.requireNonNull(name)));
+	}
+
+	/**
+	 * Get the names of all of the registered metrics.
+	 * @return an unmodifiable snapshot of the names
+	 */
+	public static Set<String> names()
+	{
+		return Set.copyOf(METRICS.keySet());
+	}
+
+	/**
+	 * Remove the metrics for a name from this registry and from the platform MBean server. Matchers already instrumented with
+	 * this name continue to record their evaluations in the removed metrics; matchers instrumented with it later record
+	 * theirs in new metrics.
+	 * @param name the name given to {@link JsonMatcher#instrumented(String)}
+	 * @return {@code true} if there were metrics for this name, or {@code false} otherwise
+	 * @exception NullPointerException if {@code name} is {@code null}
+	 */
+	public static boolean unregister(String name)
+	{
+		if (METRICS.remove(Objects.requireNonNull(name)) == null) {
+			return false;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+		} catch (InstanceNotFoundException e) {
+			// Already unregistered by other means.
+		} catch (JMException e) {
+			throw new IllegalStateException("cannot unregister metrics for matcher " + name, e);
+		}
+		return true;
+	}
+
+	/**
+	 * Get the name under which the metrics for a matcher name are registered with the platform MBean server.
+	 * @param name the name given to {@link JsonMatcher#instrumented(String)}
+	 * @return the MBean object name
+	 * @exception NullPointerException if {@code name} is {@code null}
+	 */
+	public static ObjectName objectName(String name)
+	{
+		try {
+			return new ObjectName(DOMAIN + ":type=JsonMatcher,name=" + ObjectName.quote(name));
+		} catch (MalformedObjectNameException e) {
+			throw new IllegalArgumentException(e);	// Cannot happen, since the name is quoted.
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package org.fierypit.util.test.json;
+
+import javax.json.JsonValue;
+
+/**
+ * Description of the first point at which a value fails to match a matcher, as found by {@link JsonMatcher#explain(JsonValue)}.
+ * A mismatch is immutable.
+ */
+public final class Mismatch
+{
+	private final String pointer;
+	private final JsonMatcher<?> expected;
+	private final JsonValue actual;
+	private final String reason;
+
+	Mismatch(String pointer, JsonMatcher<?> expected, JsonValue actual, String reason)
+	{
+		this.pointer = pointer;
+		this.expected = expected;
+		this.actual = actual;
+		this.reason = reason;
+	}
+
+	/**
+	 * Get the location of the mismatch within the value tested, as a JSON Pointer (RFC 6901). This is the empty string if the
+	 * value tested as a whole does not match, for example if it is of the wrong type.
+	 * @return the JSON Pointer of the member or element which does not match
+	 */
+	public String pointer()
+	{
+		return pointer;
+	}
+
+	/**
+	 * Get the matcher which the value at {@link #pointer()} was expected to match.
+	 * @return the matcher, or {@code null} if the member at {@link #pointer()} was not expected at all
+	 */
+	public JsonMatcher<?> expected()
+	{
+		return expected;
+	}
+
+	/**
+	 * Get the value found at {@link #pointer()}.
+	 * @return the value, or {@code null} if an expected member is missing
+	 */
+	public JsonValue actual()
+	{
+		return actual;
+	}
+
+	/**
+	 * Get a short description of the mismatch, such as {@code "missing member"}.
+	 * @return the reason for the mismatch
+	 */
+	public String reason()
+	{
+		return reason;
+	}
+
+	@Override
+	public String toString()
+	{
+		String location = (pointer.isEmpty() ? "(root)" : pointer) + ": " + reason;
+		if (expected == null) {
+			return location + ": found " + actual;	// An unexpected member or element.
+		} else if (actual == null) {
+			return location + ": expected " + expected;	// A missing member or element.
+		}
+		return location + ": expected " + expected + ", found " + actual;
+	}
+}
@@ -0,0 +1,410 @@
+package org.fierypit.util.test.json;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import javax.json.Json;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import javax.json.stream.JsonParsingException;
+
+/**
+ * Scanner which finds the records in a newline-delimited JSON (NDJSON) file that match a {@link JsonMatcher}, using several
+ * threads.
+ * <p>
+ * The file is split into chunks of roughly equal size, each ending at the end of a line, and the chunks are scanned in
+ * parallel in a {@link ForkJoinPool}. Each chunk is memory-mapped with {@link FileChannel#map}, and each record is tested in
+ * place with {@link JsonMatcher#testUtf8(ByteBuffer)}, so records which do not match are never decoded. Only the bytes of the
+ * matching records are copied out of the file. Blank lines are ignored, and lines may end with either LF or CRLF. A matching
+ * record followed by anything other than whitespace on the same line is reported as invalid.
+ * <p>
+ * A scanner may be used to scan any number of files, including concurrently.
+ */
+public final class NdjsonScanner
+{
+	/** The default size of the chunks into which files are split, in bytes. */
+	public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+	private static final int BOUNDARY_SEARCH_BUFFER_SIZE = 64 << 10;
+
+	private final JsonMatcher<?> matcher;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	/**
+	 * Create a scanner using the common {@link ForkJoinPool} and the default chunk size.
+	 * @param matcher the matcher which records must match
+	 * @exception NullPointerException if {@code matcher} is {@code null}
+	 */
+	public NdjsonScanner(JsonMatcher<?> matcher)
+	{
+		this(matcher, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create a scanner using the given {@link ForkJoinPool} and chunk size.
+	 * @param matcher the matcher which records must match
+	 * @param pool the pool in which to scan chunks
+	 * @param chunkSize the approximate size of the chunks into which files are split, in bytes
+	 * @exception IllegalArgumentException if {@code chunkSize} is not positive
+	 * @exception NullPointerException if {@code matcher} or {@code pool} is {@code null}
+	 */
+	public NdjsonScanner(JsonMatcher<?> matcher, ForkJoinPool pool, int chunkSize)
+	{
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+		}
+		this.matcher = Objects.requireNonNull(matcher);
+		this.pool = Objects.requireNonNull(pool);
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Find all of the matching records in a file, in the order in which they appear in the file.
+	 * @param file the file to scan
+	 * @return the result of the scan, including the matching records
+	 * @exception IOException if an I/O error occurs
+	 * @exception JsonParsingException if a record read is not valid JSON
+	 * @exception NullPointerException if {@code file} is {@code null}
+	 */
+	public Result scan(Path file)
+	throws IOException
+	{
+		return run(file, null);
+	}
+
+	/**
+	 * Find all of the matching records in a file, passing each to a consumer as soon as it is found. The consumer is called
+	 * concurrently from the threads of the pool, in no particular order, so must be thread-safe. This avoids holding all of
+	 * the matching records in memory at once.
+	 * @param file the file to scan
+	 * @param consumer the consumer to which to pass each matching record
+	 * @return the result of the scan, whose {@link Result#matches()} is empty
+	 * @exception IOException if an I/O error occurs
+	 * @exception JsonParsingException if a record read is not valid JSON
+	 * @exception NullPointerException if {@code file} or {@code consumer} is {@code null}
+	 */
+	public Result scan(Path file, Consumer<? super Match> consumer)
+	throws IOException
+	{
+		return run(file, Objects.requireNonNull(consumer));
+	}
+
+	/** Scan a file, passing the matches to a consumer, or if the consumer is {@code null}, collecting them in order. */
+	private Result run(Path file, Consumer<? super Match> consumer)
+	throws IOException
+	{
+		long startTime = System.nanoTime();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			List<Long> boundaries = boundaries(channel, size);
+			ChunkTask task = new ChunkTask(matcher, channel, boundaries, 0, boundaries.size() - 1, consumer);
+			ChunkResult chunkResult;
+			try {
+				chunkResult = pool.invoke(task);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			return new Result(chunkResult.matches, chunkResult.recordCount, size, System.nanoTime() - startTime);
+		}
+	}
+
+	/** Find the offsets at which chunks start, each at the start of a line, followed by the size of the file. */
+	private List<Long> boundaries(FileChannel channel, long size)
+	throws IOException
+	{
+		List<Long> boundaries = new ArrayList<>();
+		ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SEARCH_BUFFER_SIZE);
+		long start = 0;
+		while (start < size) {
+			boundaries.add(start);
+			long next = start + chunkSize;
+			start = (next >= size) ? size : nextLineStart(channel, buffer, next, size);
+		}
+		boundaries.add(size);
+		return boundaries;
+	}
+
+	private static long nextLineStart(FileChannel channel, ByteBuffer buffer, long position, long size)
+	throws IOException
+	{
+		while (position < size) {
+			buffer.clear();
+			int count = channel.read(buffer, position);
+			if (count <= 0) {
+				break;
+			}
+			for (int i = 0; i < count; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += count;
+		}
+		return size;
+	}
+
+	/** Scan one chunk, adding its matches to a list or passing them to a consumer, and returning the number of records. */
+	private static long scanChunk(JsonMatcher<?> matcher, FileChannel channel, long chunkStart, long chunkEnd,
+			Consumer<? super Match> sink)
+	throws IOException
+	{
+		if (chunkEnd - chunkStart > Integer.MAX_VALUE) {
+			throw new IOException("line too long at offset " + chunkStart);
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart);
+		int size = buffer.limit();
+		long recordCount = 0;
+		int lineStart = 0;
+		while (lineStart < size) {
+			int lineEnd = lineStart;
+			while (lineEnd < size && buffer.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			int contentEnd = (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') ? lineEnd - 1 : lineEnd;
+
+			if (!isBlank(buffer, lineStart, contentEnd)) {
+				recordCount++;
+				long offset = chunkStart + lineStart;
+				boolean match;
+				try {
+					match = Utf8Matcher.testWhole(matcher, buffer, lineStart, contentEnd);
+				} catch (JsonParsingException e) {
+					throw new JsonParsingException("invalid record at offset " + offset + ": " + e.getMessage(), e,
+							e.getLocation());
+				}
+				if (match) {
+					byte[] bytes = new byte[contentEnd - lineStart];
+					buffer.get(lineStart, bytes);
+					sink.accept(new Match(offset, bytes));
+				}
+			}
+			lineStart = lineEnd + 1;
+		}
+		return recordCount;
+	}
+
+	private static boolean isBlank(ByteBuffer buffer, int start, int end)
+	{
+		for (int i = start; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b != ' ' && b != '\t' && b != '\r') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Matches and record count from a range of chunks. */
+	private static final class ChunkResult
+	{
+		final List<Match> matches;
+		final long recordCount;
+
+		ChunkResult(List<Match> matches, long recordCount)
+		{
+			this.matches = matches;
+			this.recordCount = recordCount;
+		}
+	}
+
+	/** Task scanning a range of chunks, by splitting the range in half until only one chunk remains. */
+	private static final class ChunkTask
+	extends RecursiveTask<ChunkResult>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final JsonMatcher<?> matcher;
+		private final FileChannel channel;
+		private final List<Long> boundaries;
+		private final int from;
+		private final int to;
+		private final Consumer<? super Match> consumer;
+
+		ChunkTask(JsonMatcher<?> matcher, FileChannel channel, List<Long> boundaries, int from, int to,
+				Consumer<? super Match> consumer)
+		{
+			this.matcher = matcher;
+			this.channel = channel;
+			this.boundaries = boundaries;
+			this.from = from;
+			this.to = to;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected ChunkResult compute()
+		{
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				ChunkTask second = new ChunkTask(matcher, channel, boundaries, middle, to, consumer);
+				second.fork();
+				ChunkResult first = new ChunkTask(matcher, channel, boundaries, from, middle, consumer).compute();
+				ChunkResult rest = second.join();
+				List<Match> matches = first.matches;
+				if (consumer == null) {
+					matches = new ArrayList<>(first.matches.size() + rest.matches.size());
+					matches.addAll(first.matches);
+					matches.addAll(rest.matches);
+				}
+				return new ChunkResult(matches, first.recordCount + rest.recordCount);
+			}
+
+			if (from == to) {
+				return new ChunkResult(List.of(), 0);	// Empty file.
+			}
+			List<Match> matches = new ArrayList<>();
+			try {
+				long recordCount = scanChunk(matcher, channel, boundaries.get(from), boundaries.get(to),
+						(consumer != null) ? consumer : matches::add);
+				return new ChunkResult(matches, recordCount);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * A matching record.
+	 */
+	public static final class Match
+	{
+		private final long offset;
+		private final byte[] bytes;
+
+		Match(long offset, byte[] bytes)
+		{
+			this.offset = offset;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Get the offset of the start of this record in the file.
+		 * @return the offset in bytes
+		 */
+		public long offset()
+		{
+			return offset;
+		}
+
+		/**
+		 * Get the length of this record in the file, excluding the line terminator.
+		 * @return the length in bytes
+		 */
+		public int length()
+		{
+			return bytes.length;
+		}
+
+		/**
+		 * Get the text of this record, excluding the line terminator.
+		 * @return the record text
+		 */
+		public String text()
+		{
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Parse this record.
+		 * @return the JSON value of the record
+		 */
+		public JsonValue value()
+		{
+			try (JsonReader reader = Json.createReader(new StringReader(text()))) {
+				return reader.readValue();
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			return offset + ": " + text();
+		}
+	}
+
+	/**
+	 * The result of scanning a file.
+	 */
+	public static final class Result
+	{
+		private final List<Match> matches;
+		private final long recordCount;
+		private final long byteCount;
+		private final long elapsedNanos;
+
+		Result(List<Match> matches, long recordCount, long byteCount, long elapsedNanos)
+		{
+			this.matches = Collections.unmodifiableList(matches);
+			this.recordCount = recordCount;
+			this.byteCount = byteCount;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/**
+		 * Get the matching records, in file order. This is empty if the records were passed to a consumer instead.
+		 * @return the matching records
+		 */
+		public List<Match> matches()
+		{
+			return matches;
+		}
+
+		/**
+		 * Get the number of records scanned, excluding blank lines.
+		 * @return the number of records
+		 */
+		public long recordCount()
+		{
+			return recordCount;
+		}
+
+		/**
+		 * Get the size of the file scanned.
+		 * @return the number of bytes scanned
+		 */
+		public long byteCount()
+		{
+			return byteCount;
+		}
+
+		/**
+		 * Get the time taken by the scan, from opening the file until all chunks had been scanned.
+		 * @return the elapsed time in nanoseconds
+		 */
+		public long elapsedNanos()
+		{
+			return elapsedNanos;
+		}
+
+		/**
+		 * Get the throughput of the scan.
+		 * @return the number of bytes scanned per second
+		 */
+		public double bytesPerSecond()
+		{
+			return (elapsedNanos > 0) ? byteCount * 1e9 / elapsedNanos : Double.POSITIVE_INFINITY;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%d records, %d bytes in %.3f ms (%.1f MB/s)",
+					recordCount, byteCount, elapsedNanos / 1e6, bytesPerSecond() / 1e6);
+		}
+	}
+}
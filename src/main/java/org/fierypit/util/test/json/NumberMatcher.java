@@ -0,0 +1,146 @@
+package org.fierypit.util.test.json;
+
+import java.math.BigDecimal;
+
+import javax.json.JsonNumber;
+import javax.json.JsonValue;
+
+/**
+ * Matcher for numbers satisfying a condition checked with primitive arithmetic, created by {@link JsonMatcher#integral()}
+ * and the {@code JsonMatcher.range} methods. These only fall back to {@link BigDecimal} comparison where the primitive
+ * value of a number cannot decide the result exactly.
+ */
+abstract class NumberMatcher
+implements JsonMatcher<JsonNumber>
+{
+	private static final Shape SHAPE = Shape.of(JsonValue.ValueType.NUMBER);
+
+	/** Largest magnitude below which every integer is exactly representable as a double. */
+	private static final double EXACT_DOUBLE_LIMIT = 0x1p53;
+
+	/** Matcher for any integral number. */
+	static final NumberMatcher INTEGRAL = new NumberMatcher() {
+		@Override boolean test(JsonNumber number) {
+			return number.isIntegral();
+		}
+		@Override public String toString() {
+			return "(any integral number)";
+		}
+	};
+
+	@Override
+	public boolean test(JsonValue value)
+	{
+		return value instanceof JsonNumber number && test(number);
+	}
+
+	abstract boolean test(JsonNumber number);
+
+	Shape shape()
+	{
+		return SHAPE;
+	}
+
+	/** Matcher for integral numbers within an inclusive range of long integers. */
+	static final class LongRange
+	extends NumberMatcher
+	{
+		private final long min;
+		private final long max;
+
+		LongRange(long min, long max)
+		{
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		boolean test(JsonNumber number)
+		{
+			if (!number.isIntegral()) {
+				return false;
+			}
+			long value;
+			try {
+				value = number.longValueExact();
+			} catch (ArithmeticException e) {
+				return false;	// Beyond the range of long, so beyond this range too.
+			}
+			return value >= min && value <= max;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj == this || (obj instanceof LongRange other && min == other.min && max == other.max);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Long.hashCode(min) * 31 + Long.hashCode(max);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "(integer " + min + ".." + max + ")";
+		}
+	}
+
+	/**
+	 * Matcher for numbers within an inclusive range of doubles. Rounding to a double is monotonic, so a number whose double
+	 * value lies strictly within or outside the range is certainly within or outside it; only a number whose double value
+	 * equals a bound needs to be compared exactly.
+	 */
+	static final class DoubleRange
+	extends NumberMatcher
+	{
+		private final double min;
+		private final double max;
+		private final BigDecimal exactMin;	// null if min is infinite
+		private final BigDecimal exactMax;	// null if max is infinite
+
+		DoubleRange(double min, double max)
+		{
+			this.min = min;
+			this.max = max;
+			this.exactMin = Double.isInfinite(min) ? null : new BigDecimal(min);
+			this.exactMax = Double.isInfinite(max) ? null : new BigDecimal(max);
+		}
+
+		@Override
+		boolean test(JsonNumber number)
+		{
+			double value = number.doubleValue();
+			if (value > min && value < max) {
+				return true;
+			} else if (value < min || value > max) {
+				return false;
+			} else if (Math.abs(value) < EXACT_DOUBLE_LIMIT && number.isIntegral()) {
+				return true;	// The double value is exact, and equal to a bound.
+			}
+			BigDecimal exact = number.bigDecimalValue();
+			return (exactMin == null || exactMin.compareTo(exact) <= 0) && (exactMax == null || exact.compareTo(exactMax) <= 0);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj == this || (obj instanceof DoubleRange other
+					&& Double.compare(min, other.min) == 0 && Double.compare(max, other.max) == 0);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Double.hashCode(min) * 31 + Double.hashCode(max);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "(number " + min + ".." + max + ")";
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package org.fierypit.util.test.json;
+
+import java.math.BigDecimal;
+
+import javax.json.JsonNumber;
+import javax.json.JsonValue;
+
+/**
+ * Matcher for a single number, with the same semantics as {@link JsonNumber#equals(Object)}: two numbers are equal if their
+ * {@link JsonNumber#bigDecimalValue()}s are equal, including their scales. The expected number is converted once, when the
+ * matcher is created, so that numbers tested can usually be compared without creating a {@link BigDecimal} for them (which
+ * implementations of numbers created from {@code int} and {@code long} values do on demand). In particular, an integer
+ * literal within the range of {@code long} is compared using {@link JsonNumber#isIntegral()} (which is defined as having a
+ * scale of zero) and {@link JsonNumber#longValueExact()}.
+ */
+class NumberValueMatcher
+extends ValueMatcher<JsonNumber>
+{
+	private final BigDecimal decimal;
+	private final boolean isLong;
+	private final long longValue;
+
+	NumberValueMatcher(JsonNumber value)
+	{
+		super(value);
+		this.decimal = value.bigDecimalValue();
+		this.isLong = decimal.scale() == 0 && decimal.unscaledValue().bitLength() < Long.SIZE;
+		this.longValue = isLong ? decimal.longValue() : 0;
+	}
+
+	@Override
+	public boolean test(JsonValue value)
+	{
+		if (!(value instanceof JsonNumber number)) {
+			return false;
+		} else if (decimal.scale() == 0 ? !number.isIntegral() : number.isIntegral()) {
+			return false;	// Different scales.
+		} else if (isLong) {
+			try {
+				return number.longValueExact() == longValue;
+			} catch (ArithmeticException e) {
+				return false;	// Beyond the range of long.
+			}
+		} else {
+			return decimal.equals(number.bigDecimalValue());
+		}
+	}
+}
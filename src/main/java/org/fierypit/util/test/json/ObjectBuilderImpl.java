@@ -2,7 +2,8 @@ package org.fierypit.util.test.json;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.json.JsonObject;
@@ -11,17 +12,40 @@ import javax.json.JsonValue;
 class ObjectBuilderImpl
 implements JsonMatcher.ObjectBuilder
 {
-	private final Map<String, JsonMatcher<?>> expected;
+	// The expected members, which are shared with duplicates of this builder and with the matchers built from it until it is
+	// modified, so that duplicating a builder or building a matcher does not copy them. If shared is set, the map must be
+	// copied before it is modified.
+	private Map<String, JsonMatcher<?>> expected;
+	private boolean shared;
 
 	ObjectBuilderImpl()
 	{
-		this.expected = new HashMap<>();
+		this.expected = new LinkedHashMap<>();
 	}
 
 	/** Private copy constructor for use by {@link #duplicate()}  */
 	private ObjectBuilderImpl(ObjectBuilderImpl orig)
 	{
-		this.expected = new HashMap<>(orig.expected);
+		orig.shared = true;
+		this.expected = orig.expected;
+		this.shared = true;
+	}
+
+	/** Get the expected members for modification, first copying them if they are shared. */
+	private Map<String, JsonMatcher<?>> modifiable()
+	{
+		if (shared) {
+			expected = new LinkedHashMap<>(expected);
+			shared = false;
+		}
+		return expected;
+	}
+
+	/** Get the expected members to be kept by a new matcher, which shares them until this builder is next modified. */
+	private Map<String, JsonMatcher<?>> shared()
+	{
+		shared = true;
+		return Collections.unmodifiableMap(expected);
 	}
 
 	@Override
@@ -81,7 +105,7 @@ implements JsonMatcher.ObjectBuilder
 	@Override
 	public JsonMatcher.ObjectBuilder add(String name, JsonMatcher<?> valueMatcher)
 	{
-		expected.put(name, valueMatcher);
+		modifiable().put(name, valueMatcher);
 		return this;
 	}
 
@@ -97,14 +121,17 @@ implements JsonMatcher.ObjectBuilder
 	@Override
 	public JsonMatcher.ObjectBuilder remove(String name)
 	{
-		expected.remove(name);
+		if (expected.containsKey(name)) {
+			modifiable().remove(name);
+		}
 		return this;
 	}
 
 	@Override
 	public JsonMatcher.ObjectBuilder reset()
 	{
-		expected.clear();
+		expected = new LinkedHashMap<>();
+		shared = false;
 		return this;
 	}
 
@@ -117,12 +144,24 @@ implements JsonMatcher.ObjectBuilder
 	@Override
 	public JsonMatcher<JsonObject> exact()
 	{
-		return new ObjectMatcher(expected, true);
+		return JsonMatcher.intern(new ObjectMatcher(shared(), true));
 	}
 
 	@Override
 	public JsonMatcher<JsonObject> contains()
 	{
-		return new ObjectMatcher(expected, false);
+		return JsonMatcher.intern(new ObjectMatcher(shared(), false));
+	}
+
+	@Override
+	public JsonMatcher.AdaptiveMatcher<JsonObject> exactAdaptive()
+	{
+		return new AdaptiveObjectMatcher(shared(), true);
+	}
+
+	@Override
+	public JsonMatcher.AdaptiveMatcher<JsonObject> containsAdaptive()
+	{
+		return new AdaptiveObjectMatcher(shared(), false);
 	}
 }
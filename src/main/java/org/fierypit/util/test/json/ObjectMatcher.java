@@ -1,7 +1,13 @@
 package org.fierypit.util.test.json;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import javax.json.JsonObject;
@@ -15,11 +21,55 @@ implements JsonMatcher<JsonObject>
 {
 	private final Map<String, JsonMatcher<?>> expected;
 	private final boolean exact;
+	private final Shape shape;
 
+	// The expected members in evaluation order, with the shape of each expected value. The shapes are only checked before
+	// evaluating the matchers if some matcher is not a leaf, since otherwise evaluating the matchers is just as cheap.
+	private final String[] names;
+	private final JsonMatcher<?>[] matchers;
+	private final Shape[] shapes;
+	private final boolean checkShapes;
+	private final Map<String, Integer> indices;
+	private final boolean mayCapture;
+	private final int hashCode;
+
+	// Expected member names encoded for Utf8Matcher, created when first needed. Racing threads may each create one, which is
+	// harmless since they are identical and immutable.
+	private Utf8Matcher.Names utf8Names;
+
+	/**
+	 * Create a matcher for the given expected members. The members are evaluated cheapest first according to {@link Cost}, so
+	 * that a cheap check which fails avoids the need to evaluate expensive nested matchers. Members which may capture are kept
+	 * in the order of the supplied map relative to each other, so that their captures are performed in a predictable order.
+	 * The map is kept rather than copied if it is already in that order, so it must be unmodifiable.
+	 */
 	ObjectMatcher(Map<String, JsonMatcher<?>> expected, boolean exact)
 	{
-		this.expected = Map.copyOf(expected);
+		this.expected = evaluationOrder(expected);
 		this.exact = exact;
+		this.shape = Shape.object(this.expected.keySet(), exact);
+
+		int size = this.expected.size();
+		this.names = new String[size];
+		this.matchers = new JsonMatcher<?>[size];
+		this.shapes = new Shape[size];
+		boolean checkShapes = false;
+		boolean mayCapture = false;
+		Map<String, Integer> indices = new HashMap<>();
+		int i = 0;
+		for (Map.Entry<String, JsonMatcher<?>> entry : this.expected.entrySet()) {
+			names[i] = entry.getKey();
+			indices.put(entry.getKey(), i);
+			matchers[i] = entry.getValue();
+			shapes[i] = Shape.of(entry.getValue());
+			checkShapes |= !Shape.isLeaf(entry.getValue());
+			mayCapture |= Cost.mayCapture(entry.getValue());
+			i++;
+		}
+		this.checkShapes = checkShapes;
+		this.mayCapture = mayCapture;
+		this.hashCode = this.expected.hashCode() * 2 + (exact ? 1 : 0);
+		this.indices = Map.copyOf(indices);
 	}
 
 	@Override
@@ -30,13 +80,13 @@ implements JsonMatcher<JsonObject>
 			return false;
 		}
 
-		if (exact && jsonObject.size() != expected.size()) {
+		if (!testShape(jsonObject)) {
 			return false;
 		}
 
-		for (Map.Entry<String, JsonMatcher<?>> entry : expected.entrySet()) {
-			JsonValue memberValue = jsonObject.get(entry.getKey());
-			if (memberValue == null || !entry.getValue().test(memberValue)) {
+		for (int i = 0; i < names.length; i++) {
+			JsonValue memberValue = jsonObject.get(names[i]);
+			if (memberValue == null || !matchers[i].test(memberValue)) {
 				return false;	// Expected member missing or not matching expectation.
 			}
 		}
@@ -47,6 +97,141 @@ implements JsonMatcher<JsonObject>
 		return true;
 	}
 
+	/** Evaluate within a context, leaving the context unchanged if the value does not match. */
+	boolean test(JsonValue value, MatchContext context)
+	{
+		if (!(value instanceof JsonObject jsonObject) || !testShape(jsonObject)) {
+			return false;
+		}
+
+		int mark = context.mark();
+		for (int i = 0; i < names.length; i++) {
+			JsonValue memberValue = jsonObject.get(names[i]);
+			if (memberValue == null || !MatchContext.test(matchers[i], memberValue, context)) {
+				context.rollback(mark);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Test the size of an object, and if any expected member has a nested matcher which is not a leaf, the presence and shape
+	 * of all expected members. This does not evaluate any nested matchers.
+	 */
+	boolean testShape(JsonObject jsonObject)
+	{
+		if (exact ? jsonObject.size() != names.length : jsonObject.size() < names.length) {
+			return false;
+		}
+
+		if (checkShapes) {
+			// Reject structural mismatches before evaluating any nested matchers.
+			for (int i = 0; i < names.length; i++) {
+				JsonValue memberValue = jsonObject.get(names[i]);
+				if (memberValue == null || !shapes[i].accepts(memberValue)) {
+					return false;	// Expected member missing or of the wrong shape.
+				}
+			}
+		}
+		return true;
+	}
+
+	private static Map<String, JsonMatcher<?>> evaluationOrder(Map<String, JsonMatcher<?>> expected)
+	{
+		// A member which may capture is given at least the cost of the previous such member, so the stable sort cannot move
+		// it ahead of that member.
+		List<Map.Entry<String, JsonMatcher<?>>> entries = new ArrayList<>(expected.entrySet());
+		Map<String, Integer> costs = new HashMap<>();
+		int captureCost = Cost.LITERAL;
+		int previousCost = Integer.MIN_VALUE;
+		boolean ordered = true;
+		for (Map.Entry<String, JsonMatcher<?>> entry : entries) {
+			Objects.requireNonNull(entry.getKey());
+			int cost = Cost.of(Objects.requireNonNull(entry.getValue()));
+			if (Cost.mayCapture(entry.getValue())) {
+				cost = captureCost = Math.max(cost, captureCost);
+			}
+			costs.put(entry.getKey(), cost);
+			ordered &= (cost >= previousCost);
+			previousCost = cost;
+		}
+		if (ordered) {
+			return expected;	// Already in evaluation order, so share it rather than copying it.
+		}
+		entries.sort(Comparator.comparing(entry -> costs.get(entry.getKey())));
+
+		Map<String, JsonMatcher<?>> sorted = new LinkedHashMap<>();
+		entries.forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+		return Collections.unmodifiableMap(sorted);
+	}
+
+	/** Get the expected members, in the order that they are evaluated by {@link #test(JsonValue)}. */
+	Map<String, JsonMatcher<?>> expected()
+	{
+		return expected;
+	}
+
+	Utf8Matcher.Names utf8Names()
+	{
+		Utf8Matcher.Names names = utf8Names;
+		if (names == null) {
+			utf8Names = names = new Utf8Matcher.Names(expected);
+		}
+		return names;
+	}
+
+	/** Get the position of an expected member in the evaluation order, or -1 if there is no member with that name. */
+	int indexOf(String name)
+	{
+		Integer index = indices.get(name);
+		return (index != null) ? index : -1;
+	}
+
+	boolean mayCapture()
+	{
+		return mayCapture;
+	}
+
+	/** Whether {@link #testShape(JsonObject)} checks the members, rather than just the size. */
+	boolean checkShapes()
+	{
+		return checkShapes;
+	}
+
+	boolean isExact()
+	{
+		return exact;
+	}
+
+	Shape shape()
+	{
+		return shape;
+	}
+
+	/**
+	 * Matchers are equal if they have the same class, mode and expected members. If the members may capture, they must also
+	 * be in the same order, since that determines the order of the captures.
+	 */
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this) {
+			return true;
+		} else if (obj == null || obj.getClass() != getClass()) {
+			return false;
+		}
+		ObjectMatcher other = (ObjectMatcher) obj;
+		return hashCode == other.hashCode && exact == other.exact && expected.equals(other.expected)
+				&& (!mayCapture || List.copyOf(expected.keySet()).equals(List.copyOf(other.expected.keySet())));
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
 	@Override
 	public String toString()
 	{
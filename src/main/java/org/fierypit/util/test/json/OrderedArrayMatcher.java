@@ -2,6 +2,7 @@ package org.fierypit.util.test.json;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import javax.json.JsonArray;
@@ -14,24 +15,45 @@ class OrderedArrayMatcher
 implements JsonMatcher<JsonArray>
 {
 	private final List<JsonMatcher<?>> expected;
+	private final Shape shape;
+
+	// The shape of each expected element. These are only checked before evaluating the matchers if some matcher is not a
+	// leaf, since otherwise evaluating the matchers is just as cheap.
+	private final Shape[] shapes;
+	private final boolean checkShapes;
+	private final boolean mayCapture;
+	private final int hashCode;
+
+	// The array size at or above which the elements are checked in parallel.
+	private final int parallelThreshold;
 
 	OrderedArrayMatcher(List<JsonMatcher<?>> expected)
 	{
-		this.expected = List.copyOf(expected);
+		this(expected, ParallelArrays.DISABLED);
+	}
+
+	/** Create a matcher for the given expectations, which are kept rather than copied, so must not be modified later. */
+	OrderedArrayMatcher(List<JsonMatcher<?>> expected, int parallelThreshold)
+	{
+		expected.forEach(Objects::requireNonNull);
+		this.expected = expected;
+		this.parallelThreshold = parallelThreshold;
+		this.shape = Shape.array(this.expected.size(), true);
+		this.shapes = this.expected.stream().map(Shape::of).toArray(Shape[]::new);
+		this.checkShapes = !this.expected.stream().allMatch(Shape::isLeaf);
+		this.mayCapture = this.expected.stream().anyMatch(Cost::mayCapture);
+		this.hashCode = this.expected.hashCode();
 	}
 
 	@Override
 	public boolean test(JsonValue value)
 	{
-		if (!(value instanceof JsonArray jsonArray)) {
-			// Value is not an array.
+		if (!(value instanceof JsonArray jsonArray) || !testShape(jsonArray)) {
 			return false;
 		}
 
-		int expectedSize = expected.size();
-
-		if (jsonArray.size() != expectedSize) {
-			return false;
+		if (jsonArray.size() >= parallelThreshold) {
+			return ParallelArrays.testOrdered(expected, jsonArray, mayCapture, null);
 		}
 
 		Iterator<JsonMatcher<?>> expectedIterator = expected.iterator();
@@ -45,6 +67,86 @@ implements JsonMatcher<JsonArray>
 		return true;
 	}
 
+	/** Evaluate within a context, leaving the context unchanged if the value does not match. */
+	boolean test(JsonValue value, MatchContext context)
+	{
+		if (!(value instanceof JsonArray jsonArray) || !testShape(jsonArray)) {
+			return false;
+		}
+
+		if (jsonArray.size() >= parallelThreshold) {
+			return ParallelArrays.testOrdered(expected, jsonArray, mayCapture, context);
+		}
+
+		int mark = context.mark();
+		for (int i = 0; i < expected.size(); i++) {
+			if (!MatchContext.test(expected.get(i), jsonArray.get(i), context)) {
+				context.rollback(mark);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Test the size of an array, and if any expectation is not a leaf, the shape of each element. */
+	boolean testShape(JsonArray jsonArray)
+	{
+		int expectedSize = expected.size();
+
+		if (jsonArray.size() != expectedSize) {
+			return false;
+		}
+
+		if (checkShapes) {
+			// Reject structural mismatches before evaluating any nested matchers.
+			for (int i = 0; i < expectedSize; i++) {
+				if (!shapes[i].accepts(jsonArray.get(i))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	boolean mayCapture()
+	{
+		return mayCapture;
+	}
+
+	/** Whether {@link #testShape(JsonArray)} checks the elements, rather than just the size. */
+	boolean checkShapes()
+	{
+		return checkShapes;
+	}
+
+	int parallelThreshold()
+	{
+		return parallelThreshold;
+	}
+
+	List<JsonMatcher<?>> expected()
+	{
+		return expected;
+	}
+
+	Shape shape()
+	{
+		return shape;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj == this || (obj instanceof OrderedArrayMatcher other && hashCode == other.hashCode
+				&& expected.equals(other.expected) && parallelThreshold == other.parallelThreshold);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
 	@Override
 	public String toString()
 	{
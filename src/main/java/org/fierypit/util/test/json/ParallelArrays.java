@@ -0,0 +1,275 @@
+package org.fierypit.util.test.json;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.json.JsonArray;
+import javax.json.JsonValue;
+
+/**
+ * Parallel evaluation of the element checks of array matchers, for arrays too large to check efficiently on one thread. The
+ * elements are split into chunks which are checked by {@link RecursiveTask}s in the common {@link ForkJoinPool} (or the pool
+ * of the calling thread, if it is a pool worker), and the remaining chunks stop as soon as the result is known.
+ * <p>
+ * Captures cannot be performed as elements are checked, since the chunks are checked concurrently and in no particular order.
+ * Instead, if the expectations may capture, each chunk records its captures in a {@link MatchContext} of its own, and once the
+ * result is known, the captures of the chunks which contributed to it are performed (or appended to the caller's context) in
+ * element order. Captures are therefore performed in the same order as by sequential evaluation, but only for the elements
+ * finally matched.
+ * <p>
+ * The tasks continue the evaluation of the calling thread: they {@link Budget#enter(Budget) enter} its budget, if it has one,
+ * so that all of the work done by the tasks, including that of any order-independent array matchers nested within the
+ * expectations, is charged to it.
+ */
+final class ParallelArrays
+{
+	/** Threshold which disables parallel evaluation. */
+	static final int DISABLED = Integer.MAX_VALUE;
+
+	/** The minimum number of elements checked by one task. */
+	private static final int MIN_CHUNK_SIZE = 1024;
+
+	/** The number of chunks into which the elements are split for each thread in the pool. */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private ParallelArrays() {}
+
+	/**
+	 * Test each element of an array against the expectation at the same index. The array must be the same size as the
+	 * expectations.
+	 */
+	static boolean testOrdered(List<JsonMatcher<?>> expected, JsonArray jsonArray, boolean mayCapture, MatchContext context)
+	{
+		int size = jsonArray.size();
+		OrderedTask task = new OrderedTask(expected, jsonArray, 0, size, chunkSize(size), mayCapture, Budget.current(),
+				new AtomicBoolean());
+		if (!task.invoke()) {
+			return false;
+		}
+		apply(task.log, context);
+		return true;
+	}
+
+	/**
+	 * Find the first element of an array not yet used which matches an expectation, as a sequential search from the start
+	 * of the array would. Every test of the expectation against an element, on any thread, is counted in the event and
+	 * charged to the budget, if there are any.
+	 * @return the index of the element, or -1 if there is none
+	 */
+	static int findFirst(JsonMatcher<?> matcher, JsonArray jsonArray, long[] used, boolean mayCapture, MatchContext context,
+			SlowMatchEvent event, Budget budget)
+	{
+		int size = jsonArray.size();
+		LongAdder invocations = (event != null) ? new LongAdder() : null;
+		FindTask task = new FindTask(matcher, jsonArray, used, 0, size, chunkSize(size), mayCapture, budget,
+				new AtomicInteger(size), invocations);
+		Found found;
+		try {
+			found = task.invoke();
+		} finally {
+			if (event != null) {
+				event.invocations += invocations.sum();
+			}
+		}
+		if (found == null) {
+			return -1;
+		}
+		apply(found.log, context);
+		return found.index;
+	}
+
+	private static int chunkSize(int size)
+	{
+		ForkJoinPool pool = ForkJoinTask.getPool();
+		int parallelism = (pool != null) ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+		return Math.max(MIN_CHUNK_SIZE, size / (parallelism * CHUNKS_PER_THREAD));
+	}
+
+	/** Perform the captures recorded by the tasks, or append them to the caller's context if there is one. */
+	private static void apply(MatchContext log, MatchContext context)
+	{
+		if (log == null) {
+			return;
+		} else if (context != null) {
+			context.append(log);
+		} else {
+			log.perform();
+		}
+	}
+
+	private static boolean test(JsonMatcher<?> matcher, JsonValue element, MatchContext log)
+	{
+		return (log != null) ? MatchContext.test(matcher, element, log) : matcher.test(element);
+	}
+
+	/** Task checking a range of elements against the expectations at the same indices. */
+	private static final class OrderedTask
+	extends RecursiveTask<Boolean>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final List<JsonMatcher<?>> expected;
+		private final JsonArray jsonArray;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+		private final boolean mayCapture;
+		private final Budget budget;
+		private final AtomicBoolean failed;
+
+		// The captures made within the range, if it matched and the expectations may capture.
+		MatchContext log;
+
+		OrderedTask(List<JsonMatcher<?>> expected, JsonArray jsonArray, int from, int to, int chunkSize, boolean mayCapture,
+				Budget budget, AtomicBoolean failed)
+		{
+			this.expected = expected;
+			this.jsonArray = jsonArray;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.mayCapture = mayCapture;
+			this.budget = budget;
+			this.failed = failed;
+		}
+
+		@Override
+		protected Boolean compute()
+		{
+			if (to - from > chunkSize) {
+				int middle = (from + to) >>> 1;
+				OrderedTask second = new OrderedTask(expected, jsonArray, middle, to, chunkSize, mayCapture, budget, failed);
+				second.fork();
+				OrderedTask first = new OrderedTask(expected, jsonArray, from, middle, chunkSize, mayCapture, budget, failed);
+				boolean match = first.compute() & second.join();
+				if (match && mayCapture) {
+					log = first.log;
+					log.append(second.log);
+				}
+				return match;
+			}
+
+			Budget previous = Budget.enter(budget);
+			try {
+				return testChunk();
+			} finally {
+				Budget.exit(previous);
+			}
+		}
+
+		private boolean testChunk()
+		{
+			MatchContext log = mayCapture ? new MatchContext() : null;
+			for (int i = from; i < to; i++) {
+				if (failed.get()) {
+					return false;	// Another chunk has failed, so the result is already known.
+				}
+				if (!test(expected.get(i), jsonArray.get(i), log)) {
+					failed.set(true);
+					return false;
+				}
+			}
+			this.log = log;
+			return true;
+		}
+	}
+
+	/** An element found by {@link FindTask}, with the captures made by the expectation against it. */
+	private static final class Found
+	{
+		final int index;
+		final MatchContext log;
+
+		Found(int index, MatchContext log)
+		{
+			this.index = index;
+			this.log = log;
+		}
+	}
+
+	/** Task finding the first unused element within a range which matches an expectation. */
+	private static final class FindTask
+	extends RecursiveTask<Found>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final JsonMatcher<?> matcher;
+		private final JsonArray jsonArray;
+		private final long[] used;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+		private final boolean mayCapture;
+		private final Budget budget;
+
+		// The lowest index of a matching element found so far by any task; elements after this need not be checked.
+		private final AtomicInteger best;
+
+		// The number of tests performed by all of the tasks, or null if they are not counted.
+		private final LongAdder invocations;
+
+		FindTask(JsonMatcher<?> matcher, JsonArray jsonArray, long[] used, int from, int to, int chunkSize, boolean mayCapture,
+				Budget budget, AtomicInteger best, LongAdder invocations)
+		{
+			this.matcher = matcher;
+			this.jsonArray = jsonArray;
+			this.used = used;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.mayCapture = mayCapture;
+			this.budget = budget;
+			this.best = best;
+			this.invocations = invocations;
+		}
+
+		@Override
+		protected Found compute()
+		{
+			if (to - from > chunkSize) {
+				int middle = (from + to) >>> 1;
+				FindTask second = new FindTask(matcher, jsonArray, used, middle, to, chunkSize, mayCapture, budget, best,
+						invocations);
+				second.fork();
+				Found first = new FindTask(matcher, jsonArray, used, from, middle, chunkSize, mayCapture, budget, best,
+						invocations).compute();
+				Found rest = second.join();
+				return (first != null) ? first : rest;
+			}
+
+			Budget previous = Budget.enter(budget);
+			try {
+				return findInChunk();
+			} finally {
+				Budget.exit(previous);
+			}
+		}
+
+		private Found findInChunk()
+		{
+			int index = from - 1;
+			while ((index = Scratch.nextClearBit(used, index + 1, to)) < to) {
+				if (index > best.get()) {
+					return null;	// A matching element has been found earlier in the array.
+				}
+				MatchContext log = mayCapture ? new MatchContext() : null;
+				if (invocations != null) {
+					invocations.increment();
+				}
+				if (budget != null) {
+					budget.charge();
+				}
+				if (test(matcher, jsonArray.get(index), log)) {
+					best.accumulateAndGet(index, Math::min);
+					return new Found(index, log);
+				}
+			}
+			return null;
+		}
+	}
+}
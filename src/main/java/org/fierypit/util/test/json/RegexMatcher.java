@@ -0,0 +1,344 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * Matcher for strings which match a regular expression in full. See {@link JsonMatcher#regex(Pattern)}.
+ * <p>
+ * Before running the regular expression engine, each string is checked for the literal text the expression requires: a
+ * literal prefix and suffix, and any literal runs between them, in order. These are found by a conservative scan of the
+ * top-level sequence of the expression, which gives up (requiring nothing further) at any construct it does not fully
+ * understand, so the check can only reject strings the expression would also reject. A {@link Matcher} is kept for each
+ * thread, rather than one being created for each test.
+ */
+class RegexMatcher
+implements JsonMatcher<JsonString>
+{
+	/** Flags which change the meaning of literal characters, and so prevent literal text being extracted. */
+	private static final int LITERAL_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.LITERAL | Pattern.CANON_EQ;
+
+	/** Escapes of control characters, and the characters they represent. */
+	private static final String CONTROL_ESCAPES = "tnrfae";
+	private static final String CONTROL_CHARACTERS = "\t\n\r\f\u0007\u001B";
+
+	/** Escapes of predefined character classes and boundaries, which match no fixed text. */
+	private static final String CLASS_ESCAPES = "dDsSwWhHvVRXbBAGZz";
+
+	private static final Shape SHAPE = Shape.of(JsonValue.ValueType.STRING);
+
+	private final Pattern pattern;
+	private final String prefix;
+	private final String suffix;
+	private final String[] infixes;
+	private final int minimumLength;
+	private final ThreadLocal<Matcher> matchers;
+	private final int hashCode;
+
+	RegexMatcher(Pattern pattern)
+	{
+		this.pattern = pattern;
+		List<String> literals = new ArrayList<>();
+		boolean[] anchored = new boolean[2];
+		if ((pattern.flags() & LITERAL_FLAGS) == 0) {
+			requiredLiterals(pattern.pattern(), literals, anchored);
+		}
+		this.prefix = (anchored[0] && !literals.isEmpty()) ? literals.remove(0) : "";
+		this.suffix = (anchored[1] && !literals.isEmpty()) ? literals.remove(literals.size() - 1) : "";
+		this.infixes = literals.toArray(new String[0]);
+		this.minimumLength = prefix.length() + suffix.length() + literals.stream().mapToInt(String::length).sum();
+		this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+		this.hashCode = pattern.pattern().hashCode() * 31 + pattern.flags();
+	}
+
+	@Override
+	public boolean test(JsonValue value)
+	{
+		if (!(value instanceof JsonString jsonString)) {
+			return false;
+		}
+		String string = jsonString.getString();
+		if (!hasRequiredLiterals(string)) {
+			return false;
+		}
+		Matcher matcher = matchers.get().reset(string);
+		boolean match = matcher.matches();
+		matcher.reset("");	// Do not keep the string reachable from this thread.
+		return match;
+	}
+
+	private boolean hasRequiredLiterals(String string)
+	{
+		if (string.length() < minimumLength || !string.startsWith(prefix) || !string.endsWith(suffix)) {
+			return false;
+		}
+		int from = prefix.length();
+		int limit = string.length() - suffix.length();
+		for (String infix : infixes) {
+			int index = string.indexOf(infix, from);
+			if (index < 0 || index + infix.length() > limit) {
+				return false;
+			}
+			from = index + infix.length();
+		}
+		return true;
+	}
+
+	Pattern pattern()
+	{
+		return pattern;
+	}
+
+	/** Get the literal text required by the expression, for testing: the prefix, the infixes in order, and the suffix. */
+	List<String> requiredLiterals()
+	{
+		List<String> literals = new ArrayList<>();
+		literals.add(prefix);
+		literals.addAll(List.of(infixes));
+		literals.add(suffix);
+		return literals;
+	}
+
+	Shape shape()
+	{
+		return SHAPE;
+	}
+
+	/**
+	 * Find the literal runs required, in order, by a regular expression matched in full. {@code anchored[0]} is set if the
+	 * first run is at the start of the expression, and {@code anchored[1]} if the last run is at its end. Nothing is found
+	 * if the expression contains any alternation, since the runs might then only be required by one alternative.
+	 */
+	private static void requiredLiterals(String regex, List<String> literals, boolean[] anchored)
+	{
+		if (regex.indexOf('|') >= 0) {
+			return;
+		}
+		StringBuilder run = new StringBuilder();
+		boolean atStart = true;	// Whether the current run is at the start of the expression.
+		int i = 0;
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			String literal = null;
+			int next;
+			if (Character.isSurrogate(c)) {
+				break;	// A quantifier would apply to the whole code point, so keep things simple.
+			} else if (c == '\\') {
+				if (i + 1 >= regex.length()) {
+					break;
+				}
+				char escaped = regex.charAt(i + 1);
+				next = i + 2;
+				if (escaped == 'Q') {
+					int end = regex.indexOf("\\E", next);
+					literal = regex.substring(next, (end < 0) ? regex.length() : end);
+					next = (end < 0) ? regex.length() : end + 2;
+					if (literal.isEmpty() || Character.isSurrogate(literal.charAt(literal.length() - 1))) {
+						break;
+					}
+				} else if (!Character.isLetterOrDigit(escaped) && !Character.isSurrogate(escaped)) {
+					literal = String.valueOf(escaped);
+				} else if (CONTROL_ESCAPES.indexOf(escaped) >= 0) {
+					literal = String.valueOf(CONTROL_CHARACTERS.charAt(CONTROL_ESCAPES.indexOf(escaped)));
+				} else if (CLASS_ESCAPES.indexOf(escaped) < 0) {
+					break;	// Character by code, back reference, property or other construct not understood.
+				}
+			} else if (c == '[') {
+				next = skipClass(regex, i);
+			} else if (c == '(') {
+				if (isFlagGroup(regex, i)) {
+					break;	// Flags changed for the rest of the expression.
+				}
+				next = skipGroup(regex, i);
+			} else if (c == '.' || c == '^' || c == '$') {
+				next = i + 1;
+			} else if ("*+?{)]".indexOf(c) >= 0) {
+				break;	// Quantifier without an atom, or unbalanced; leave it to the engine.
+			} else {
+				literal = String.valueOf(c);
+				next = i + 1;
+			}
+			int after = (next < 0) ? -1 : skipQuantifier(regex, next);
+			if (after < 0) {
+				break;
+			}
+
+			if (after == next && literal != null) {
+				run.append(literal);
+			} else if (after == next && ((c == '^' && i == 0) || (c == '$' && after == regex.length()))) {
+				// Redundant anchor, since the expression must match in full.
+			} else {
+				if (literal != null) {
+					// A quantifier applies to the last character only.
+					run.append(literal, 0, literal.length() - 1);
+					char last = literal.charAt(literal.length() - 1);
+					if (regex.charAt(next) == '+' || (regex.charAt(next) == '{' && !isZeroMinimum(regex, next))) {
+						run.append(last);
+					}
+				}
+				if (!(literal != null && isExactlyOnce(regex, next))) {
+					endRun(run, literals, anchored, atStart);
+					atStart = false;
+				}
+			}
+			i = after;
+		}
+		if (run.length() > 0) {
+			anchored[1] = i >= regex.length();
+			endRun(run, literals, anchored, atStart);
+		}
+	}
+
+	private static void endRun(StringBuilder run, List<String> literals, boolean[] anchored, boolean atStart)
+	{
+		if (run.length() > 0) {
+			if (literals.isEmpty() && atStart) {
+				anchored[0] = true;
+			}
+			literals.add(run.toString());
+			run.setLength(0);
+		}
+	}
+
+	/** Whether the quantifier at {@code index}, if any, means exactly once. */
+	private static boolean isExactlyOnce(String regex, int index)
+	{
+		return regex.startsWith("{1}", index);
+	}
+
+	private static boolean isQuantifier(String regex, int index)
+	{
+		return index < regex.length() && "*+?{".indexOf(regex.charAt(index)) >= 0;
+	}
+
+	/** Whether the brace quantifier at {@code index} allows zero repetitions. */
+	private static boolean isZeroMinimum(String regex, int index)
+	{
+		int i = index + 1;
+		while (i < regex.length() && regex.charAt(i) == '0') {
+			i++;
+		}
+		return i > index + 1 && (i >= regex.length() || !Character.isDigit(regex.charAt(i)));
+	}
+
+	/** Skip any quantifier at {@code index}, including a lazy or possessive suffix, or return -1 if it is malformed. */
+	private static int skipQuantifier(String regex, int index)
+	{
+		if (!isQuantifier(regex, index)) {
+			return index;
+		}
+		int i = index;
+		if (regex.charAt(i) == '{') {
+			i = regex.indexOf('}', i);
+			if (i < 0) {
+				return -1;
+			}
+		}
+		i++;
+		if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+			i++;
+		}
+		return i;
+	}
+
+	/** Whether the group at {@code index} only sets flags for the rest of the enclosing group, as in {@code (?i)}. */
+	private static boolean isFlagGroup(String regex, int index)
+	{
+		if (!regex.startsWith("(?", index)) {
+			return false;
+		}
+		int i = index + 2;
+		while (i < regex.length() && (Character.isLetter(regex.charAt(i)) || regex.charAt(i) == '-')) {
+			i++;
+		}
+		return i > index + 2 && i < regex.length() && regex.charAt(i) == ')';
+	}
+
+	/** Skip the group starting at {@code index}, returning the index after it, or -1 if it is not closed. */
+	private static int skipGroup(String regex, int index)
+	{
+		int depth = 0;
+		int i = index;
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				i = skipEscape(regex, i);
+				continue;
+			} else if (c == '[') {
+				i = skipClass(regex, i);
+				if (i < 0) {
+					return -1;
+				}
+				continue;
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')' && --depth == 0) {
+				return i + 1;
+			}
+			i++;
+		}
+		return -1;
+	}
+
+	/** Skip the character class starting at {@code index}, returning the index after it, or -1 if it is not closed. */
+	private static int skipClass(String regex, int index)
+	{
+		int i = index + 1;
+		if (i < regex.length() && regex.charAt(i) == '^') {
+			i++;
+		}
+		if (i < regex.length() && regex.charAt(i) == ']') {
+			i++;	// A leading ] is literal.
+		}
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				i = skipEscape(regex, i);
+			} else if (c == '[') {
+				i = skipClass(regex, i);
+				if (i < 0) {
+					return -1;
+				}
+			} else if (c == ']') {
+				return i + 1;
+			} else {
+				i++;
+			}
+		}
+		return -1;
+	}
+
+	/** Skip the escape starting at {@code index}, including the whole of a quoted sequence. */
+	private static int skipEscape(String regex, int index)
+	{
+		if (regex.startsWith("\\Q", index)) {
+			int end = regex.indexOf("\\E", index + 2);
+			return (end < 0) ? regex.length() : end + 2;
+		}
+		return Math.min(index + 2, regex.length());
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj == this || (obj instanceof RegexMatcher other && hashCode == other.hashCode
+				&& pattern.flags() == other.pattern.flags() && pattern.pattern().equals(other.pattern.pattern()));
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "(regex:" + pattern.pattern() + ")";
+	}
+}
@@ -0,0 +1,110 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Working storage for a single evaluation of an array matcher, taken from a per-thread pool so that matching does not need to
+ * allocate on every call. Matchers may be nested, so each thread has a stack of these: an evaluation takes one from the pool with
+ * {@link #acquire()}, and returns it when it is closed. Arrays larger than {@link #MAX_POOLED_LENGTH} are not retained, so that
+ * matching one very large array does not pin a large amount of memory to the thread afterwards.
+ */
+final class Scratch
+implements AutoCloseable
+{
+	private static final int MAX_POOLED_LENGTH = 1 << 16;
+	private static final int SLOTS = 11;
+
+	private static final ThreadLocal<ArrayDeque<Scratch>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+	private final long[][] longs = new long[SLOTS][];
+	private final int[][] ints = new int[SLOTS][];
+
+	private Scratch() {}
+
+	static Scratch acquire()
+	{
+		Scratch scratch = POOL.get().pollFirst();
+		return (scratch != null) ? scratch : new Scratch();
+	}
+
+	@Override
+	public void close()
+	{
+		POOL.get().addFirst(this);
+	}
+
+	/** Get a zeroed {@code long} array of at least the given length, for the given slot. */
+	long[] longs(int slot, int length)
+	{
+		long[] array = longs[slot];
+		if (array == null || array.length < length) {
+			array = new long[length];
+			if (length <= MAX_POOLED_LENGTH) {
+				longs[slot] = array;
+			}
+		} else {
+			Arrays.fill(array, 0, length, 0L);
+		}
+		return array;
+	}
+
+	/** Get an {@code int} array of at least the given length, for the given slot. The contents are undefined. */
+	int[] ints(int slot, int length)
+	{
+		int[] array = ints[slot];
+		if (array == null || array.length < length) {
+			array = new int[length];
+			if (length <= MAX_POOLED_LENGTH) {
+				ints[slot] = array;
+			}
+		}
+		return array;
+	}
+
+	/** Grow an {@code int} array obtained from {@link #ints(int, int)}, preserving its contents. */
+	int[] grow(int slot, int[] array, int length)
+	{
+		int[] grown = Arrays.copyOf(array, length);
+		if (length <= MAX_POOLED_LENGTH) {
+			ints[slot] = grown;
+		}
+		return grown;
+	}
+
+	/** Get a zeroed bit set able to hold the given number of bits, for the given slot. */
+	long[] bits(int slot, int bitCount)
+	{
+		return longs(slot, (bitCount + 63) >>> 6);
+	}
+
+	static boolean get(long[] bits, int index)
+	{
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	static void set(long[] bits, int index)
+	{
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	/** Find the index of the first clear bit at or after {@code from}, or a value of at least {@code limit} if there is none. */
+	static int nextClearBit(long[] bits, int from, int limit)
+	{
+		int wordIndex = from >>> 6;
+		int wordLimit = (limit + 63) >>> 6;
+		if (wordIndex >= wordLimit) {
+			return limit;
+		}
+		long word = ~bits[wordIndex] & (-1L << from);
+		while (true) {
+			if (word != 0) {
+				return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+			}
+			if (++wordIndex == wordLimit) {
+				return limit;
+			}
+			word = ~bits[wordIndex];
+		}
+	}
+}
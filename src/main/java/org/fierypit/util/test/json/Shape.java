@@ -0,0 +1,190 @@
+package org.fierypit.util.test.json;
+
+import java.util.Collection;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+/**
+ * Summary of the structure of the values a matcher can possibly match: the JSON value types it accepts, the range of sizes of
+ * arrays and objects it accepts, and the names of the members any object must contain. Checking a value against the shape of a
+ * matcher is cheap (it never invokes another matcher), so the object and array matchers check every member or element against
+ * the shape of its matcher before they evaluate any of the matchers themselves. This means that most structural mismatches (an
+ * unexpected type, a missing member, or the wrong number of elements) are found without evaluating any nested matchers.
+ */
+final class Shape
+{
+	private static final int ALL_TYPES = (1 << JsonValue.ValueType.values().length) - 1;
+
+	/** Shape of a matcher about which nothing is known. */
+	static final Shape ANY = new Shape(ALL_TYPES, 0, Integer.MAX_VALUE, new String[0]);
+
+	private final int types;	// bit N is set iff ValueType with ordinal N is accepted
+	private final int minSize;
+	private final int maxSize;
+	private final String[] requiredMembers;
+
+	private Shape(int types, int minSize, int maxSize, String[] requiredMembers)
+	{
+		this.types = types;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.requiredMembers = requiredMembers;
+	}
+
+	/** Shape of a matcher which accepts only the given types. */
+	static Shape of(JsonValue.ValueType... valueTypes)
+	{
+		int types = 0;
+		for (JsonValue.ValueType valueType : valueTypes) {
+			types |= bit(valueType);
+		}
+		return new Shape(types, 0, Integer.MAX_VALUE, new String[0]);
+	}
+
+	/** Shape of a matcher for objects, which must contain the given members. */
+	static Shape object(Collection<String> requiredMembers, boolean exact)
+	{
+		int size = requiredMembers.size();
+		return new Shape(bit(JsonValue.ValueType.OBJECT), size, exact ? size : Integer.MAX_VALUE,
+				requiredMembers.toArray(new String[0]));
+	}
+
+	/** Shape of a matcher for arrays, with the given number of expected elements. */
+	static Shape array(int size, boolean exact)
+	{
+		return new Shape(bit(JsonValue.ValueType.ARRAY), size, exact ? size : Integer.MAX_VALUE, new String[0]);
+	}
+
+	/** Shape of a matcher matching one exact value. */
+	static Shape literal(JsonValue value)
+	{
+		if (value instanceof JsonObject jsonObject) {
+			return object(jsonObject.keySet(), true);
+		} else if (value instanceof JsonArray jsonArray) {
+			return array(jsonArray.size(), true);
+		} else {
+			return of(value.getValueType());
+		}
+	}
+
+	/** Get the shape of any matcher. Custom matchers are assumed to be able to match anything. */
+	static Shape of(JsonMatcher<?> matcher)
+	{
+		if (matcher instanceof ValueMatcher<?> valueMatcher) {
+			return valueMatcher.shape();
+		} else if (matcher instanceof AnyMatcher<?> anyMatcher) {
+			return anyMatcher.shape();
+		} else if (matcher instanceof RegexMatcher regexMatcher) {
+			return regexMatcher.shape();
+		} else if (matcher instanceof NumberMatcher numberMatcher) {
+			return numberMatcher.shape();
+		} else if (matcher instanceof ObjectMatcher objectMatcher) {
+			return objectMatcher.shape();
+		} else if (matcher instanceof OrderedArrayMatcher arrayMatcher) {
+			return arrayMatcher.shape();
+		} else if (matcher instanceof UnorderedArrayMatcher arrayMatcher) {
+			return arrayMatcher.shape();
+		} else if (matcher instanceof BipartiteArrayMatcher arrayMatcher) {
+			return arrayMatcher.shape();
+		} else if (matcher instanceof DelegatingMatcher<?> delegatingMatcher) {
+			return of(delegatingMatcher.delegate());
+		} else {
+			return ANY;
+		}
+	}
+
+	/**
+	 * Whether a matcher is cheap to evaluate, and never evaluates other matchers: checking such a matcher's shape before
+	 * evaluating it gains nothing.
+	 */
+	static boolean isLeaf(JsonMatcher<?> matcher)
+	{
+		return matcher instanceof ValueMatcher || matcher instanceof AnyMatcher || matcher instanceof RegexMatcher
+				|| matcher instanceof NumberMatcher;
+	}
+
+	/** Whether this shape accepts values of one type only; if so, {@link #singleType()} gives it. */
+	boolean isSingleType()
+	{
+		return Integer.bitCount(types) == 1;
+	}
+
+	/** Get the ordinal of the only type accepted by this shape. */
+	int singleType()
+	{
+		return Integer.numberOfTrailingZeros(types);
+	}
+
+	/** Test whether this shape accepts values of a type, ignoring any constraints on size and members. */
+	boolean acceptsType(JsonValue.ValueType valueType)
+	{
+		return (types & bit(valueType)) != 0;
+	}
+
+	/** Test whether a value has this shape. A value with this shape may or may not match; a value without it cannot. */
+	boolean accepts(JsonValue value)
+	{
+		if ((types & bit(value.getValueType())) == 0) {
+			return false;
+		}
+		if (value instanceof JsonObject jsonObject) {
+			int size = jsonObject.size();
+			if (size < minSize || size > maxSize) {
+				return false;
+			}
+			for (String name : requiredMembers) {
+				if (!jsonObject.containsKey(name)) {
+					return false;
+				}
+			}
+		} else if (value instanceof JsonArray jsonArray) {
+			int size = jsonArray.size();
+			return size >= minSize && size <= maxSize;
+		}
+		return true;
+	}
+
+	/**
+	 * Check whether the elements of an array could possibly satisfy a set of order-independent expectations, by counting the
+	 * elements of each type. For every type, there must be at least as many elements of that type as there are expectations
+	 * which only accept that type.
+	 * @param singleTypeCounts for each type ordinal, the number of expectations which only accept that type
+	 * @param elementCounts working storage, of length at least the number of types
+	 */
+	static boolean typesAvailable(int[] singleTypeCounts, JsonArray jsonArray, int[] elementCounts)
+	{
+		int typeCount = singleTypeCounts.length;
+		for (int i = 0; i < typeCount; i++) {
+			elementCounts[i] = 0;
+		}
+		for (JsonValue element : jsonArray) {
+			elementCounts[element.getValueType().ordinal()]++;
+		}
+		for (int i = 0; i < typeCount; i++) {
+			if (elementCounts[i] < singleTypeCounts[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Count, for each type ordinal, the matchers which only accept values of that type. */
+	static int[] singleTypeCounts(Collection<JsonMatcher<?>> matchers)
+	{
+		int[] counts = new int[JsonValue.ValueType.values().length];
+		for (JsonMatcher<?> matcher : matchers) {
+			Shape shape = of(matcher);
+			if (shape.isSingleType()) {
+				counts[shape.singleType()]++;
+			}
+		}
+		return counts;
+	}
+
+	private static int bit(JsonValue.ValueType valueType)
+	{
+		return 1 << valueType.ordinal();
+	}
+}
@@ -0,0 +1,118 @@
+package org.fierypit.util.test.json;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder event recording an evaluation of an order-independent array matcher which took longer than the event's
+ * threshold. These are the matchers whose cost grows with the product of the number of expectations and the size of the
+ * array, so are the usual cause of pathologically slow matches.
+ * <p>
+ * The event is named {@value #NAME}, and is enabled with a threshold of 10 ms by default whenever a recording is running. The
+ * threshold can be changed like that of any other event, for example with
+ * {@code jdk.jfr.Recording.enable(SlowMatchEvent.class).withThreshold(duration)}, or in a {@code .jfc} settings file. When
+ * no recording with the event enabled is running, the event is not created and invocations are not counted, so evaluations
+ * do not allocate; the details below are only gathered for evaluations which are slow enough to be recorded.
+ */
+@Name(SlowMatchEvent.NAME)
+@Label("Slow JSON Match")
+@Category({ "JSON Matcher" })
+@Description("Evaluation of an order-independent JSON array matcher exceeding the threshold")
+@Threshold("10 ms")
+@StackTrace(true)
+public final class SlowMatchEvent
+extends Event
+{
+	/** The name of the event type. */
+	public static final String NAME = "org.fierypit.util.test.json.SlowMatch";
+
+	/** Longest matcher description recorded; longer descriptions are truncated. */
+	private static final int MAX_DESCRIPTION_LENGTH = 1024;
+
+	@Label("Matcher")
+	@Description("Description of the matcher, possibly truncated")
+	String matcher;
+
+	@Label("Matched")
+	boolean matched;
+
+	@Label("Value Size")
+	@Description("Number of JSON values in the value tested, including itself and everything nested within it")
+	long valueSize;
+
+	@Label("Array Size")
+	@Description("Number of elements in the array tested")
+	int arraySize;
+
+	@Label("Expectations")
+	@Description("Number of expectations of the matcher")
+	int expectations;
+
+	@Label("Invocations")
+	@Description("Number of times nested matchers were evaluated against elements")
+	long invocations;
+
+	SlowMatchEvent() {}
+
+	/**
+	 * Start timing an evaluation, returning the event to count invocations in and pass the details to, or {@code null} if the
+	 * event is not enabled in any running recording.
+	 */
+	static SlowMatchEvent beginIfEnabled()
+	{
+		if (!Type.TYPE.isEnabled()) {
+			return null;
+		}
+		SlowMatchEvent event = new SlowMatchEvent();
+		event.begin();
+		return event;
+	}
+
+	/** Finish timing, and record the event with its details if it took long enough. */
+	void commit(JsonMatcher<?> matcher, JsonArray jsonArray, int expectations, boolean matched)
+	{
+		end();
+		if (shouldCommit()) {
+			String description = matcher.toString();
+			this.matcher = (description.length() > MAX_DESCRIPTION_LENGTH)
+					? description.substring(0, MAX_DESCRIPTION_LENGTH) + "..."
+					: description;
+			this.matched = matched;
+			this.valueSize = size(jsonArray);
+			this.arraySize = jsonArray.size();
+			this.expectations = expectations;
+			commit();
+		}
+	}
+
+	/** Holder of the event type, registered when first used rather than while this class is being initialized. */
+	private static final class Type
+	{
+		static final EventType TYPE = EventType.getEventType(SlowMatchEvent.class);
+	}
+
+	private static long size(JsonValue value)
+	{
+		long size = 1;
+		if (value instanceof JsonObject jsonObject) {
+			for (JsonValue member : jsonObject.values()) {
+				size += size(member);
+			}
+		} else if (value instanceof JsonArray jsonArray) {
+			for (JsonValue element : jsonArray) {
+				size += size(element);
+			}
+		}
+		return size;
+	}
+}
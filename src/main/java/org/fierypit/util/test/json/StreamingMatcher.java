@@ -0,0 +1,139 @@
+package org.fierypit.util.test.json;
+
+import java.util.List;
+
+import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+
+/**
+ * Evaluates a matcher tree directly against the events from a {@link JsonParser}, without building the value being matched.
+ * <p>
+ * Object matchers and ordered array matchers are driven from the parser events, and fixed scalar values and type checks are
+ * tested against the current event. Members of an object which are not referenced by a {@code contains} matcher are skipped
+ * with {@link JsonParser#skipObject()} or {@link JsonParser#skipArray()} without being built. Matching stops as soon as the
+ * result is known: at the first member or element that does not match, or the first unexpected member of an exact matcher.
+ * Any other matcher (order-independent array matchers, captures, custom matchers, and fixed objects and arrays) is tested
+ * against the value built from the parser with {@link JsonParser#getValue()}, so only the parts of the input that such
+ * matchers need are ever built.
+ * <p>
+ * Object members are matched in the order in which they appear in the input, rather than the order used by
+ * {@link ObjectMatcher#test(JsonValue)}, so captures are performed in input order. If a member name appears more than once
+ * in an object, every occurrence must match.
+ */
+final class StreamingMatcher
+{
+	private static final int SEEN_SLOT = 0;
+
+	private StreamingMatcher() {}
+
+	/** Match the next value from a parser. */
+	static boolean test(JsonMatcher<?> matcher, JsonParser parser)
+	{
+		return match(matcher, parser.next(), parser);
+	}
+
+	/**
+	 * Match the value starting with the current event. On return, the parser is positioned at the last event of the value if
+	 * the result is {@code true}, and at some unspecified event within the value if the result is {@code false}.
+	 */
+	private static boolean match(JsonMatcher<?> matcher, Event event, JsonParser parser)
+	{
+		if (matcher instanceof CompiledMatcher<?> compiledMatcher) {
+			matcher = compiledMatcher.delegate();
+		}
+
+		if (matcher instanceof ObjectMatcher objectMatcher) {
+			return matchObject(objectMatcher, event, parser);
+		} else if (matcher instanceof OrderedArrayMatcher arrayMatcher) {
+			return matchArray(arrayMatcher, event, parser);
+		} else if (matcher instanceof AnyMatcher<?> anyMatcher) {
+			skip(event, parser);
+			return anyMatcher.shape().acceptsType(valueType(event));
+		} else if (matcher instanceof ValueMatcher<?> valueMatcher && LiteralLookup.isScalar(valueMatcher.value())) {
+			if (!valueMatcher.shape().acceptsType(valueType(event))) {
+				skip(event, parser);
+				return false;
+			}
+			return valueMatcher.test(parser.getValue());
+		} else {
+			return matcher.test(parser.getValue());
+		}
+	}
+
+	private static boolean matchObject(ObjectMatcher matcher, Event event, JsonParser parser)
+	{
+		if (event != Event.START_OBJECT) {
+			skip(event, parser);
+			return false;	// Not an object.
+		}
+
+		int expectedSize = matcher.expected().size();
+		try (Scratch scratch = Scratch.acquire()) {
+			// Bit N of seen is set iff the member at position N of the evaluation order has been found.
+			long[] seen = scratch.bits(SEEN_SLOT, expectedSize);
+			int found = 0;
+			while ((event = parser.next()) == Event.KEY_NAME) {
+				String name = parser.getString();
+				int index = matcher.indexOf(name);
+				if (index < 0) {
+					if (matcher.isExact()) {
+						return false;	// Unexpected member.
+					}
+					skip(parser.next(), parser);
+				} else {
+					if (!match(matcher.expected().get(name), parser.next(), parser)) {
+						return false;	// Expected member not matching expectation.
+					}
+					if (!Scratch.get(seen, index)) {
+						Scratch.set(seen, index);
+						found++;
+					}
+				}
+			}
+			return found == expectedSize;	// Otherwise, some expected member is missing.
+		}
+	}
+
+	private static boolean matchArray(OrderedArrayMatcher matcher, Event event, JsonParser parser)
+	{
+		if (event != Event.START_ARRAY) {
+			skip(event, parser);
+			return false;	// Not an array.
+		}
+
+		List<JsonMatcher<?>> expected = matcher.expected();
+		int index = 0;
+		while ((event = parser.next()) != Event.END_ARRAY) {
+			if (index == expected.size() || !match(expected.get(index), event, parser)) {
+				return false;	// Too many elements, or element not matching expectation.
+			}
+			index++;
+		}
+		return index == expected.size();
+	}
+
+	/** Skip the value starting with the current event, leaving the parser at the last event of the value. */
+	private static void skip(Event event, JsonParser parser)
+	{
+		if (event == Event.START_OBJECT) {
+			parser.skipObject();
+		} else if (event == Event.START_ARRAY) {
+			parser.skipArray();
+		}
+	}
+
+	private static JsonValue.ValueType valueType(Event event)
+	{
+		return switch (event) {
+			case START_OBJECT -> JsonValue.ValueType.OBJECT;
+			case START_ARRAY -> JsonValue.ValueType.ARRAY;
+			case VALUE_STRING -> JsonValue.ValueType.STRING;
+			case VALUE_NUMBER -> JsonValue.ValueType.NUMBER;
+			case VALUE_TRUE -> JsonValue.ValueType.TRUE;
+			case VALUE_FALSE -> JsonValue.ValueType.FALSE;
+			case VALUE_NULL -> JsonValue.ValueType.NULL;
+			default -> throw new IllegalStateException("parser is not positioned at the start of a value: " + event);
+		};
+	}
+}
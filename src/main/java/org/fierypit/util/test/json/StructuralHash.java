@@ -0,0 +1,175 @@
+package org.fierypit.util.test.json;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * 64-bit hash of the structure and content of JSON values, consistent with {@link JsonValue#equals(Object)}: equal values
+ * have equal hashes, so values with different hashes are certainly not equal. Object members are hashed independently of
+ * their order, as object equality is that of {@link Map}, and numbers are hashed consistently with
+ * {@link JsonNumber#equals(Object)} without creating a {@link java.math.BigDecimal} for integers within the range of
+ * {@code long}.
+ * <p>
+ * JSON values are immutable, so the hashes of large objects and arrays are remembered in a direct-mapped table addressed
+ * by the identity hash code of each value, as in {@link CachedMatcher}. Hashing a large value again, or a value containing a
+ * large value already hashed, therefore only costs a lookup for that part. The table also remembers a large value which
+ * another has been found {@link #rememberEqual(JsonValue, JsonValue) equal} to, so that the comparison need not be repeated.
+ */
+final class StructuralHash
+{
+	/** Smallest number of values in an object or array (including itself) for its hash to be remembered. */
+	static final int MIN_CACHED_SIZE = 64;
+
+	private static final int CACHE_SIZE = 1024;
+	private static final AtomicReferenceArray<Entry> CACHE = new AtomicReferenceArray<>(CACHE_SIZE);
+
+	private static final long OBJECT_SEED = 0x9E3779B97F4A7C15L;
+	private static final long ARRAY_SEED = 0xC2B2AE3D27D4EB4FL;
+	private static final long MULTIPLIER = 0x100000001B3L;
+
+	private StructuralHash() {}
+
+	/** Get the hash of a value. */
+	static long of(JsonValue value)
+	{
+		return hash(value, new long[1]);
+	}
+
+	/**
+	 * Get the hash of a value, in the same pass adding the number of values in it (including itself and everything nested
+	 * within it) to {@code size[0]}.
+	 */
+	static long of(JsonValue value, long[] size)
+	{
+		return hash(value, size);
+	}
+
+	/**
+	 * Get whether a large value has been found equal to another by {@link #rememberEqual(JsonValue, JsonValue)}, and is still
+	 * remembered.
+	 */
+	static boolean knownEqual(JsonValue value, JsonValue other)
+	{
+		Entry entry = CACHE.get(slot(value));
+		if (entry == null || entry.get() != value) {
+			return false;
+		}
+		WeakReference<JsonValue> equal = entry.equal;
+		return (equal != null && equal.get() == other);
+	}
+
+	/**
+	 * Remember that a value which has been hashed is equal to another, replacing any value previously remembered as equal to
+	 * it. This has no effect if the hash of the value is not remembered, either because the value is small or because it has
+	 * since been replaced in the table.
+	 */
+	static void rememberEqual(JsonValue value, JsonValue other)
+	{
+		Entry entry = CACHE.get(slot(value));
+		if (entry != null && entry.get() == value) {
+			entry.equal = new WeakReference<>(other);
+		}
+	}
+
+	/** Hash a value, adding the number of values in it to {@code size[0]}. */
+	private static long hash(JsonValue value, long[] size)
+	{
+		if (value instanceof JsonObject || value instanceof JsonArray) {
+			int slot = slot(value);
+			Entry entry = CACHE.get(slot);
+			if (entry != null && entry.get() == value) {
+				size[0] += entry.size;
+				return entry.hash;
+			}
+			long start = size[0];
+			long hash = (value instanceof JsonObject jsonObject)
+					? hashObject(jsonObject, size)
+					: hashArray((JsonArray) value, size);
+			long valueSize = size[0] - start;
+			if (valueSize >= MIN_CACHED_SIZE) {
+				CACHE.set(slot, new Entry(value, hash, valueSize));
+			}
+			return hash;
+		}
+
+		size[0]++;
+		return switch (value.getValueType()) {
+			case STRING -> mix(((JsonString) value).getString().hashCode());
+			case NUMBER -> mix(hashNumber((JsonNumber) value));
+			default -> mix(value.getValueType().ordinal() + 1);
+		};
+	}
+
+	private static long hashObject(JsonObject jsonObject, long[] size)
+	{
+		size[0]++;
+		long hash = OBJECT_SEED;
+		for (Map.Entry<String, JsonValue> member : jsonObject.entrySet()) {
+			hash += mix(member.getKey().hashCode() * MULTIPLIER + hash(member.getValue(), size));
+		}
+		return mix(hash);
+	}
+
+	private static long hashArray(JsonArray jsonArray, long[] size)
+	{
+		size[0]++;
+		long hash = ARRAY_SEED;
+		for (JsonValue element : jsonArray) {
+			hash = hash * MULTIPLIER + hash(element, size);
+		}
+		return mix(hash);
+	}
+
+	/** Hash a number. Equal numbers have the same scale, so are either both integers within range of long, or neither. */
+	private static long hashNumber(JsonNumber number)
+	{
+		if (number.isIntegral()) {
+			try {
+				return number.longValueExact();
+			} catch (ArithmeticException e) {
+				// Beyond the range of long.
+			}
+		}
+		return number.bigDecimalValue().hashCode() * MULTIPLIER + 1;
+	}
+
+	/** Final mixing step of MurmurHash3, so that similar inputs give very different hashes. */
+	private static long mix(long hash)
+	{
+		hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+		hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return hash ^ (hash >>> 33);
+	}
+
+	private static int slot(JsonValue value)
+	{
+		int hash = System.identityHashCode(value);
+		return (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+	}
+
+	/** A remembered hash, weakly referring to the value hashed. */
+	private static final class Entry
+	extends WeakReference<JsonValue>
+	{
+		final long hash;
+		final long size;
+
+		// Weak reference to the last value found equal to the value hashed. Racing threads may each replace it, which is
+		// harmless.
+		volatile WeakReference<JsonValue> equal;
+
+		Entry(JsonValue value, long hash, long size)
+		{
+			super(value);
+			this.hash = hash;
+			this.size = size;
+		}
+	}
+}
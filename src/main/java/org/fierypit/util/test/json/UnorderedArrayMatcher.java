@@ -1,7 +1,9 @@
 package org.fierypit.util.test.json;
 
-import java.util.BitSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import javax.json.JsonArray;
@@ -13,39 +15,178 @@ import javax.json.JsonValue;
 class UnorderedArrayMatcher
 implements JsonMatcher<JsonArray>
 {
+	/**
+	 * The minimum number of fixed scalar expectations, and minimum array size, for which the hash lookup is used to find the
+	 * elements matching those expectations. Below this, building the lookup costs more than it saves.
+	 */
+	private static final int MIN_LITERALS_FOR_LOOKUP = 2;
+	private static final int MIN_SIZE_FOR_LOOKUP = 8;
+
+	/** Upper limit on the size of the memo matrix; beyond this, repeated expectations are simply tested again. */
+	private static final long MAX_MEMO_BITS = 1L << 27;
+
+	private static final int USED_SLOT = 0;
+	private static final int MEMO_SLOT = 1;
+	private static final int TYPE_COUNTS_SLOT = 0;
+	private static final int LITERAL_INDEX_SLOT = 1;
+
 	private final List<JsonMatcher<?>> expected;
 	private final boolean exact;
+	private final Shape shape;
+
+	// For each type, the number of expectations which only accept values of that type, or null if no expectation is complex
+	// enough for counting the element types before evaluating any matchers to be worthwhile.
+	private final int[] singleTypeCounts;
+
+	// Expectations which are fixed scalar values, which can be found by hash lookup rather than a linear search. Each distinct
+	// value has an id, and the entries in literalIds are -1 for expectations which are not fixed scalars.
+	private final int[] literalIds;
+	private final Map<JsonValue, Integer> literals;
+
+	// Expectations which occur more than once (the same matcher instance added repeatedly) have their results against each
+	// element remembered, so that each distinct matcher is tested against each element at most once. The entries in memoRows
+	// give the row of the memo matrix for each expectation, or -1 if the expectation is not memoized.
+	private final int[] memoRows;
+	private final int memoRowCount;
+
+	private final boolean mayCapture;
+	private final int hashCode;
+
+	// The array size at or above which the search for the element matching each expectation is made in parallel.
+	private final int parallelThreshold;
 
 	UnorderedArrayMatcher(List<JsonMatcher<?>> expected, boolean exact)
 	{
-		this.expected = List.copyOf(expected);
+		this(expected, exact, ParallelArrays.DISABLED);
+	}
+
+	/** Create a matcher for the given expectations, which are kept rather than copied, so must not be modified later. */
+	UnorderedArrayMatcher(List<JsonMatcher<?>> expected, boolean exact, int parallelThreshold)
+	{
+		expected.forEach(Objects::requireNonNull);
+		this.expected = expected;
 		this.exact = exact;
+		this.parallelThreshold = parallelThreshold;
+		this.shape = Shape.array(this.expected.size(), exact);
+		this.singleTypeCounts = this.expected.stream().allMatch(Shape::isLeaf) ? null : Shape.singleTypeCounts(this.expected);
+
+		this.literalIds = new int[this.expected.size()];
+		this.literals = LiteralLookup.assignIds(this.expected, literalIds);
+
+		Map<JsonMatcher<?>, Integer> occurrences = new IdentityHashMap<>();
+		this.expected.forEach(matcher -> occurrences.merge(matcher, 1, Integer::sum));
+		Map<JsonMatcher<?>, Integer> rows = new IdentityHashMap<>();
+		this.memoRows = new int[this.expected.size()];
+		for (int i = 0; i < memoRows.length; i++) {
+			JsonMatcher<?> matcher = this.expected.get(i);
+			memoRows[i] = (literalIds[i] < 0 && occurrences.get(matcher) > 1)
+					? rows.computeIfAbsent(matcher, key -> rows.size())
+					: -1;
+		}
+		this.memoRowCount = rows.size();
+		this.mayCapture = this.expected.stream().anyMatch(Cost::mayCapture);
+		this.hashCode = this.expected.hashCode() * 2 + (exact ? 1 : 0);
 	}
 
 	@Override
 	public boolean test(JsonValue value)
+	{
+		return test(value, null);
+	}
+
+	/**
+	 * Evaluate within a context, or without one if {@code context} is {@code null}. Within a context, the captures made by an
+	 * expectation against an element which it does not match are discarded, and the context is left unchanged if the value
+	 * does not match. Memoized results are not used within a context, since a remembered success would not record the
+	 * captures made against the element.
+	 */
+	boolean test(JsonValue value, MatchContext context)
 	{
 		if (!(value instanceof JsonArray jsonArray)) {
 			return false;	// Not an array.
 		}
 
 		int jsonArraySize = jsonArray.size();
-		if (exact && jsonArraySize != expected.size()) {
+		if (exact ? jsonArraySize != expected.size() : jsonArraySize < expected.size()) {
 			return false;
 		}
 
+		Budget budget = Budget.current();
+		SlowMatchEvent event = SlowMatchEvent.beginIfEnabled();
+		boolean match = test(jsonArray, jsonArraySize, context, event, budget);
+		if (event != null) {
+			event.commit(this, jsonArray, expected.size(), match);
+		}
+		return match;
+	}
+
+	private boolean test(JsonArray jsonArray, int jsonArraySize, MatchContext context, SlowMatchEvent event, Budget budget)
+	{
 		// This matching algorithm is O(N^2), because the inner loop has to perform a linear search over the whole of the array
 		// being matched. However, this approach is used because it is deterministic and predictable in the presence of arbitrary
 		// user-supplied matchers: matchers are processed in the order they were declared, and array elements are consumed by
 		// matchers, always searching from the start of the array.
 
-		BitSet used = new BitSet();	// bit N is set iff array element N has been consumed by a matcher
+		try (Scratch scratch = Scratch.acquire()) {
+			if (singleTypeCounts != null
+					&& !Shape.typesAvailable(singleTypeCounts, jsonArray, scratch.ints(TYPE_COUNTS_SLOT, singleTypeCounts.length))) {
+				return false;	// Too few elements of some type, so some expectation cannot be matched.
+			}
+
+			// Bit N of used is set iff array element N has been consumed by a matcher.
+			long[] used = scratch.bits(USED_SLOT, jsonArraySize);
+			long[] memo = null;
+			if (context == null && memoRowCount > 0 && jsonArraySize < parallelThreshold
+					&& 2L * memoRowCount * jsonArraySize <= MAX_MEMO_BITS) {
+				memo = scratch.bits(MEMO_SLOT, 2 * memoRowCount * jsonArraySize);
+			}
+			if (context == null) {
+				return test(jsonArray, jsonArraySize, used, memo, null, event, budget, scratch);
+			}
+			int mark = context.mark();
+			if (!test(jsonArray, jsonArraySize, used, null, context, event, budget, scratch)) {
+				context.rollback(mark);
+				return false;
+			}
+			return true;
+		}
+	}
+
+	private boolean test(JsonArray jsonArray, int jsonArraySize, long[] used, long[] memo, MatchContext context,
+			SlowMatchEvent event, Budget budget, Scratch scratch)
+	{
+		// The linear search is only needed for expectations which are not fixed scalar values. For fixed values, we can find
+		// the first unused element with that value using a lookup of the indices of the elements with each value. This gives
+		// exactly the same result as the linear search, since it still finds the first unused element equal to the value.
+		int[] literalIndex = null;
+		if (literals.size() >= MIN_LITERALS_FOR_LOOKUP && jsonArraySize >= MIN_SIZE_FOR_LOOKUP) {
+			literalIndex = LiteralLookup.index(jsonArray, literals, scratch, LITERAL_INDEX_SLOT);
+		}
+
+		matcher_loop: for (int i = 0; i < literalIds.length; i++) {
+			if (literalIndex != null && literalIds[i] >= 0) {
+				int index = LiteralLookup.nextUnused(literalIndex, literalIds[i], used);
+				if (index < 0) {
+					return false;	// No unused element with this value.
+				}
+				Scratch.set(used, index);
+				continue;
+			}
+
+			if (jsonArraySize >= parallelThreshold) {
+				int index = ParallelArrays.findFirst(expected.get(i), jsonArray, used, mayCapture, context, event,
+						budget);
+				if (index < 0) {
+					return false;	// This expectation is not matched by any element in the array.
+				}
+				Scratch.set(used, index);
+				continue;
+			}
 
-		matcher_loop: for (JsonMatcher<?> matcher : expected) {
 			int index = -1;
-			while ((index = used.nextClearBit(index+1)) < jsonArraySize) {
-				if (matcher.test(jsonArray.get(index))) {
-					used.set(index);
+			while ((index = Scratch.nextClearBit(used, index+1, jsonArraySize)) < jsonArraySize) {
+				if (test(i, jsonArray.get(index), index, jsonArraySize, memo, context, event, budget)) {
+					Scratch.set(used, index);
 					continue matcher_loop;
 				}
 			}
@@ -58,6 +199,82 @@ implements JsonMatcher<JsonArray>
 		return true;
 	}
 
+	boolean mayCapture()
+	{
+		return mayCapture;
+	}
+
+	List<JsonMatcher<?>> expected()
+	{
+		return expected;
+	}
+
+	boolean isExact()
+	{
+		return exact;
+	}
+
+	Shape shape()
+	{
+		return shape;
+	}
+
+	/**
+	 * Test one expectation against one element, using the memo matrix if the expectation is memoized, or within a context if
+	 * there is one, discarding any captures if the element does not match. Each evaluation is counted in the event and charged
+	 * to the budget, if there are any.
+	 */
+	private boolean test(int expectation, JsonValue element, int index, int jsonArraySize, long[] memo, MatchContext context,
+			SlowMatchEvent event, Budget budget)
+	{
+		if (context != null) {
+			invoke(event, budget);
+			return MatchContext.test(expected.get(expectation), element, context);
+		}
+
+		int row = memoRows[expectation];
+		if (row < 0 || memo == null) {
+			invoke(event, budget);
+			return expected.get(expectation).test(element);
+		}
+
+		// Each cell of the memo matrix has two bits: whether the result is known, and the result itself.
+		int cell = 2 * (row * jsonArraySize + index);
+		if (Scratch.get(memo, cell)) {
+			return Scratch.get(memo, cell + 1);
+		}
+		invoke(event, budget);
+		boolean result = expected.get(expectation).test(element);
+		Scratch.set(memo, cell);
+		if (result) {
+			Scratch.set(memo, cell + 1);
+		}
+		return result;
+	}
+
+	private static void invoke(SlowMatchEvent event, Budget budget)
+	{
+		if (event != null) {
+			event.invocations++;
+		}
+		if (budget != null) {
+			budget.charge();
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj == this || (obj instanceof UnorderedArrayMatcher other && hashCode == other.hashCode
+				&& exact == other.exact && expected.equals(other.expected) && parallelThreshold == other.parallelThreshold);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -0,0 +1,642 @@
+package org.fierypit.util.test.json;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonNumber;
+import javax.json.JsonReader;
+import javax.json.JsonReaderFactory;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.stream.JsonLocation;
+import javax.json.stream.JsonParsingException;
+
+/**
+ * Evaluates a matcher tree directly against UTF-8 encoded JSON text, without decoding it into strings or {@link JsonValue}s.
+ * <p>
+ * Object matchers and ordered array matchers are driven by a minimal tokenizer reading the bytes in place. Member names are
+ * found by comparing the raw bytes of each name in the input with the UTF-8 encoding of the expected names (through a hash
+ * table, so the cost does not depend on the number of expected members), and string literals are compared in the same way.
+ * Only names and strings containing escape sequences need to be decoded. Integer literals are compared without allocating,
+ * and other numbers are compared as {@link BigDecimal}s, exactly as {@link JsonNumber#equals(Object)} does. Members and
+ * elements not needed by the matcher are skipped by scanning for the end of the value. Any other matcher (order-independent
+ * array matchers, captures, custom matchers, and fixed objects and arrays) is tested against the value read from the bytes
+ * it occupies with a {@link JsonReader}, so only those parts of the input are decoded.
+ * <p>
+ * Matching stops as soon as the result is known, as for {@link StreamingMatcher}. The tokenizer checks the syntax of the
+ * parts of the input it reads, but skipped values are only scanned for their end, so some syntax errors within them are not
+ * detected.
+ */
+final class Utf8Matcher
+{
+	private static final int SEEN_SLOT = 0;
+
+	/** Longest run of decimal digits that is certain to fit in a {@code long}. */
+	private static final int MAX_LONG_DIGITS = 18;
+
+	private static final JsonReaderFactory READER_FACTORY = Json.createReaderFactory(null);
+
+	private final ByteBuffer input;
+	private final int limit;
+	private int position;
+
+	private Utf8Matcher(ByteBuffer input, int start, int end)
+	{
+		this.input = input;
+		this.position = start;
+		this.limit = end;
+	}
+
+	/** Match the value at the start of the remaining bytes of a buffer. The buffer's position and limit are not changed. */
+	static boolean test(JsonMatcher<?> matcher, ByteBuffer input)
+	{
+		return new Utf8Matcher(input, input.position(), input.limit()).match(matcher);
+	}
+
+	/** Match the value at the start of the given range of a buffer, ignoring the buffer's position and limit. */
+	static boolean test(JsonMatcher<?> matcher, ByteBuffer input, int start, int end)
+	{
+		return new Utf8Matcher(input, start, end).match(matcher);
+	}
+
+	/**
+	 * Match the value filling the given range of a buffer, which may be followed only by whitespace. Input after the value is
+	 * only checked if the value matches, since matching may stop before the end of a value which does not.
+	 */
+	static boolean testWhole(JsonMatcher<?> matcher, ByteBuffer input, int start, int end)
+	{
+		Utf8Matcher utf8Matcher = new Utf8Matcher(input, start, end);
+		boolean match = utf8Matcher.match(matcher);
+		if (match) {
+			utf8Matcher.expectEnd();
+		}
+		return match;
+	}
+
+	private boolean match(JsonMatcher<?> matcher)
+	{
+		if (matcher instanceof CompiledMatcher<?> compiledMatcher) {
+			matcher = compiledMatcher.delegate();
+		}
+
+		byte first = peek();
+		if (matcher instanceof ObjectMatcher objectMatcher) {
+			return matchObject(objectMatcher);
+		} else if (matcher instanceof OrderedArrayMatcher arrayMatcher) {
+			return matchArray(arrayMatcher);
+		} else if (matcher instanceof AnyMatcher<?> anyMatcher) {
+			JsonValue.ValueType valueType = valueType(first);
+			skipValue();
+			return anyMatcher.shape().acceptsType(valueType);
+		} else if (matcher instanceof ValueMatcher<?> valueMatcher && LiteralLookup.isScalar(valueMatcher.value())) {
+			return matchLiteral(valueMatcher.utf8Literal());
+		} else {
+			int start = position;
+			skipValue();
+			return matcher.test(read(start, position));
+		}
+	}
+
+	private boolean matchObject(ObjectMatcher matcher)
+	{
+		if (at(position) != '{') {
+			skipValue();
+			return false;	// Not an object.
+		}
+		position++;
+
+		Names names = matcher.utf8Names();
+		int expectedSize = names.size();
+		if (peek() == '}') {
+			position++;
+			return expectedSize == 0;
+		}
+
+		try (Scratch scratch = Scratch.acquire()) {
+			// Bit N of seen is set iff the member at position N of the evaluation order has been found.
+			long[] seen = scratch.bits(SEEN_SLOT, expectedSize);
+			int found = 0;
+			while (true) {
+				int index = readName(matcher, names);
+				expect(':');
+				if (index < 0) {
+					if (matcher.isExact()) {
+						return false;	// Unexpected member.
+					}
+					peek();
+					skipValue();
+				} else {
+					if (!match(names.matcher(index))) {
+						return false;	// Expected member not matching expectation.
+					}
+					if (!Scratch.get(seen, index)) {
+						Scratch.set(seen, index);
+						found++;
+					}
+				}
+
+				byte separator = peek();
+				position++;
+				if (separator == '}') {
+					return found == expectedSize;	// Otherwise, some expected member is missing.
+				} else if (separator != ',') {
+					throw error("expected ',' or '}'");
+				}
+				peek();
+			}
+		}
+	}
+
+	private boolean matchArray(OrderedArrayMatcher matcher)
+	{
+		if (at(position) != '[') {
+			skipValue();
+			return false;	// Not an array.
+		}
+		position++;
+
+		List<JsonMatcher<?>> expected = matcher.expected();
+		if (peek() == ']') {
+			position++;
+			return expected.isEmpty();
+		}
+
+		int index = 0;
+		while (true) {
+			if (index == expected.size() || !match(expected.get(index))) {
+				return false;	// Too many elements, or element not matching expectation.
+			}
+			index++;
+
+			byte separator = peek();
+			position++;
+			if (separator == ']') {
+				return index == expected.size();
+			} else if (separator != ',') {
+				throw error("expected ',' or ']'");
+			}
+			peek();
+		}
+	}
+
+	private boolean matchLiteral(Literal literal)
+	{
+		JsonValue.ValueType valueType = valueType(at(position));
+		if (valueType != literal.valueType) {
+			skipValue();
+			return false;
+		}
+
+		switch (valueType) {
+			case STRING -> {
+				int start = position + 1;
+				boolean escaped = skipString();
+				int end = position - 1;
+				return escaped ? literal.string.equals(decodeString(start, end)) : bytesEqual(start, end, literal.bytes);
+			}
+			case NUMBER -> {
+				int start = position;
+				boolean integer = skipNumber();
+				int end = position;
+				int digits = (input.get(start) == '-') ? end - start - 1 : end - start;
+				if (integer && digits <= MAX_LONG_DIGITS && literal.longValid) {
+					return parseLong(start, end) == literal.longValue;
+				} else if (integer && literal.decimal.scale() != 0) {
+					return false;	// BigDecimal equality requires equal scales, and the input has scale zero.
+				}
+				return literal.decimal.equals(new BigDecimal(ascii(start, end)));
+			}
+			default -> {
+				skipValue();
+				return true;	// true, false or null
+			}
+		}
+	}
+
+	/**
+	 * Read a member name, returning the position of the expected member with that name in the evaluation order, or -1 if the
+	 * member is not expected.
+	 */
+	private int readName(ObjectMatcher matcher, Names names)
+	{
+		if (peek() != '"') {
+			throw error("expected member name");
+		}
+
+		int start = position + 1;
+		int hash = 0;
+		int i = start;
+		while (true) {
+			byte b = at(i);
+			if (b == '"') {
+				break;
+			} else if (b == '\\') {
+				// Escape sequence, so look up the decoded name instead.
+				skipString();
+				return matcher.indexOf(decodeString(start, position - 1));
+			}
+			hash = 31 * hash + b;
+			i++;
+		}
+		position = i + 1;
+		return names.indexOf(input, start, i, hash);
+	}
+
+	/** Skip the value starting at the current position, which must not be whitespace. */
+	private void skipValue()
+	{
+		switch (at(position)) {
+			case '"' -> skipString();
+			case 't' -> skipWord("true");
+			case 'f' -> skipWord("false");
+			case 'n' -> skipWord("null");
+			case '{', '[' -> skipStructure();
+			default -> skipNumber();
+		}
+	}
+
+	/** Skip an object or array, checking only that strings and brackets are balanced. */
+	private void skipStructure()
+	{
+		int depth = 0;
+		do {
+			byte b = at(position);
+			if (b == '"') {
+				skipString();
+				continue;
+			} else if (b == '{' || b == '[') {
+				depth++;
+			} else if (b == '}' || b == ']') {
+				depth--;
+			}
+			position++;
+		} while (depth > 0);
+	}
+
+	/** Skip a string, returning whether it contains any escape sequences. */
+	private boolean skipString()
+	{
+		boolean escaped = false;
+		int i = position + 1;
+		while (true) {
+			byte b = at(i);
+			if (b == '"') {
+				break;
+			} else if (b == '\\') {
+				escaped = true;
+				i++;
+			}
+			i++;
+		}
+		position = i + 1;
+		return escaped;
+	}
+
+	/**
+	 * Skip a number, returning whether it is a plain integer (with no fraction or exponent). The number must follow the
+	 * grammar of RFC 8259, so that a number which is skipped can also be parsed.
+	 */
+	private boolean skipNumber()
+	{
+		boolean integer = true;
+		int i = position;
+		if (i < limit && input.get(i) == '-') {
+			i++;
+		}
+		byte first = at(i);
+		if (first == '0') {
+			i++;
+		} else if (first < '1' || first > '9') {
+			String message = (i == position) ? "unexpected character" : "invalid number";
+			position = i;
+			throw error(message);
+		} else {
+			i = skipDigits(i);
+		}
+		if (i < limit && input.get(i) == '.') {
+			integer = false;
+			i = skipDigits(i + 1);
+		}
+		if (i < limit && (input.get(i) == 'e' || input.get(i) == 'E')) {
+			integer = false;
+			i++;
+			if (i < limit && (input.get(i) == '+' || input.get(i) == '-')) {
+				i++;
+			}
+			i = skipDigits(i);
+		}
+		if (i < limit && isNumberChar(input.get(i))) {
+			position = i;
+			throw error("invalid number");	// for example a leading zero, or a second fraction
+		}
+		position = i;
+		return integer;
+	}
+
+	/** Skip one or more digits starting at the given index, returning the index after them. */
+	private int skipDigits(int start)
+	{
+		int i = start;
+		while (i < limit && input.get(i) >= '0' && input.get(i) <= '9') {
+			i++;
+		}
+		if (i == start) {
+			at(start);	// throws if the input ends here
+			position = start;
+			throw error("invalid number");
+		}
+		return i;
+	}
+
+	private static boolean isNumberChar(byte b)
+	{
+		return (b >= '0' && b <= '9') || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-';
+	}
+
+	private void skipWord(String word)
+	{
+		for (int i = 0; i < word.length(); i++) {
+			if (at(position + i) != word.charAt(i)) {
+				throw error("unexpected character");
+			}
+		}
+		position += word.length();
+	}
+
+	/** Check that only whitespace remains. */
+	private void expectEnd()
+	{
+		for (; position < limit; position++) {
+			byte b = input.get(position);
+			if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+				throw error("unexpected data after value");
+			}
+		}
+	}
+
+	/** Skip whitespace, returning the next byte without consuming it. */
+	private byte peek()
+	{
+		while (true) {
+			byte b = at(position);
+			if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+				return b;
+			}
+			position++;
+		}
+	}
+
+	private void expect(char c)
+	{
+		if (peek() != c) {
+			throw error("expected '" + c + "'");
+		}
+		position++;
+		peek();
+	}
+
+	private byte at(int index)
+	{
+		if (index >= limit) {
+			position = index;
+			throw error("unexpected end of input");
+		}
+		return input.get(index);
+	}
+
+	private boolean bytesEqual(int start, int end, byte[] expected)
+	{
+		if (end - start != expected.length) {
+			return false;
+		}
+		for (int i = 0; i < expected.length; i++) {
+			if (input.get(start + i) != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long parseLong(int start, int end)
+	{
+		boolean negative = input.get(start) == '-';
+		long value = 0;
+		for (int i = negative ? start + 1 : start; i < end; i++) {
+			value = value * 10 + (input.get(i) - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	private String ascii(int start, int end)
+	{
+		byte[] bytes = new byte[end - start];
+		input.get(start, bytes);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	/** Decode the contents of a string containing escape sequences, between the quotes. */
+	private String decodeString(int start, int end)
+	{
+		byte[] bytes = new byte[end - start];
+		input.get(start, bytes);
+		StringBuilder builder = new StringBuilder(bytes.length);
+		int segmentStart = 0;
+		int i = 0;
+		while (i < bytes.length) {
+			if (bytes[i] != '\\') {
+				i++;
+				continue;
+			}
+			builder.append(new String(bytes, segmentStart, i - segmentStart, StandardCharsets.UTF_8));
+			char escape = (char) bytes[i + 1];
+			switch (escape) {
+				case '"', '\\', '/' -> builder.append(escape);
+				case 'b' -> builder.append('\b');
+				case 'f' -> builder.append('\f');
+				case 'n' -> builder.append('\n');
+				case 'r' -> builder.append('\r');
+				case 't' -> builder.append('\t');
+				case 'u' -> {
+					if (i + 6 > bytes.length) {
+						throw error("invalid escape sequence");
+					}
+					builder.append((char) Integer.parseInt(new String(bytes, i + 2, 4, StandardCharsets.ISO_8859_1), 16));
+					i += 4;
+				}
+				default -> throw error("invalid escape sequence");
+			}
+			i += 2;
+			segmentStart = i;
+		}
+		builder.append(new String(bytes, segmentStart, bytes.length - segmentStart, StandardCharsets.UTF_8));
+		return builder.toString();
+	}
+
+	private JsonValue.ValueType valueType(byte first)
+	{
+		return switch (first) {
+			case '{' -> JsonValue.ValueType.OBJECT;
+			case '[' -> JsonValue.ValueType.ARRAY;
+			case '"' -> JsonValue.ValueType.STRING;
+			case 't' -> JsonValue.ValueType.TRUE;
+			case 'f' -> JsonValue.ValueType.FALSE;
+			case 'n' -> JsonValue.ValueType.NULL;
+			case '-', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> JsonValue.ValueType.NUMBER;
+			default -> throw error("unexpected character");
+		};
+	}
+
+	/** Read the value occupying the given range of the input. */
+	private JsonValue read(int start, int end)
+	{
+		ByteBuffer slice = input.duplicate().clear().position(start).limit(end);
+		try (JsonReader reader = READER_FACTORY.createReader(new ByteBufferInputStream(slice), StandardCharsets.UTF_8)) {
+			return reader.readValue();
+		}
+	}
+
+	private JsonParsingException error(String message)
+	{
+		long offset = position;
+		return new JsonParsingException(message + " at offset " + offset, new JsonLocation() {
+			@Override public long getLineNumber() { return -1; }
+			@Override public long getColumnNumber() { return -1; }
+			@Override public long getStreamOffset() { return offset; }
+		});
+	}
+
+	/**
+	 * Expected member names of an object matcher, encoded as UTF-8, in a hash table keyed by the same hash as computed by
+	 * {@link Utf8Matcher#readName(ObjectMatcher, Names)}. Created once per matcher, when it is first used.
+	 */
+	static final class Names
+	{
+		private final byte[][] names;
+		private final JsonMatcher<?>[] matchers;
+		private final int[] table;	// index + 1 of the name in each slot, or 0 for an empty slot
+		private final int mask;
+
+		Names(Map<String, JsonMatcher<?>> expected)
+		{
+			int size = expected.size();
+			this.names = new byte[size][];
+			this.matchers = new JsonMatcher<?>[size];
+			this.table = new int[Integer.highestOneBit(Math.max(1, size) * 2) * 2];
+			this.mask = table.length - 1;
+			int i = 0;
+			for (Map.Entry<String, JsonMatcher<?>> entry : expected.entrySet()) {
+				names[i] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+				matchers[i] = entry.getValue();
+				int hash = 0;
+				for (byte b : names[i]) {
+					hash = 31 * hash + b;
+				}
+				int slot = hash & mask;
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = i + 1;
+				i++;
+			}
+		}
+
+		int size()
+		{
+			return names.length;
+		}
+
+		JsonMatcher<?> matcher(int index)
+		{
+			return matchers[index];
+		}
+
+		/** Find the name equal to the given range of bytes, returning its index or -1. */
+		int indexOf(ByteBuffer input, int start, int end, int hash)
+		{
+			for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+				byte[] name = names[table[slot] - 1];
+				if (name.length == end - start && equal(input, start, name)) {
+					return table[slot] - 1;
+				}
+			}
+			return -1;
+		}
+
+		private static boolean equal(ByteBuffer input, int start, byte[] name)
+		{
+			for (int i = 0; i < name.length; i++) {
+				if (input.get(start + i) != name[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/** A fixed scalar value, in the forms needed to compare it directly with the input. Created once per matcher. */
+	static final class Literal
+	{
+		final JsonValue.ValueType valueType;
+		final String string;	// for strings
+		final byte[] bytes;	// for strings, the UTF-8 encoding
+		final BigDecimal decimal;	// for numbers
+		final boolean longValid;	// for numbers, whether the value has scale zero and fits in a long
+		final long longValue;
+
+		Literal(JsonValue value)
+		{
+			this.valueType = value.getValueType();
+			this.string = (value instanceof JsonString jsonString) ? jsonString.getString() : null;
+			this.bytes = (string != null) ? string.getBytes(StandardCharsets.UTF_8) : null;
+			this.decimal = (value instanceof JsonNumber jsonNumber) ? jsonNumber.bigDecimalValue() : null;
+			boolean longValid = false;
+			long longValue = 0;
+			if (decimal != null && decimal.scale() == 0) {
+				try {
+					longValue = decimal.longValueExact();
+					longValid = true;
+				} catch (ArithmeticException e) {
+					// Too large for a long, so compared as a BigDecimal.
+				}
+			}
+			this.longValid = longValid;
+			this.longValue = longValue;
+		}
+	}
+
+	/** Input stream reading the remaining bytes of a buffer, without copying them. */
+	private static final class ByteBufferInputStream
+	extends InputStream
+	{
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read()
+		{
+			return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length)
+		{
+			if (length == 0) {
+				return 0;
+			} else if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+	}
+}
@@ -12,10 +12,18 @@ class ValueMatcher<T extends JsonValue>
 implements JsonMatcher<T>
 {
 	private final T value;
+	private final Shape shape;
+	private final int hashCode;
+
+	// Scalar value encoded for Utf8Matcher, created when first needed. Racing threads may each create one, which is harmless
+	// since they are identical and immutable.
+	private Utf8Matcher.Literal utf8Literal;
 
 	ValueMatcher(T value)
 	{
 		this.value = Objects.requireNonNull(value);
+		this.shape = Shape.literal(value);
+		this.hashCode = value.hashCode();
 	}
 
 	@Override
@@ -24,6 +32,37 @@ implements JsonMatcher<T>
 		return this.value.equals(value);
 	}
 
+	T value()
+	{
+		return value;
+	}
+
+	Shape shape()
+	{
+		return shape;
+	}
+
+	Utf8Matcher.Literal utf8Literal()
+	{
+		Utf8Matcher.Literal literal = utf8Literal;
+		if (literal == null) {
+			utf8Literal = literal = new Utf8Matcher.Literal(value);
+		}
+		return literal;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj == this || (obj instanceof ValueMatcher<?> other && hashCode == other.hashCode && value.equals(other.value));
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -0,0 +1,102 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.JsonObject;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveMatcherTest
+{
+	@Test
+	void adaptive_sameResultsAsStatic()
+	{
+		JsonMatcher.ObjectBuilder builder = JsonMatcher.object()
+				.add("msg-type", "event")
+				.add("tenant", JsonMatcher.ANY_STRING)
+				.add("tags", JsonMatcher.array().add("a").containsIgnoreOrder());
+		JsonMatcher<JsonObject> exact = builder.exactAdaptive();
+		JsonMatcher<JsonObject> contains = builder.containsAdaptive();
+
+		assertTrue(exact.test(parseJson("""
+				{ "msg-type": "event", "tenant": "x", "tags": [ "b", "a" ] }
+				""")), "exact: all members match");
+		assertFalse(exact.test(parseJson("""
+				{ "msg-type": "event", "tenant": "x", "tags": [ "b", "a" ], "extra": 0 }
+				""")), "exact: extra member");
+		assertTrue(contains.test(parseJson("""
+				{ "msg-type": "event", "tenant": "x", "tags": [ "b", "a" ], "extra": 0 }
+				""")), "contains: extra member");
+		assertFalse(contains.test(parseJson("""
+				{ "msg-type": "event", "tenant": 1, "tags": [ "b", "a" ] }
+				""")), "contains: tenant of wrong type");
+		assertEquals(builder.exact().toString(), exact.toString());
+	}
+
+	@Test
+	void adaptive_mostFrequentFailureFirst()
+	{
+		JsonMatcher.AdaptiveMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("msg-type", "event")
+				.add("tenant", "a")
+				.containsAdaptive();
+		assertEquals(List.of("msg-type", "tenant"), matcher.evaluationOrder(), "initially in declaration order");
+
+		JsonObject otherTenant = parseJson("""
+				{ "msg-type": "event", "tenant": "b" }
+				""").asJsonObject();
+		for (int i = 0; i < 1000; i++) {
+			assertFalse(matcher.test(otherTenant));
+		}
+		((AdaptiveObjectMatcher) matcher).reorder();
+		assertEquals(List.of("tenant", "msg-type"), matcher.evaluationOrder(), "tenant rejects most values");
+
+		assertFalse(matcher.isFrozen());
+		assertSame(matcher, matcher.freeze());
+		assertTrue(matcher.isFrozen());
+
+		JsonObject otherType = parseJson("""
+				{ "msg-type": "other", "tenant": "a" }
+				""").asJsonObject();
+		for (int i = 0; i < 1000; i++) {
+			assertFalse(matcher.test(otherType));
+		}
+		((AdaptiveObjectMatcher) matcher).reorder();
+		assertEquals(List.of("tenant", "msg-type"), matcher.evaluationOrder(), "frozen order is kept");
+		assertTrue(matcher.test(parseJson("""
+				{ "msg-type": "event", "tenant": "a" }
+				""")), "frozen matcher still matches");
+	}
+
+	@Test
+	void adaptive_capturesLast()
+	{
+		List<String> captured = new ArrayList<>();
+		JsonMatcher.AdaptiveMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("first", JsonMatcher.ANY_STRING.capture(value -> captured.add("first")))
+				.add("second", JsonMatcher.ANY_STRING.capture(value -> captured.add("second")))
+				.add("literal", 1)
+				.containsAdaptive();
+		assertEquals(List.of("literal", "first", "second"), matcher.evaluationOrder());
+
+		JsonObject failSecond = parseJson("""
+				{ "first": "a", "second": 2, "literal": 1 }
+				""").asJsonObject();
+		for (int i = 0; i < 1000; i++) {
+			assertFalse(matcher.test(failSecond));
+		}
+		((AdaptiveObjectMatcher) matcher).reorder();
+		assertEquals(List.of("literal", "first", "second"), matcher.evaluationOrder(), "capturing members never reordered");
+
+		captured.clear();
+		assertTrue(matcher.test(parseJson("""
+				{ "first": "a", "second": "b", "literal": 1 }
+				""")));
+		assertEquals(List.of("first", "second"), captured, "captures performed in declaration order");
+	}
+}
@@ -2,11 +2,14 @@ package org.fierypit.util.test.json;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.json.Json;
 import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
 import javax.json.JsonString;
@@ -14,6 +17,7 @@ import javax.json.JsonValue;
 
 import org.junit.jupiter.api.Test;
 
+import static org.fierypit.util.test.json.TestUtil.allocatedBytesPerCall;
 import static org.fierypit.util.test.json.TestUtil.parseJson;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -1389,6 +1393,219 @@ class ArrayMatcherTest
 				""")), "wrong order should not match (first custom matcher consumes 1 value too early)");
 	}
 
+	@Test
+	void arrayMatcher_overlappingLiterals_exactIgnoreOrder()
+	{
+		// As above, but with enough fixed values and array elements that the fixed values are found by hash lookup. This must
+		// give exactly the same results as a linear search.
+
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array()
+				.add(TEST_MATCHER_POSITIVE_NUMBER)
+				.add(1)
+				.add(2)
+				.add(2)
+				.add(TEST_MATCHER_POSITIVE_NUMBER)
+				.add("a")
+				.add(JsonMatcher.ANY_STRING)
+				.add("a")
+				.add(JsonValue.NULL)
+				.exactIgnoreOrder();
+
+		assertTrue(matcher.test(parseJson("""
+				[ 9, 1, 2, 2, 8, "a", "b", "a", null ]
+				""")), "exact value should match");
+
+		assertTrue(matcher.test(parseJson("""
+				[ null, "a", "b", "a", 9, 2, 8, 2, 1 ]
+				""")), "reordered value should match");
+
+		assertFalse(matcher.test(parseJson("""
+				[ 1, 9, 2, 2, 8, "a", "b", "a", null ]
+				""")), "first custom matcher consumes 1 value too early");
+
+		assertFalse(matcher.test(parseJson("""
+				[ 9, 1, 2, 2, 8, "a", "a", "b", null ]
+				""")), "ANY_STRING consumes second \"a\" before it is found");
+
+		assertFalse(matcher.test(parseJson("""
+				[ 9, 1, 2, 3, 8, "a", "b", "a", null ]
+				""")), "missing second 2 should not match");
+	}
+
+	@Test
+	void arrayMatcher_overlapping_exactIgnoreOrderOptimal()
+	{
+		// The same expectations as arrayMatcher_overlapping_exactIgnoreOrder, but the optimal matcher finds an assignment of
+		// elements to expectations regardless of the order of the expectations.
+
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array()
+				.add(TEST_MATCHER_POSITIVE_NUMBER)
+				.add(1)
+				.add(TEST_MATCHER_POSITIVE_NUMBER)
+				.add(2)
+				.add(TEST_MATCHER_NON_EMPTY_STRING)
+				.exactIgnoreOrderOptimal();
+
+		assertTrue(matcher.test(parseJson("""
+				[ 9, 1, 8, 2, "a" ]
+				""")), "exact value should match");
+
+		assertTrue(matcher.test(parseJson("""
+				[ 1, 9, 8, 2, "a" ]
+				""")), "different order should also match");
+
+		assertTrue(matcher.test(parseJson("""
+				[ 2, 1, "a", 8, 9 ]
+				""")), "different order should also match");
+
+		assertFalse(matcher.test(parseJson("""
+				[ 1, 0, 8, 2, "a" ]
+				""")), "no assignment exists, as only one positive number remains for two custom matchers");
+
+		assertFalse(matcher.test(parseJson("""
+				[ 9, 1, 8, 2, "a", 3 ]
+				""")), "extra element should not match");
+
+		assertEquals("(exactIgnoreOrderOptimal)[" + TEST_MATCHER_POSITIVE_NUMBER + ",1," + TEST_MATCHER_POSITIVE_NUMBER
+				+ ",2," + TEST_MATCHER_NON_EMPTY_STRING + "]", matcher.toString());
+	}
+
+	@Test
+	void arrayMatcher_overlapping_containsIgnoreOrderOptimal()
+	{
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array()
+				.add(JsonMatcher.ANY_NUMBER)
+				.add(1)
+				.containsIgnoreOrderOptimal();
+
+		assertTrue(matcher.test(parseJson("[ 1, 2 ]")), "ANY_NUMBER should be assigned 2");
+		assertTrue(matcher.test(parseJson("[ \"x\", 1, null, 2 ]")), "extra elements should be ignored");
+		assertFalse(matcher.test(parseJson("[ 1, \"2\" ]")), "only one number");
+		assertFalse(matcher.test(parseJson("[ 2, 3 ]")), "no 1");
+		assertFalse(JsonMatcher.array().add(1).add(2).add(3).containsIgnoreOrderOptimal().test(parseJson("[ 1, 2 ]")),
+				"array smaller than expectations");
+
+		assertEquals("(containsIgnoreOrderOptimal)[(any number),1]", matcher.toString());
+	}
+
+	@Test
+	void arrayMatcher_longAugmentingPaths_exactIgnoreOrderOptimal()
+	{
+		// Each expectation N matches the numbers N and N+1, but the array is in descending order so that a first-fit assignment
+		// always takes N+1, leaving nothing for the last expectation. The only valid assignment is N to N.
+		int size = 500;
+		JsonMatcher.ArrayBuilder builder = JsonMatcher.array();
+		JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+		for (int i = 0; i < size; i++) {
+			int n = i;
+			builder.add(value -> value instanceof JsonNumber number && (number.intValue() == n || number.intValue() == n + 1));
+			arrayBuilder.add(size - 1 - i);
+		}
+		JsonArray array = arrayBuilder.build();
+
+		assertTrue(builder.exactIgnoreOrderOptimal().test(array));
+		assertFalse(builder.exactIgnoreOrder().test(array), "first-fit should fail");
+	}
+
+	@Test
+	void arrayMatcher_shapeMismatch_nestedMatchersNotEvaluated()
+	{
+		// Structural mismatches should be found before any custom matcher is evaluated.
+		int[] evaluations = new int[1];
+		JsonMatcher<JsonNumber> countingMatcher = value -> {
+			evaluations[0]++;
+			return value instanceof JsonNumber;
+		};
+
+		JsonMatcher.ArrayBuilder builder = JsonMatcher.array()
+				.add(countingMatcher)
+				.add(JsonMatcher.object().add("x", 1).contains())
+				.add("s");
+
+		assertTrue(builder.exact().test(parseJson("""
+				[ 0, { "x": 1 }, "s" ]
+				""")), "exact: all elements match");
+		assertTrue(builder.exactIgnoreOrder().test(parseJson("""
+				[ "s", { "x": 1 }, 0 ]
+				""")), "exactIgnoreOrder: all elements match");
+		assertTrue(builder.containsIgnoreOrderOptimal().test(parseJson("""
+				[ "s", { "x": 1 }, 0, 1 ]
+				""")), "containsIgnoreOrderOptimal: all elements match");
+		assertTrue(evaluations[0] > 0, "custom matcher evaluated for matching arrays");
+
+		evaluations[0] = 0;
+		assertFalse(builder.exact().test(parseJson("""
+				[ 0, { "y": 1 }, "s" ]
+				""")), "exact: nested object missing required member");
+		assertFalse(builder.exactIgnoreOrder().test(parseJson("""
+				[ 0, { "x": 1 }, 1 ]
+				""")), "exactIgnoreOrder: no string element");
+		assertFalse(builder.containsIgnoreOrder().test(parseJson("""
+				[ 0, "s", "t", "u" ]
+				""")), "containsIgnoreOrder: no object element");
+		assertFalse(builder.containsIgnoreOrderOptimal().test(parseJson("""
+				[ 0, 1, 2, "s" ]
+				""")), "containsIgnoreOrderOptimal: no object element");
+		assertFalse(builder.containsIgnoreOrder().test(parseJson("""
+				[ 0, "s" ]
+				""")), "containsIgnoreOrder: too few elements");
+		assertEquals(0, evaluations[0], "custom matcher never evaluated for structural mismatches");
+	}
+
+	@Test
+	void arrayMatcher_literalLookupDoesNotAllocate()
+	{
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array()
+				.add("a").add("b").add(true).add(JsonMatcher.ANY_STRING).add("a")
+				.containsIgnoreOrder();
+		JsonArray value = (JsonArray) parseJson("""
+				[ "x", "b", "a", false, "y", true, "a", "z", null, "b" ]
+				""");
+
+		assertTrue(matcher.test(value));
+		assertEquals(0, allocatedBytesPerCall(() -> matcher.test(value)), "bytes allocated per call");
+	}
+
+	@Test
+	void arrayMatcher_repeatedMatcherEvaluatedOnce()
+	{
+		// When the same matcher instance is used for several expectations, each element should only be tested against it once.
+		Map<JsonValue, Integer> evaluations = new IdentityHashMap<>();
+		JsonMatcher<JsonObject> countingMatcher = value -> {
+			evaluations.merge(value, 1, Integer::sum);
+			return value instanceof JsonObject jsonObject && jsonObject.getBoolean("match");
+		};
+
+		JsonArray array = parseJson("""
+				[ { "match": false }, { "match": false }, { "match": true }, { "match": false }, { "match": true } ]
+				""").asJsonArray();
+		JsonMatcher.ArrayBuilder builder = JsonMatcher.array().add(countingMatcher).add(countingMatcher);
+
+		assertTrue(builder.containsIgnoreOrder().test(array));
+		assertTrue(evaluations.values().stream().allMatch(count -> count == 1), "each element evaluated at most once");
+
+		evaluations.clear();
+		assertTrue(builder.containsIgnoreOrderOptimal().test(array));
+		assertEquals(array.size(), evaluations.size(), "each element evaluated");
+		assertTrue(evaluations.values().stream().allMatch(count -> count == 1), "each element evaluated only once");
+
+		evaluations.clear();
+		assertFalse(builder.add(countingMatcher).containsIgnoreOrder().test(array), "only two elements match");
+		assertTrue(evaluations.values().stream().allMatch(count -> count == 1), "each element evaluated at most once");
+	}
+
+	@Test
+	void arrayMatcher_nestedRepeated_containsIgnoreOrder()
+	{
+		// Nested order-independent matchers share the per-thread working storage; make sure that nesting does not corrupt it.
+		JsonMatcher<JsonArray> inner = JsonMatcher.array().add(1).add(TEST_MATCHER_POSITIVE_NUMBER).exactIgnoreOrder();
+		JsonMatcher<JsonArray> outer = JsonMatcher.array().add(inner).add(inner).add(inner).containsIgnoreOrder();
+
+		assertTrue(outer.test(parseJson("[ [2,1], [1,1], [0,1], [1,3], [] ]")));
+		assertFalse(outer.test(parseJson("[ [2,1], [1,0], [0,1], [1,3], [] ]")));
+		assertTrue(outer.test(parseJson("[ [1,2], [1,1], [1,3] ]")));
+	}
+
 	@Test
 	void duplicate()
 	{
@@ -1424,4 +1641,92 @@ class ArrayMatcherTest
 				(containsIgnoreOrder)[1,"test",true,{}]\
 				""", orig.containsIgnoreOrder().toString(), "original unchanged when copy modified");
 	}
+
+	@Test
+	void arrayMatcher_parallel_sameResults()
+	{
+		int size = 20_000;
+		JsonArrayBuilder values = Json.createArrayBuilder();
+		JsonMatcher.ArrayBuilder builder = JsonMatcher.array().parallelThreshold(1_000);
+		for (int i = 0; i < size; i++) {
+			values.add(Json.createObjectBuilder().add("id", i));
+			builder.add(JsonMatcher.object().add("id", i).exact());
+		}
+		JsonArray jsonArray = values.build();
+		JsonArray mismatch = Json.createArrayBuilder(jsonArray).set(size - 1, Json.createObjectBuilder().add("id", -1)).build();
+
+		JsonMatcher<JsonArray> exact = builder.exact();
+		assertTrue(exact.test(jsonArray), "exact: all elements match");
+		assertFalse(exact.test(mismatch), "exact: last element does not match");
+		assertSame(exact, exact.compile(), "parallel matcher not compiled");
+
+		JsonMatcher<JsonArray> ignoreOrder = JsonMatcher.array()
+				.add(JsonMatcher.object().add("id", size - 1).exact())
+				.add(JsonMatcher.object().add("id", 0).exact())
+				.parallelThreshold(1_000)
+				.containsIgnoreOrder();
+		assertTrue(ignoreOrder.test(jsonArray), "containsIgnoreOrder: both found");
+		assertFalse(ignoreOrder.test(mismatch), "containsIgnoreOrder: last not found");
+
+		assertThrows(IllegalArgumentException.class, () -> JsonMatcher.array().parallelThreshold(0));
+	}
+
+	@Test
+	void arrayMatcher_parallel_capturesInOrder()
+	{
+		int size = 20_000;
+		JsonArrayBuilder values = Json.createArrayBuilder();
+		List<JsonValue> captured = new ArrayList<>();
+		JsonMatcher.ArrayBuilder builder = JsonMatcher.array().parallelThreshold(1_000);
+		for (int i = 0; i < size; i++) {
+			values.add(i);
+			builder.add(JsonMatcher.ANY_NUMBER.capture(captured::add));
+		}
+		JsonArray jsonArray = values.build();
+
+		assertTrue(builder.exact().test(jsonArray));
+		assertEquals(jsonArray, captured, "exact: captured in element order");
+
+		captured.clear();
+		assertFalse(builder.exact().test(Json.createArrayBuilder(jsonArray).set(size / 2, "x").build()));
+		assertEquals(List.of(), captured, "exact: no captures unless every element matches");
+
+		captured.clear();
+		JsonMatcher<JsonArray> ignoreOrder = JsonMatcher.array()
+				.add(JsonMatcher.value("x").capture(captured::add))
+				.add(JsonMatcher.ANY_NUMBER.capture(captured::add))
+				.add(JsonMatcher.ANY_NUMBER.capture(captured::add))
+				.parallelThreshold(1_000)
+				.containsIgnoreOrder();
+		assertTrue(ignoreOrder.test(Json.createArrayBuilder(jsonArray).set(size - 1, "x").build()));
+		assertEquals(List.of(Json.createValue("x"), Json.createValue(0), Json.createValue(1)), captured,
+				"containsIgnoreOrder: first unused matching elements captured");
+
+		MatchResult result = JsonMatcher.array()
+				.add(JsonMatcher.ANY_NUMBER.capture("n"))
+				.add(JsonMatcher.value(size - 1).capture("n"))
+				.parallelThreshold(1_000)
+				.containsIgnoreOrder()
+				.match(jsonArray);
+		assertEquals(List.of(Json.createValue(0), Json.createValue(size - 1)), result.captures("n"));
+	}
+
+	@Test
+	void duplicate_sharedWithMatchers()
+	{
+		JsonMatcher.ArrayBuilder builder = JsonMatcher.array().add(1).add(2);
+		JsonMatcher<JsonArray> exact = builder.exact();
+		JsonMatcher<JsonArray> ignoreOrder = builder.containsIgnoreOrder();
+		JsonMatcher.ArrayBuilder copy = builder.duplicate();
+
+		builder.set(0, 3).remove(1);
+		copy.add(4);
+
+		assertEquals("(exact)[1,2]", exact.toString(), "matcher unchanged when builder modified");
+		assertEquals("(containsIgnoreOrder)[1,2]", ignoreOrder.toString(), "matcher unchanged when builder modified");
+		assertEquals("(exact)[3]", builder.exact().toString(), "builder modified");
+		assertEquals("(exact)[1,2,4]", copy.exact().toString(), "copy modified independently");
+		assertThrows(IndexOutOfBoundsException.class, () -> copy.set(3, 0));
+		assertThrows(NullPointerException.class, () -> JsonMatcher.array().add((JsonMatcher<?>) null).exact());
+	}
 }
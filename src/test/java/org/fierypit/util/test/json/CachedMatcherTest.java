@@ -0,0 +1,90 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedMatcherTest
+{
+	@Test
+	void cached_sharedInstances()
+	{
+		AtomicInteger evaluations = new AtomicInteger();
+		JsonMatcher<JsonObject> counting = value -> {
+			evaluations.incrementAndGet();
+			return value instanceof JsonObject jsonObject && jsonObject.containsKey("id");
+		};
+		JsonMatcher.CachingMatcher<JsonObject> cached = counting.cached(CachePolicy.DEFAULT);
+		assertEquals("(cached)" + counting, cached.toString());
+		assertSame(CachePolicy.DEFAULT, cached.policy());
+
+		JsonObject fragment = parseJson("{ \"id\": 1 }").asJsonObject();
+		JsonArray document = Json.createArrayBuilder().add(fragment).add(fragment).add(fragment).build();
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array().add(cached).add(cached).add(cached).exact();
+
+		assertTrue(matcher.test(document));
+		assertTrue(matcher.test(document));
+		assertEquals(1, evaluations.get(), "shared instance evaluated once");
+		assertEquals(5, cached.hits());
+		assertEquals(1, cached.misses());
+
+		assertTrue(cached.test(parseJson("{ \"id\": 1 }")), "equal but distinct instance");
+		assertEquals(2, evaluations.get(), "distinct instance evaluated");
+		assertFalse(cached.test(JsonValue.TRUE));
+		assertFalse(cached.test(JsonValue.TRUE));
+		assertEquals(4, evaluations.get(), "scalars never cached");
+		assertEquals(2, cached.misses(), "scalars not counted");
+
+		cached.clear();
+		assertEquals(0, cached.hits());
+		assertTrue(cached.test(fragment));
+		assertEquals(5, evaluations.get(), "evaluated again after clear");
+	}
+
+	@Test
+	void cached_bounded()
+	{
+		JsonMatcher.CachingMatcher<JsonObject> cached = JsonMatcher.ANY_OBJECT.cached(CachePolicy.maximumSize(16));
+		List<JsonObject> values = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			values.add(Json.createObjectBuilder().add("i", i).build());
+		}
+		values.forEach(cached::test);
+		values.forEach(cached::test);
+		assertTrue(cached.hits() <= 16, "at most 16 results held: " + cached.hits());
+
+		assertThrows(IllegalArgumentException.class, () -> CachePolicy.maximumSize(0));
+		assertThrows(NullPointerException.class, () -> JsonMatcher.ANY_OBJECT.cached(null));
+	}
+
+	@Test
+	void cached_capturesAlwaysPerformed()
+	{
+		List<JsonValue> captured = new ArrayList<>();
+		JsonMatcher.CachingMatcher<JsonObject> cached = JsonMatcher.object()
+				.add("id", JsonMatcher.ANY_NUMBER.capture(captured::add))
+				.contains()
+				.cached(CachePolicy.DEFAULT);
+		JsonObject value = parseJson("{ \"id\": 1 }").asJsonObject();
+
+		assertTrue(cached.test(value));
+		assertTrue(cached.test(value));
+		assertEquals(List.of(parseJson("1"), parseJson("1")), captured);
+		assertEquals(0, cached.hits() + cached.misses(), "cache not used");
+
+		captured.clear();
+		assertTrue(JsonMatcher.array().add(cached).exact().match(Json.createArrayBuilder().add(value).build()).matched());
+		assertEquals(List.of(parseJson("1")), captured, "transactional captures within cached matcher");
+	}
+}
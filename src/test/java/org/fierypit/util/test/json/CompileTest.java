@@ -0,0 +1,210 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompileTest
+{
+	// Custom matcher matching any JSON string containing at least one character.
+	private static final JsonMatcher<JsonString> TEST_MATCHER_NON_EMPTY_STRING =
+			value -> value instanceof JsonString jsonString && jsonString.getString().length() > 0;
+
+	private static final List<JsonValue> TEST_VALUES = List.of(
+			JsonValue.NULL,
+			JsonValue.TRUE,
+			JsonValue.FALSE,
+			parseJson("123"),
+			parseJson("\"msg\""),
+			parseJson("[]"),
+			parseJson("{}"),
+			parseJson("""
+					{ "msg-type": "event", "id": 42, "flag": true, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null } }
+					"""),
+			parseJson("""
+					{ "msg-type": "event", "id": 42, "flag": false, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null } }
+					"""),
+			parseJson("""
+					{ "msg-type": "event", "id": 42, "flag": true, "tags": [ "b", "a" ], "body": { "x": 1.5, "y": null } }
+					"""),
+			parseJson("""
+					{ "msg-type": "event", "id": "42", "flag": true, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null } }
+					"""),
+			parseJson("""
+					{ "msg-type": "event", "id": 42, "flag": true, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null }, "z": 0 }
+					"""),
+			parseJson("""
+					{ "msg-type": "other", "id": 42, "flag": true, "tags": [ "a", "" ], "body": { "x": 1.5 } }
+					"""),
+			parseJson("""
+					[ "event", 42, [ 1, 2 ], { "a": "b" } ]
+					"""),
+			parseJson("""
+					[ "event", 42, [ 2, 1 ], { "a": "b" } ]
+					"""));
+
+	@Test
+	void compile_sameResults()
+	{
+		List<JsonMatcher<?>> matchers = List.of(
+				JsonMatcher.value("msg"),
+				JsonMatcher.value(123),
+				JsonMatcher.NULL,
+				JsonMatcher.EMPTY_ARRAY,
+				JsonMatcher.ANY_VALUE,
+				JsonMatcher.ANY_BOOLEAN,
+				JsonMatcher.ANY_NUMBER,
+				JsonMatcher.object()
+						.add("msg-type", "event")
+						.add("id", JsonMatcher.ANY_NUMBER)
+						.add("flag", JsonMatcher.ANY_BOOLEAN)
+						.add("tags", JsonMatcher.array().add("a").add("b").exact())
+						.add("body", JsonMatcher.object().add("x", 1.5).contains())
+						.exact(),
+				JsonMatcher.object()
+						.add("msg-type", JsonMatcher.ANY_STRING)
+						.add("flag", true)
+						.add("tags", JsonMatcher.array().add("a").add("b").containsIgnoreOrder())
+						.add("body", JsonMatcher.object().add("x", 1.5).addNull("y").exact())
+						.contains(),
+				JsonMatcher.object()
+						.add("tags", JsonMatcher.array().add("a").add(TEST_MATCHER_NON_EMPTY_STRING).exact())
+						.contains(),
+				JsonMatcher.array()
+						.add("event")
+						.add(JsonMatcher.ANY_NUMBER)
+						.add(JsonMatcher.array().add(1).add(2).exact())
+						.add(JsonMatcher.ANY_OBJECT)
+						.exact());
+
+		for (JsonMatcher<?> matcher : matchers) {
+			JsonMatcher<?> compiled = matcher.compile();
+			assertEquals(matcher.toString(), compiled.toString(), "compiled matcher has same string form");
+			for (JsonValue value : TEST_VALUES) {
+				assertEquals(matcher.test(value), compiled.test(value), () -> matcher + " against " + value);
+			}
+		}
+	}
+
+	@Test
+	void compile_generatesHiddenClass()
+	{
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object().add("a", 1).exact();
+		JsonMatcher<JsonObject> compiled = matcher.compile();
+
+		assertNotSame(matcher, compiled);
+		assertTrue(compiled.getClass().isHidden(), "compiled matcher should be a hidden class");
+		assertSame(compiled, compiled.compile(), "compiling a compiled matcher should have no effect");
+	}
+
+	@Test
+	void compile_customMatcherUnchanged()
+	{
+		assertSame(TEST_MATCHER_NON_EMPTY_STRING, TEST_MATCHER_NON_EMPTY_STRING.compile());
+	}
+
+	@Test
+	void compile_nullValue()
+	{
+		assertThrows(NullPointerException.class, () -> JsonMatcher.ANY_VALUE.compile().test(null));
+		assertThrows(NullPointerException.class, () -> JsonMatcher.ANY_STRING.compile().test(null));
+	}
+
+	@Test
+	void compile_capture()
+	{
+		List<JsonNumber> idCaptures = new ArrayList<>();
+		List<JsonArray> tagCaptures = new ArrayList<>();
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("msg-type", "event")
+				.add("id", JsonMatcher.ANY_NUMBER.capture(idCaptures::add))
+				.add("tags", JsonMatcher.ANY_ARRAY.capture(tagCaptures::add))
+				.contains()
+				.compile();
+
+		JsonObject value = (JsonObject) TEST_VALUES.get(7);
+		assertTrue(matcher.test(value));
+		assertEquals(List.of(value.get("id")), idCaptures);
+		assertEquals(List.of(value.get("tags")), tagCaptures);
+		assertSame(value.get("id"), idCaptures.get(0), "captured value should be the same instance");
+
+		// Members are evaluated in an unspecified order, so other members may or may not be captured when the match fails.
+		idCaptures.clear();
+		assertFalse(matcher.test(TEST_VALUES.get(12)), "different msg-type should not match");
+		idCaptures.clear();
+		assertFalse(matcher.test(TEST_VALUES.get(10)), "id as a string should not match");
+		assertTrue(idCaptures.isEmpty(), "id should not be captured if it does not match");
+	}
+
+	@Test
+	void compile_shapeCheckedBeforeCaptures()
+	{
+		List<JsonValue> captures = new ArrayList<>();
+		JsonMatcher<JsonObject> objectMatcher = JsonMatcher.object()
+				.add("a", JsonMatcher.ANY_STRING.capture(captures::add))
+				.add("b", JsonMatcher.object().add("c", 1).exact())
+				.exact();
+		JsonMatcher<JsonArray> arrayMatcher = JsonMatcher.array()
+				.add(JsonMatcher.ANY_STRING.capture(captures::add))
+				.add(JsonMatcher.object().add("c", 1).exact())
+				.exact();
+
+		for (JsonMatcher<?> matcher : List.of(objectMatcher, objectMatcher.compile(), arrayMatcher, arrayMatcher.compile())) {
+			assertFalse(matcher.test(parseJson("{ \"a\": \"x\", \"b\": 1 }")));
+			assertFalse(matcher.test(parseJson("[ \"x\", 1 ]")));
+			assertTrue(captures.isEmpty(), () -> matcher + " captured " + captures);
+		}
+
+		JsonMatcher<JsonObject> containsMatcher = JsonMatcher.object()
+				.add("a", JsonMatcher.ANY_STRING.capture(captures::add))
+				.add("b", 1)
+				.contains()
+				.compile();
+		assertFalse(containsMatcher.test(parseJson("{ \"a\": \"x\" }")));
+		assertTrue(captures.isEmpty(), "too few members");
+	}
+
+	@Test
+	void compile_largeTree()
+	{
+		// This tree is too large to be compiled into a single method, so will be split into multiple classes.
+		JsonMatcher.ObjectBuilder outerBuilder = JsonMatcher.object();
+		JsonObjectBuilder outerValueBuilder = Json.createObjectBuilder();
+		for (int i = 0; i < 100; i++) {
+			JsonMatcher.ObjectBuilder innerBuilder = JsonMatcher.object();
+			JsonObjectBuilder innerValueBuilder = Json.createObjectBuilder();
+			for (int j = 0; j < 20; j++) {
+				innerBuilder.add("member" + j, "value" + j);
+				innerValueBuilder.add("member" + j, "value" + j);
+			}
+			outerBuilder.add("object" + i, innerBuilder.exact());
+			outerValueBuilder.add("object" + i, innerValueBuilder);
+		}
+		JsonObject value = outerValueBuilder.build();
+		JsonObject changed = Json.createObjectBuilder(value)
+				.add("object99", Json.createObjectBuilder(value.getJsonObject("object99")).add("member19", "x"))
+				.build();
+
+		JsonMatcher<JsonObject> matcher = outerBuilder.exact();
+		JsonMatcher<JsonObject> compiled = matcher.compile();
+		assertNotSame(matcher, compiled);
+
+		assertTrue(matcher.test(value));
+		assertTrue(compiled.test(value));
+		assertFalse(matcher.test(changed));
+		assertFalse(compiled.test(changed));
+	}
+}
@@ -0,0 +1,112 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EqualityTest
+{
+	private static JsonMatcher<JsonObject> template()
+	{
+		return JsonMatcher.object()
+				.add("msg-type", "event")
+				.add("id", JsonMatcher.ANY_NUMBER)
+				.add("tags", JsonMatcher.array().add("a").add(JsonMatcher.ANY_STRING).containsIgnoreOrder())
+				.add("body", JsonMatcher.object().add("x", 1.5).addNull("y").exact())
+				.add("pair", JsonMatcher.array().add(1).add(2).exact())
+				.add("any", JsonMatcher.array().add(1).exactIgnoreOrderOptimal())
+				.contains();
+	}
+
+	@Test
+	void equality_structural()
+	{
+		assertEquals(template(), template());
+		assertEquals(template().hashCode(), template().hashCode());
+		assertEquals(JsonMatcher.value(parseJson("{ \"a\": [ 1, 2 ] }")), JsonMatcher.value(parseJson("{\"a\":[1,2]}")));
+		assertEquals(new AnyMatcher<>(JsonValue.class, "(any value)"), JsonMatcher.ANY_VALUE);
+
+		assertNotEquals(JsonMatcher.object().add("a", 1).exact(), JsonMatcher.object().add("a", 1).contains(), "mode");
+		assertNotEquals(JsonMatcher.object().add("a", 1).exact(), JsonMatcher.object().add("a", 2).exact(), "value");
+		assertNotEquals(JsonMatcher.array().add(1).exact(), JsonMatcher.array().add(1).exactIgnoreOrder(), "kind");
+		assertNotEquals(JsonMatcher.array().add(1).add(2).exact(), JsonMatcher.array().add(2).add(1).exact(), "order");
+		assertNotEquals(JsonMatcher.ANY_BOOLEAN, JsonMatcher.ANY_VALUE, "subclass");
+		assertEquals(JsonMatcher.object().add("a", 1).add("b", 2).exact(), JsonMatcher.object().add("b", 2).add("a", 1).exact(),
+				"member order irrelevant without captures");
+
+		JsonMatcher.ObjectBuilder adaptive = JsonMatcher.object().add("a", 1);
+		assertNotEquals(adaptive.exactAdaptive(), adaptive.exactAdaptive(), "adaptive matchers have state");
+	}
+
+	@Test
+	void equality_captures()
+	{
+		JsonMatcher<JsonValue> first = JsonMatcher.ANY_VALUE.capture(value -> {});
+		JsonMatcher<JsonValue> second = JsonMatcher.ANY_VALUE.capture(value -> {});
+
+		assertNotEquals(JsonMatcher.object().add("a", first).exact(), JsonMatcher.object().add("a", second).exact());
+		assertEquals(JsonMatcher.object().add("a", first).exact(), JsonMatcher.object().add("a", first).exact());
+		assertNotEquals(JsonMatcher.object().add("a", first).add("b", second).exact(),
+				JsonMatcher.object().add("b", second).add("a", first).exact(), "capture order differs");
+	}
+
+	@Test
+	void equality_interned()
+	{
+		JsonMatcher<JsonObject> first = template();
+		JsonMatcher<JsonObject> second = template();
+		assertSame(first, second, "builders return canonical instances");
+		assertSame(((ObjectMatcher) first).expected().get("body"), ((ObjectMatcher) second).expected().get("body"));
+		assertSame(JsonMatcher.value("event"), JsonMatcher.value("event"));
+
+		JsonMatcher<JsonValue> custom = JsonMatcher.ANY_VALUE.capture(value -> {});
+		assertSame(custom, JsonMatcher.intern(custom));
+
+		Map<JsonMatcher<?>, String> rules = Map.of(template(), "rule");
+		JsonMatcher<JsonObject> uninterned = new ObjectMatcher(((ObjectMatcher) template()).expected(), false);
+		assertNotSame(template(), uninterned);
+		assertEquals("rule", rules.get(uninterned), "usable as a key");
+	}
+
+	@Test
+	void equality_internedConcurrently()
+	throws Exception
+	{
+		int threads = 4;
+		int count = 2_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<JsonMatcher<JsonObject>>>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				results.add(executor.submit(() -> {
+					List<JsonMatcher<JsonObject>> matchers = new ArrayList<>();
+					for (int i = 0; i < count; i++) {
+						matchers.add(JsonMatcher.object().add("id", i).add("body", template()).exact());
+					}
+					return matchers;
+				}));
+			}
+			List<JsonMatcher<JsonObject>> first = results.get(0).get();
+			for (Future<List<JsonMatcher<JsonObject>>> result : results) {
+				List<JsonMatcher<JsonObject>> matchers = result.get();
+				for (int i = 0; i < count; i++) {
+					assertSame(first.get(i), matchers.get(i), "same canonical instance on every thread");
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
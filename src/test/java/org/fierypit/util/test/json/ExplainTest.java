@@ -0,0 +1,102 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExplainTest
+{
+	private static final JsonMatcher<JsonObject> MATCHER = JsonMatcher.object()
+			.add("msg-type", "event")
+			.add("a/b~c", JsonMatcher.object()
+					.add("items", JsonMatcher.array().add(1).add(JsonMatcher.ANY_STRING).exact())
+					.exact())
+			.add("tags", JsonMatcher.array().add("x").add(JsonMatcher.ANY_STRING).containsIgnoreOrder())
+			.contains();
+
+	@Test
+	void explain_matches()
+	{
+		assertEquals(Optional.empty(), MATCHER.explain(parseJson("""
+				{ "msg-type": "event", "a/b~c": { "items": [ 1, "s" ] }, "tags": [ "y", "x" ] }
+				""")));
+	}
+
+	@Test
+	void explain_nestedElement()
+	{
+		Mismatch mismatch = MATCHER.explain(parseJson("""
+				{ "msg-type": "event", "a/b~c": { "items": [ 1, 2 ] }, "tags": [ "y", "x" ] }
+				""")).orElseThrow();
+		assertEquals("/a~1b~0c/items/1", mismatch.pointer());
+		assertSame(JsonMatcher.ANY_STRING, mismatch.expected());
+		assertEquals(parseJson("2"), mismatch.actual());
+		assertEquals("/a~1b~0c/items/1: value does not match: expected (any string), found 2", mismatch.toString());
+	}
+
+	@Test
+	void explain_membersAndElements()
+	{
+		Mismatch mismatch = MATCHER.explain(parseJson("""
+				{ "a/b~c": { "items": [ 1, "s" ] }, "tags": [ "y", "x" ] }
+				""")).orElseThrow();
+		assertEquals("/msg-type", mismatch.pointer());
+		assertEquals("missing member", mismatch.reason());
+		assertNull(mismatch.actual());
+		assertEquals("/msg-type: missing member: expected \"event\"", mismatch.toString());
+
+		mismatch = MATCHER.explain(parseJson("""
+				{ "msg-type": "event", "a/b~c": { "items": [ 1, "s" ], "extra": true }, "tags": [ "y", "x" ] }
+				""")).orElseThrow();
+		assertEquals("/a~1b~0c/extra", mismatch.pointer());
+		assertEquals("unexpected member", mismatch.reason());
+		assertNull(mismatch.expected());
+		assertEquals("/a~1b~0c/extra: unexpected member: found true", mismatch.toString());
+
+		mismatch = MATCHER.explain(parseJson("""
+				{ "msg-type": "event", "a/b~c": { "items": [ 1, 2 ], "extra": true }, "tags": [ "y", "x" ] }
+				""")).orElseThrow();
+		assertEquals("/a~1b~0c/extra", mismatch.pointer(), "size of exact object checked before its members");
+
+		mismatch = MATCHER.explain(parseJson("""
+				{ "msg-type": "event", "a/b~c": { "items": [ 1 ] }, "tags": [ "y", "x" ] }
+				""")).orElseThrow();
+		assertEquals("/a~1b~0c/items/1", mismatch.pointer());
+		assertEquals("missing element", mismatch.reason());
+
+		mismatch = MATCHER.explain(parseJson("""
+				{ "msg-type": "event", "a/b~c": { "items": [ 1, "s" ] }, "tags": [ "x", 2 ] }
+				""")).orElseThrow();
+		assertEquals("/tags", mismatch.pointer());
+		assertSame(JsonMatcher.ANY_STRING, mismatch.expected());
+		assertEquals("no remaining element matches expectation", mismatch.reason());
+
+		mismatch = MATCHER.explain(parseJson("[]")).orElseThrow();
+		assertEquals("", mismatch.pointer());
+		assertEquals("not an object", mismatch.reason());
+		assertEquals("(root): not an object: expected " + MATCHER + ", found []", mismatch.toString());
+	}
+
+	@Test
+	void explain_noCaptures()
+	{
+		List<JsonValue> captured = new ArrayList<>();
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("a", JsonMatcher.ANY_NUMBER.capture(captured::add))
+				.add("b", 1)
+				.contains()
+				.compile();
+
+		assertEquals("/b", matcher.explain(parseJson("{ \"a\": 1, \"b\": 2 }")).orElseThrow().pointer());
+		assertEquals(List.of(), captured);
+	}
+}
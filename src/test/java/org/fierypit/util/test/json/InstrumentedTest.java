@@ -0,0 +1,92 @@
+package org.fierypit.util.test.json;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.json.JsonObject;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedTest
+{
+	private static final String NAME = "test \"rule\", with: special=characters";
+
+	@AfterEach
+	void unregister()
+	{
+		MatcherRegistry.unregister(NAME);
+	}
+
+	@Test
+	void instrumented_counts()
+	{
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object().add("a", 1).contains().instrumented(NAME);
+		assertEquals("(instrumented:" + NAME + ")(contains){\"a\":1}", matcher.toString());
+
+		for (int i = 0; i < 10; i++) {
+			matcher.test(parseJson("{ \"a\": " + (i % 3) + " }"));
+		}
+
+		MatcherMetricsMBean metrics = MatcherRegistry.metrics(NAME).orElseThrow();
+		assertEquals(NAME, metrics.getName());
+		assertEquals(10, metrics.getEvaluations());
+		assertEquals(3, metrics.getMatches());
+		assertEquals(0.3, metrics.getMatchRate(), 1e-9);
+		assertEquals(10, Arrays.stream(metrics.getLatencyHistogram()).sum());
+		assertTrue(metrics.getLatencyP50Nanos() <= metrics.getLatencyP99Nanos());
+		assertTrue(metrics.getMaxLatencyNanos() <= metrics.getLatencyP99Nanos(), "max within the p99 bucket of 10 samples");
+		assertTrue(metrics.getMeanLatencyNanos() > 0);
+
+		JsonMatcher.object().add("b", matcher.instrumented(NAME)).contains().test(parseJson("{ \"b\": { \"a\": 1 } }"));
+		assertEquals(12, metrics.getEvaluations(), "shared by matchers with the same name");
+
+		metrics.reset();
+		assertEquals(0, metrics.getEvaluations());
+		assertEquals(0, metrics.getLatencyP99Nanos());
+	}
+
+	@Test
+	void instrumented_jmx()
+	throws Exception
+	{
+		JsonMatcher<JsonObject> matcher = JsonMatcher.ANY_OBJECT.instrumented(NAME);
+		matcher.test(parseJson("{}"));
+		matcher.test(parseJson("[]"));
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = MatcherRegistry.objectName(NAME);
+		assertEquals(2L, server.getAttribute(objectName, "Evaluations"));
+		assertEquals(1L, server.getAttribute(objectName, "Matches"));
+		assertTrue(MatcherRegistry.names().contains(NAME));
+
+		assertTrue(MatcherRegistry.unregister(NAME));
+		assertFalse(server.isRegistered(objectName));
+		assertTrue(MatcherRegistry.metrics(NAME).isEmpty());
+		assertFalse(MatcherRegistry.unregister(NAME));
+	}
+
+	@Test
+	void instrumented_nameTaken()
+	throws Exception
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = MatcherRegistry.objectName(NAME);
+		MatcherMetrics foreign = new MatcherMetrics(NAME);
+		server.registerMBean(new StandardMBean(foreign, MatcherMetricsMBean.class), objectName);
+		try {
+			assertThrows(IllegalStateException.class, () -> JsonMatcher.ANY_OBJECT.instrumented(NAME));
+			assertTrue(server.isRegistered(objectName), "existing MBean left registered");
+			assertTrue(MatcherRegistry.metrics(NAME).isEmpty());
+		} finally {
+			server.unregisterMBean(objectName);
+		}
+	}
+}
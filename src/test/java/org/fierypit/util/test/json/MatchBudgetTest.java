@@ -0,0 +1,146 @@
+package org.fierypit.util.test.json;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonValue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchBudgetTest
+{
+	private static final int SIZE = 200;
+
+	/**
+	 * An array of near-duplicate objects in reverse order, and an order-independent matcher expecting each of them by
+	 * identifier, so that the expectations are invoked against about SIZE<sup>2</sup>/2 elements in all.
+	 */
+	private static final JsonArray ARRAY;
+	private static final JsonMatcher.ArrayBuilder BUILDER = JsonMatcher.array();
+	static {
+		JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+		for (int i = SIZE - 1; i >= 0; i--) {
+			arrayBuilder.add(Json.createObjectBuilder().add("kind", "item").add("id", i));
+		}
+		ARRAY = arrayBuilder.build();
+		for (int i = 0; i < SIZE; i++) {
+			BUILDER.add(JsonMatcher.object().add("kind", JsonMatcher.ANY_STRING).add("id", i).contains());
+		}
+	}
+
+	@Test
+	void budget_invocations()
+	{
+		JsonMatcher<JsonArray> matcher = BUILDER.containsIgnoreOrder();
+		assertTrue(matcher.test(ARRAY));
+		assertTrue(matcher.budgeted(MatchBudget.maximumInvocations(SIZE * SIZE)).test(ARRAY), "within budget");
+
+		JsonMatcher<JsonArray> budgeted = matcher.budgeted(MatchBudget.maximumInvocations(1000));
+		assertEquals("(budgeted)" + matcher, budgeted.toString());
+		MatchBudgetExceeded e = assertThrows(MatchBudgetExceeded.class, () -> budgeted.test(ARRAY));
+		assertEquals(1000, e.invocations());
+		assertEquals(1000, e.budget().maximumInvocations());
+		assertNull(Budget.current(), "budget ended");
+		assertFalse(budgeted.test(Json.createArrayBuilder().add(1).build()), "mismatches still reported");
+	}
+
+	@Test
+	void budget_optimal()
+	{
+		JsonMatcher<JsonArray> matcher = BUILDER.exactIgnoreOrderOptimal();
+		assertTrue(matcher.test(ARRAY));
+		MatchBudgetExceeded e = assertThrows(MatchBudgetExceeded.class,
+				() -> matcher.budgeted(MatchBudget.maximumInvocations(SIZE * 10)).test(ARRAY));
+		assertEquals(SIZE * 10, e.invocations());
+	}
+
+	@Test
+	void budget_timeLimit()
+	{
+		JsonMatcher<JsonArray> budgeted = BUILDER.containsIgnoreOrder().budgeted(MatchBudget.timeLimit(Duration.ofNanos(1)));
+		MatchBudgetExceeded e = assertThrows(MatchBudgetExceeded.class, () -> budgeted.test(ARRAY));
+		assertEquals(Budget.CLOCK_INTERVAL, e.invocations(), "clock checked periodically");
+		assertEquals(Duration.ofNanos(1), e.budget().timeLimit().orElseThrow());
+	}
+
+	@Test
+	void budget_nested()
+	{
+		MatchBudget outer = MatchBudget.maximumInvocations(SIZE * 3);
+		JsonMatcher<JsonArray> inner = BUILDER.containsIgnoreOrder().budgeted(MatchBudget.maximumInvocations(SIZE * SIZE));
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array().add(inner).add(inner).exact().budgeted(outer);
+
+		MatchBudgetExceeded e = assertThrows(MatchBudgetExceeded.class,
+				() -> matcher.test(Json.createArrayBuilder().add(ARRAY).add(ARRAY).build()));
+		assertSame(outer, e.budget(), "inner invocations charged to the outer budget");
+	}
+
+	@Test
+	void budget_parallel()
+	{
+		int size = 2_000;
+		JsonArrayBuilder values = Json.createArrayBuilder();
+		JsonArrayBuilder nested = Json.createArrayBuilder();
+		JsonMatcher.ArrayBuilder ordered = JsonMatcher.array().parallelThreshold(1_000);
+		for (int i = 0; i < size; i++) {
+			values.add(Json.createObjectBuilder().add("id", i));
+			nested.add(Json.createArrayBuilder().add(Json.createObjectBuilder().add("id", i)));
+			ordered.add(JsonMatcher.array().add(JsonMatcher.object().add("id", i).contains()).containsIgnoreOrder());
+		}
+		JsonArray value = values.build();
+		JsonArray nestedValue = nested.build();
+
+		JsonMatcher<JsonArray> unordered = JsonMatcher.array()
+				.add(JsonMatcher.object().add("id", size - 1).contains())
+				.parallelThreshold(1_000)
+				.containsIgnoreOrder();
+		assertTrue(unordered.budgeted(MatchBudget.maximumInvocations(size)).test(value), "within budget");
+		MatchBudgetExceeded e = assertThrows(MatchBudgetExceeded.class,
+				() -> unordered.budgeted(MatchBudget.maximumInvocations(size / 2)).test(value));
+		assertEquals(size / 2, e.invocations(), "searches on worker threads charged");
+
+		JsonMatcher<JsonArray> exact = ordered.exact();
+		assertTrue(exact.budgeted(MatchBudget.maximumInvocations(size)).test(nestedValue), "within budget");
+		e = assertThrows(MatchBudgetExceeded.class,
+				() -> exact.budgeted(MatchBudget.maximumInvocations(size / 2)).test(nestedValue));
+		assertEquals(size / 2, e.invocations(), "nested matchers on worker threads charged");
+		assertNull(Budget.current(), "budget ended");
+	}
+
+	@Test
+	void budget_captures()
+	{
+		List<JsonValue> captured = new ArrayList<>();
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array()
+				.add(JsonMatcher.ANY_NUMBER.capture(captured::add))
+				.add("a")
+				.containsIgnoreOrder()
+				.budgeted(MatchBudget.maximumInvocations(10));
+		MatchResult result = JsonMatcher.array().add(matcher).exact().match(Json.createArrayBuilder()
+				.add(Json.createArrayBuilder().add("a").add(2))
+				.build());
+		assertTrue(result.matched());
+		assertEquals(List.of(Json.createValue(2)), captured);
+	}
+
+	@Test
+	void budget_arguments()
+	{
+		assertThrows(IllegalArgumentException.class, () -> MatchBudget.maximumInvocations(0));
+		assertThrows(IllegalArgumentException.class, () -> MatchBudget.timeLimit(Duration.ZERO));
+		assertThrows(NullPointerException.class, () -> MatchBudget.timeLimit(null));
+		assertThrows(NullPointerException.class, () -> JsonMatcher.ANY_ARRAY.budgeted(null));
+
+		MatchBudget budget = MatchBudget.maximumInvocations(5).withTimeLimit(Duration.ofSeconds(1));
+		assertEquals(5, budget.maximumInvocations());
+		assertEquals(Duration.ofSeconds(1), budget.timeLimit().orElseThrow());
+		assertEquals(Long.MAX_VALUE, MatchBudget.timeLimit(Duration.ofSeconds(1)).maximumInvocations());
+		assertEquals("(maximumInvocations:5,timeLimit:PT1S)", budget.toString());
+	}
+}
@@ -0,0 +1,139 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchContextTest
+{
+	@Test
+	void match_objectFailsAfterCapture_noConsumerCalls()
+	{
+		List<JsonValue> captured = new ArrayList<>();
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("body", JsonMatcher.ANY_OBJECT.capture(captured::add))
+				.add("tags", JsonMatcher.array().add("a").exact())
+				.contains();
+
+		assertFalse(matcher.match(parseJson("""
+				{ "body": { "x": 1 }, "tags": [ "b" ] }
+				""")).matched());
+		assertEquals(List.of(), captured, "no capture when a later member fails");
+
+		matcher.test(parseJson("""
+				{ "body": { "x": 1 }, "tags": [ "b" ] }
+				"""));
+		assertEquals(List.of(parseJson("{\"x\":1}")), captured, "test() still captures eagerly");
+
+		captured.clear();
+		assertTrue(matcher.match(parseJson("""
+				{ "body": { "x": 2 }, "tags": [ "a" ] }
+				""")).matched());
+		assertEquals(List.of(parseJson("{\"x\":2}")), captured);
+	}
+
+	@Test
+	void match_unorderedArray_onlyFinalAssignmentCaptured()
+	{
+		List<JsonValue> captured = new ArrayList<>();
+		JsonMatcher<JsonObject> element = JsonMatcher.object()
+				.add("id", JsonMatcher.ANY_NUMBER.capture(captured::add))
+				.add("ok", true)
+				.contains();
+		JsonValue value = parseJson("""
+				[ { "id": 1, "ok": false }, { "id": 2, "ok": false }, { "id": 3, "ok": true } ]
+				""");
+
+		for (JsonMatcher<JsonArray> matcher : List.of(
+				JsonMatcher.array().add(element).containsIgnoreOrder(),
+				JsonMatcher.array().add(element).containsIgnoreOrderOptimal())) {
+			captured.clear();
+			assertTrue(matcher.match(value).matched(), matcher::toString);
+			assertEquals(List.of(parseJson("3")), captured, matcher::toString);
+		}
+	}
+
+	@Test
+	void match_bipartite_capturesInExpectationOrder()
+	{
+		List<JsonValue> captured = new ArrayList<>();
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array()
+				.add(JsonMatcher.ANY_STRING.capture(captured::add))
+				.add(JsonMatcher.value("a").capture(captured::add))
+				.containsIgnoreOrderOptimal();
+
+		// Greedy assignment would give "a" to the first expectation, leaving none for the second.
+		assertTrue(matcher.match(parseJson("[ \"a\", \"b\" ]")).matched());
+		assertEquals(List.of(parseJson("\"b\""), parseJson("\"a\"")), captured);
+	}
+
+	@Test
+	void match_namedCaptures()
+	{
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("type", JsonMatcher.ANY_STRING.capture("type"))
+				.add("items", JsonMatcher.array()
+						.add(JsonMatcher.ANY_NUMBER.capture("item"))
+						.add(JsonMatcher.ANY_NUMBER.capture("item"))
+						.exact())
+				.contains()
+				.compile();
+
+		assertEquals("(capture:type)(any string)", JsonMatcher.ANY_STRING.capture("type").toString());
+		assertTrue(matcher.test(parseJson("{ \"type\": \"t\", \"items\": [ 1, 2 ] }")), "named captures ignored by test()");
+
+		MatchResult result = matcher.match(parseJson("{ \"type\": \"t\", \"items\": [ 1, 2 ] }"));
+		assertTrue(result.matched());
+		assertEquals(parseJson("\"t\""), result.capture("type").orElseThrow());
+		assertEquals(List.of(parseJson("1"), parseJson("2")), result.captures("item"));
+		assertTrue(result.capture("missing").isEmpty());
+
+		result = matcher.match(parseJson("{ \"type\": \"t\", \"items\": [ 1, \"2\" ] }"));
+		assertFalse(result.matched());
+		assertTrue(result.capture("type").isEmpty(), "nothing captured without a match");
+	}
+
+	@Test
+	void match_concurrent()
+	throws Exception
+	{
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("id", JsonMatcher.ANY_NUMBER.capture("id"))
+				.add("tags", JsonMatcher.array().add(JsonMatcher.ANY_STRING.capture("tag")).containsIgnoreOrder())
+				.contains();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < 4; thread++) {
+				int base = thread * 10_000;
+				futures.add(executor.submit(() -> {
+					for (int i = base; i < base + 1_000; i++) {
+						MatchResult result = matcher.match(parseJson("""
+								{ "id": %d, "tags": [ 0, "t%d" ] }
+								""".formatted(i, i)));
+						assertEquals(List.of(parseJson(Integer.toString(i))), result.captures("id"));
+						assertEquals(List.of(parseJson("\"t" + i + "\"")), result.captures("tag"));
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
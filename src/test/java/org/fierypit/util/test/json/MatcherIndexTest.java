@@ -0,0 +1,101 @@
+package org.fierypit.util.test.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatcherIndexTest
+{
+	@Test
+	void index_findsAllMatches()
+	{
+		JsonMatcher<JsonObject> eventA = JsonMatcher.object().add("msg-type", "event").add("tenant", "a").contains();
+		JsonMatcher<JsonObject> eventB = JsonMatcher.object().add("msg-type", "event").add("tenant", "b").contains();
+		JsonMatcher<JsonObject> anyEvent = JsonMatcher.object().add("msg-type", "event").contains();
+		JsonMatcher<JsonObject> exactEventA = JsonMatcher.object()
+				.add("msg-type", "event")
+				.add("tenant", "a")
+				.add("id", JsonMatcher.ANY_NUMBER)
+				.exact();
+		JsonMatcher<JsonObject> anyTenant = JsonMatcher.object().add("tenant", JsonMatcher.ANY_STRING).contains();
+		JsonMatcher<JsonObject> custom = value -> value instanceof JsonObject jsonObject && jsonObject.size() == 3;
+
+		MatcherIndex index = new MatcherIndex()
+				.add(eventA)
+				.add(eventB)
+				.add(anyEvent)
+				.add(exactEventA)
+				.add(anyTenant)
+				.add(custom)
+				.add(eventA);	// duplicate, ignored
+		assertEquals(6, index.size());
+
+		assertEquals(List.of(eventA, anyEvent, exactEventA, anyTenant, custom), List.copyOf(index.match(parseJson("""
+				{ "msg-type": "event", "tenant": "a", "id": 1 }
+				"""))));
+		assertEquals(List.of(eventB, anyEvent, anyTenant), List.copyOf(index.match(parseJson("""
+				{ "msg-type": "event", "tenant": "b", "id": 1, "extra": null }
+				"""))));
+		assertEquals(List.of(anyTenant), List.copyOf(index.match(parseJson("""
+				{ "msg-type": "other", "tenant": "b" }
+				"""))));
+		assertEquals(Set.of(), index.match(parseJson("""
+				{ "msg-type": 1, "tenant": 2 }
+				""")));
+		assertEquals(Set.of(), index.match(parseJson("[]")));
+		assertEquals(Set.of(), index.match(JsonValue.NULL));
+	}
+
+	@Test
+	void index_testsOnlyCandidates()
+	{
+		// Count the number of times the non-literal part of each matcher is evaluated.
+		AtomicInteger evaluations = new AtomicInteger();
+		JsonMatcher<JsonValue> countingMatcher = value -> {
+			evaluations.incrementAndGet();
+			return true;
+		};
+
+		MatcherIndex index = new MatcherIndex();
+		List<JsonMatcher<JsonObject>> matchers = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+					.add("rule", i)
+					.add("enabled", true)
+					.add("payload", countingMatcher)
+					.contains();
+			matchers.add(matcher);
+			index.add(matcher);
+		}
+
+		assertEquals(Set.of(matchers.get(123)), index.match(parseJson("""
+				{ "rule": 123, "enabled": true, "payload": {} }
+				""")));
+		assertEquals(1, evaluations.get(), "only one candidate should be evaluated");
+
+		assertEquals(Set.of(), index.match(parseJson("""
+				{ "rule": 123, "enabled": false, "payload": {} }
+				""")));
+		assertEquals(1, evaluations.get(), "no candidates should be evaluated");
+	}
+
+	@Test
+	void index_compiledMatcher()
+	{
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object().add("a", 1).add("b", JsonValue.NULL).exact().compile();
+		MatcherIndex index = new MatcherIndex().add(matcher);
+
+		assertEquals(Set.of(matcher), index.match(parseJson("{\"a\":1,\"b\":null}")));
+		assertEquals(Set.of(), index.match(parseJson("{\"a\":1,\"b\":false}")));
+	}
+}
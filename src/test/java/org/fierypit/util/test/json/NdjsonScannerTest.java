@@ -0,0 +1,136 @@
+package org.fierypit.util.test.json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.json.JsonObject;
+import javax.json.stream.JsonParsingException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NdjsonScannerTest
+{
+	@TempDir
+	Path tempDir;
+
+	private static final JsonMatcher<JsonObject> MATCHER = JsonMatcher.object()
+			.add("level", "error")
+			.add("id", JsonMatcher.ANY_NUMBER)
+			.contains();
+
+	/** Write a test file, returning the offsets and text of the records which should match {@link #MATCHER}. */
+	private List<String> writeFile(Path file, int recordCount)
+	throws IOException
+	{
+		StringBuilder contents = new StringBuilder();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < recordCount; i++) {
+			String level = (i % 7 == 0) ? "error" : "info";
+			String record = "{\"id\":" + i + ",\"level\":\"" + level + "\",\"tags\":[\"a\",{\"b\":\"c\\n\"}]}";
+			if (level.equals("error")) {
+				expected.add(contents.toString().getBytes(StandardCharsets.UTF_8).length + ": " + record);
+			}
+			contents.append(record).append((i % 3 == 0) ? "\r\n" : "\n");
+			if (i % 10 == 0) {
+				contents.append("\n");	// blank line
+			}
+		}
+		Files.writeString(file, contents.toString());
+		return expected;
+	}
+
+	@Test
+	void scan_ordered()
+	throws IOException
+	{
+		Path file = tempDir.resolve("log.ndjson");
+		List<String> expected = writeFile(file, 1000);
+
+		for (int chunkSize : new int[] { 1, 100, 4096, NdjsonScanner.DEFAULT_CHUNK_SIZE }) {
+			NdjsonScanner.Result result = new NdjsonScanner(MATCHER, ForkJoinPool.commonPool(), chunkSize).scan(file);
+			assertEquals(expected, result.matches().stream().map(Object::toString).toList(), "chunk size " + chunkSize);
+			assertEquals(1000, result.recordCount(), "records counted, excluding blank lines");
+			assertEquals(Files.size(file), result.byteCount());
+		}
+
+		NdjsonScanner.Match first = new NdjsonScanner(MATCHER).scan(file).matches().get(0);
+		assertEquals(parseJson(first.text()), first.value());
+		assertEquals(first.text().length(), first.length());
+	}
+
+	@Test
+	void scan_unordered()
+	throws IOException
+	{
+		Path file = tempDir.resolve("log.ndjson");
+		List<String> expected = writeFile(file, 1000);
+
+		List<NdjsonScanner.Match> matches = Collections.synchronizedList(new ArrayList<>());
+		ForkJoinPool pool = new ForkJoinPool(4);
+		NdjsonScanner.Result result;
+		try {
+			result = new NdjsonScanner(MATCHER, pool, 256).scan(file, matches::add);
+		} finally {
+			pool.shutdown();
+		}
+		assertTrue(result.matches().isEmpty(), "matches passed to consumer only");
+		matches.sort(Comparator.comparingLong(NdjsonScanner.Match::offset));
+		assertEquals(expected, matches.stream().map(Object::toString).toList());
+	}
+
+	@Test
+	void scan_emptyFile()
+	throws IOException
+	{
+		Path file = Files.createFile(tempDir.resolve("empty.ndjson"));
+		NdjsonScanner.Result result = new NdjsonScanner(MATCHER).scan(file);
+		assertTrue(result.matches().isEmpty());
+		assertEquals(0, result.recordCount());
+	}
+
+	@Test
+	void scan_invalidRecord()
+	throws IOException
+	{
+		Path file = tempDir.resolve("invalid.ndjson");
+		Files.writeString(file, """
+				{ "level": "error", "id": 1 }
+				{ "level": "error", "id":
+				""");
+		JsonParsingException e = assertThrows(JsonParsingException.class, () -> new NdjsonScanner(MATCHER).scan(file));
+		assertTrue(e.getMessage().contains("offset 30"), e.getMessage());
+
+		Files.writeString(file, """
+				{ "level": "error", "id": 1 }
+				{ "level": "error", "id": 1.5.5 }
+				""");
+		e = assertThrows(JsonParsingException.class, () -> new NdjsonScanner(MATCHER).scan(file));
+		assertTrue(e.getMessage().contains("offset 30"), e.getMessage());
+	}
+
+	@Test
+	void scan_trailingData()
+	throws IOException
+	{
+		Path file = tempDir.resolve("trailing.ndjson");
+		Files.writeString(file, """
+				{ "level": "error", "id": 1 }\t\r
+				{ "level": "info", "id": 2 } ignored, since the record does not match
+				{ "level": "error", "id": 3 } garbage
+				""");
+		JsonParsingException e = assertThrows(JsonParsingException.class, () -> new NdjsonScanner(MATCHER).scan(file));
+		assertTrue(e.getMessage().contains("offset 102") && e.getMessage().contains("after value"), e.getMessage());
+	}
+}
@@ -0,0 +1,72 @@
+package org.fierypit.util.test.json;
+
+import java.math.BigDecimal;
+
+import javax.json.Json;
+import javax.json.JsonNumber;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumberMatcherTest
+{
+	@Test
+	void range_long()
+	{
+		JsonMatcher<JsonNumber> matcher = JsonMatcher.range(-5, 100);
+		assertEquals("(integer -5..100)", matcher.toString());
+		assertTrue(matcher.test(Json.createValue(-5)));
+		assertTrue(matcher.test(Json.createValue(100L)));
+		assertTrue(matcher.test(parseJson("[ 42 ]").asJsonArray().get(0)));
+		assertFalse(matcher.test(Json.createValue(101)));
+		assertFalse(matcher.test(Json.createValue(-6)));
+		assertFalse(matcher.test(Json.createValue(42.5)));
+		assertFalse(matcher.test(Json.createValue(new BigDecimal("42.0"))), "not integral");
+		assertFalse(matcher.test(Json.createValue(new BigDecimal("1e30"))), "beyond long");
+		assertFalse(matcher.test(Json.createValue("42")));
+
+		JsonMatcher<JsonNumber> all = JsonMatcher.range(Long.MIN_VALUE, Long.MAX_VALUE);
+		assertTrue(all.test(Json.createValue(Long.MAX_VALUE)));
+		assertFalse(all.test(Json.createValue(new BigDecimal(Long.MAX_VALUE).add(BigDecimal.ONE))));
+
+		assertThrows(IllegalArgumentException.class, () -> JsonMatcher.range(1, 0));
+		assertSame(matcher, JsonMatcher.range(-5, 100), "interned");
+	}
+
+	@Test
+	void range_double()
+	{
+		JsonMatcher<JsonNumber> matcher = JsonMatcher.range(0.5, 1.0);
+		assertEquals("(number 0.5..1.0)", matcher.toString());
+		assertTrue(matcher.test(Json.createValue(0.75)));
+		assertTrue(matcher.test(Json.createValue(1)), "integral number at bound");
+		assertTrue(matcher.test(Json.createValue(new BigDecimal("0.50"))));
+		assertFalse(matcher.test(Json.createValue(new BigDecimal("1.0000000000000000000001"))), "rounds to bound, but above");
+		assertFalse(matcher.test(Json.createValue(new BigDecimal("0.4999999999999999999999"))), "rounds to bound, but below");
+		assertFalse(matcher.test(Json.createValue(2)));
+
+		JsonMatcher<JsonNumber> positive = JsonMatcher.range(Double.MIN_VALUE, Double.POSITIVE_INFINITY);
+		assertTrue(positive.test(Json.createValue(new BigDecimal("1e400"))), "beyond double, within open range");
+		assertFalse(positive.test(Json.createValue(0)));
+		assertFalse(positive.test(Json.createValue(new BigDecimal("-1e400"))));
+
+		assertThrows(IllegalArgumentException.class, () -> JsonMatcher.range(1.0, 0.0));
+		assertThrows(IllegalArgumentException.class, () -> JsonMatcher.range(Double.NaN, 0.0));
+		assertEquals(matcher, JsonMatcher.range(0.5, 1.0));
+		assertNotEquals(matcher, JsonMatcher.range(0.5, 1.5));
+	}
+
+	@Test
+	void integral()
+	{
+		JsonMatcher<JsonNumber> matcher = JsonMatcher.integral();
+		assertTrue(matcher.test(Json.createValue(3)));
+		assertTrue(matcher.test(Json.createValue(new BigDecimal("123456789012345678901234567890"))));
+		assertFalse(matcher.test(Json.createValue(3.5)));
+		assertFalse(matcher.test(Json.createValue("3")));
+		assertTrue(JsonMatcher.object().add("count", matcher).exact().test(parseJson("{ \"count\": 7 }")));
+	}
+}
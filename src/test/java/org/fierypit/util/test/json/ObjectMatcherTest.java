@@ -2,6 +2,7 @@ package org.fierypit.util.test.json;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -580,6 +581,89 @@ class ObjectMatcherTest
 				""")), "nested arrays; nestedArrayExactIgnoreOrder contains invalid extra member");
 	}
 
+	@Test
+	void objectMatcher_shapeMismatch_nestedMatchersNotEvaluated()
+	{
+		// Structural mismatches anywhere in the expected members should be found before any nested matcher is evaluated.
+		int[] evaluations = new int[1];
+		JsonMatcher<JsonValue> countingMatcher = value -> {
+			evaluations[0]++;
+			return true;
+		};
+
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("a", countingMatcher)
+				.add("b", JsonMatcher.object().add("x", 1).contains())
+				.add("c", JsonMatcher.array().add(1).add(2).exact())
+				.add("d", JsonMatcher.ANY_STRING)
+				.contains();
+
+		assertTrue(matcher.test(parseJson("""
+				{ "a": 0, "b": { "x": 1 }, "c": [ 1, 2 ], "d": "" }
+				""")), "all members match");
+		assertEquals(1, evaluations[0], "custom matcher evaluated for matching object");
+
+		evaluations[0] = 0;
+		assertFalse(matcher.test(parseJson("""
+				{ "a": 0, "b": { "y": 1 }, "c": [ 1, 2 ], "d": "" }
+				""")), "nested object missing required member");
+		assertFalse(matcher.test(parseJson("""
+				{ "a": 0, "b": { "x": 1 }, "c": [ 1, 2, 3 ], "d": "" }
+				""")), "nested array of wrong size");
+		assertFalse(matcher.test(parseJson("""
+				{ "a": 0, "b": { "x": 1 }, "c": [ 1, 2 ], "d": 0 }
+				""")), "member of wrong type");
+		assertFalse(matcher.test(parseJson("""
+				{ "a": 0, "b": { "x": 1 }, "c": [ 1, 2 ] }
+				""")), "member missing");
+		assertEquals(0, evaluations[0], "custom matcher never evaluated for structural mismatches");
+	}
+
+	@Test
+	void objectMatcher_cheapestMembersFirst()
+	{
+		// A failing literal member should be found before evaluating more expensive members, whatever the declaration order.
+		int[] evaluations = new int[1];
+		JsonMatcher<JsonValue> countingMatcher = value -> {
+			evaluations[0]++;
+			return true;
+		};
+
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("custom", countingMatcher)
+				.add("unordered", JsonMatcher.array().add(countingMatcher).containsIgnoreOrder())
+				.add("literal", 1)
+				.contains();
+
+		assertFalse(matcher.test(parseJson("""
+				{ "custom": 0, "unordered": [ 0 ], "literal": 2 }
+				""")), "literal member does not match");
+		assertEquals(0, evaluations[0], "expensive members not evaluated when literal member fails");
+
+		assertTrue(matcher.test(parseJson("""
+				{ "custom": 0, "unordered": [ 0 ], "literal": 1 }
+				""")), "all members match");
+		assertEquals(2, evaluations[0], "expensive members evaluated when literal member matches");
+	}
+
+	@Test
+	void objectMatcher_capturesInDeclarationOrder()
+	{
+		// Members which capture are evaluated in declaration order, even when a later one is cheaper.
+		List<String> captured = new ArrayList<>();
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("first", JsonMatcher.array().add(1).containsIgnoreOrder().capture(value -> captured.add("first")))
+				.add("second", JsonMatcher.ANY_NUMBER.capture(value -> captured.add("second")))
+				.add("third", JsonMatcher.value(3).capture(value -> captured.add("third")))
+				.add("literal", 4)
+				.exact();
+
+		assertTrue(matcher.test(parseJson("""
+				{ "first": [ 1 ], "second": 2, "third": 3, "literal": 4 }
+				""")));
+		assertEquals(List.of("first", "second", "third"), captured, "captures performed in declaration order");
+	}
+
 	@Test
 	void objectMatcher_reuseBuilder()
 	{
@@ -663,4 +747,32 @@ class ObjectMatcherTest
 				(contains){"a":1,"b":"test","c":true,"d":[]}\
 				""", orig.contains().toString(), "original unchanged when copy modified");
 	}
+
+	@Test
+	void duplicate_chain()
+	{
+		JsonMatcher.ObjectBuilder base = JsonMatcher.object().add("a", 1).add("b", 2);
+		JsonMatcher.ObjectBuilder first = base.duplicate();
+		JsonMatcher.ObjectBuilder second = first.duplicate();
+
+		first.remove("b");
+		second.add("c", 3);
+		base.remove("missing").reset().add("z", 0);
+
+		assertEquals("(exact){\"a\":1}", first.exact().toString(), "member removed from first duplicate");
+		assertEquals("(exact){\"a\":1,\"b\":2,\"c\":3}", second.exact().toString(), "member added to second duplicate");
+		assertEquals("(exact){\"z\":0}", base.exact().toString(), "original reset");
+	}
+
+	@Test
+	void build_sharesExpectations()
+	{
+		JsonMatcher.ObjectBuilder builder = JsonMatcher.object().add("a", 1).add("b", JsonMatcher.ANY_STRING);
+		JsonMatcher<JsonObject> matcher = builder.contains();
+		builder.add("c", 3).remove("a");
+
+		assertEquals("(contains){\"a\":1,\"b\":(any string)}", matcher.toString(), "matcher unchanged when builder modified");
+		assertThrows(UnsupportedOperationException.class, () -> ((ObjectMatcher) matcher).expected().put("d", JsonMatcher.ANY_VALUE));
+		assertEquals("(contains){\"b\":(any string),\"c\":3}", builder.contains().toString());
+	}
 }
@@ -0,0 +1,85 @@
+package org.fierypit.util.test.json;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.json.Json;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegexMatcherTest
+{
+	@Test
+	void regex_matches()
+	{
+		JsonMatcher<JsonString> matcher = JsonMatcher.regex("order-[0-9]+");
+		assertEquals("(regex:order-[0-9]+)", matcher.toString());
+		assertTrue(matcher.test(Json.createValue("order-123")));
+		assertFalse(matcher.test(Json.createValue("order-")), "whole string must match");
+		assertFalse(matcher.test(Json.createValue("my-order-123")), "whole string must match");
+		assertFalse(matcher.test(Json.createValue(123)));
+		assertFalse(matcher.test(JsonValue.NULL));
+
+		JsonMatcher<?> objectMatcher = JsonMatcher.object().add("id", matcher).exact();
+		assertTrue(objectMatcher.test(parseJson("{ \"id\": \"order-9\" }")));
+		assertFalse(objectMatcher.test(parseJson("{ \"id\": \"invoice-9\" }")));
+	}
+
+	@Test
+	void regex_equality()
+	{
+		assertSame(JsonMatcher.regex("a+b"), JsonMatcher.regex(Pattern.compile("a+b")), "interned");
+		assertNotEquals(JsonMatcher.regex("a+b"), JsonMatcher.regex(Pattern.compile("a+b", Pattern.CASE_INSENSITIVE)));
+		assertThrows(NullPointerException.class, () -> JsonMatcher.regex((Pattern) null));
+	}
+
+	@Test
+	void regex_requiredLiterals()
+	{
+		assertLiterals("order-[0-9]+", "order-", "");
+		assertLiterals("^abc$", "abc", "");
+		assertLiterals("[a-z]+@example\\.com", "", "@example.com");
+		assertLiterals("id:\\d+;name:.*;end", "id:", ";name:", ";end");
+		assertLiterals("ab+c?d", "ab", "d");
+		assertLiterals("x{2}y{0,3}z{1}w", "x", "zw");
+		assertLiterals("\\Qa.b\\E*c", "a.", "c");
+		assertLiterals("a(?s)bc", "a", "");
+		assertLiterals("abc|def", "", "");
+		assertLiterals("(abc)?def", "", "def");
+		assertLiterals("a\\p{Alpha}b", "a", "");
+		assertLiterals("tab\\tend", "tab\tend", "");
+		assertEquals(List.of("", ""), ((RegexMatcher) JsonMatcher.regex(Pattern.compile("abc", Pattern.CASE_INSENSITIVE)))
+				.requiredLiterals(), "case-insensitive literals not used");
+	}
+
+	/** Check that the prefilter never rejects a string the expression accepts, over a range of expressions and strings. */
+	@Test
+	void regex_prefilterConsistent()
+	{
+		List<String> regexes = List.of("abc", "a.c", "a+b+", "ab*c", "a?bc", "a{2,}b", "a{0}b", "(ab)+c", "[abc]+c",
+				"a\\.c", "\\Qa+\\Eb", "a\\d*b", "^ab.*c$", "x(?:y|z)w", "a(?i)B", "ab{1}c", "a[]b]c", "a[^]]c", "\\Q\\Eab*",
+				"a(?<n>b)\\k<n>", "ab+?c", "ab*+c", "ab{2}?c");
+		List<String> strings = List.of("", "a", "ab", "abc", "aabc", "abbc", "abbbc", "ac", "bc", "a.c", "axc", "a+b",
+				"aab", "b", "ababc", "ac", "cc", "xyw", "xzw", "aB", "ab", "a]c", "axc", "abb", "a1b", "a12b", "abcc");
+		for (String regex : regexes) {
+			Pattern pattern = Pattern.compile(regex);
+			JsonMatcher<JsonString> matcher = JsonMatcher.regex(pattern);
+			for (String string : strings) {
+				assertEquals(pattern.matcher(string).matches(), matcher.test(Json.createValue(string)),
+						"/" + regex + "/ against \"" + string + "\"");
+			}
+		}
+	}
+
+	private static void assertLiterals(String regex, String... expected)
+	{
+		List<String> literals = ((RegexMatcher) JsonMatcher.regex(regex)).requiredLiterals();
+		assertEquals(List.of(expected), literals, regex);
+	}
+}
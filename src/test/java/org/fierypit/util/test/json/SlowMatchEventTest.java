@@ -0,0 +1,139 @@
+package org.fierypit.util.test.json;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.fierypit.util.test.json.TestUtil.allocatedBytesPerCall;
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowMatchEventTest
+{
+	@TempDir
+	Path directory;
+
+	@Test
+	void slowMatch_unordered()
+	throws Exception
+	{
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array()
+				.add(JsonMatcher.object().add("a", 2).contains())
+				.add(JsonMatcher.object().add("a", 1).contains())
+				.containsIgnoreOrder();
+		JsonArray value = (JsonArray) parseJson("""
+				[ { "a": 1 }, { "a": 2 }, [ 3 ] ]
+				""");
+
+		List<RecordedEvent> events = record(() -> assertTrue(matcher.test(value)));
+		assertEquals(1, events.size());
+		RecordedEvent event = events.get(0);
+		assertEquals(matcher.toString(), event.getString("matcher"));
+		assertTrue(event.getBoolean("matched"));
+		assertEquals(7, event.getLong("valueSize"), "the array, three elements and three nested values");
+		assertEquals(3, event.getInt("arraySize"));
+		assertEquals(2, event.getInt("expectations"));
+		assertEquals(3, event.getLong("invocations"), "{a:2} against two elements, then {a:1} against the first");
+	}
+
+	@Test
+	void slowMatch_optimal()
+	throws Exception
+	{
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array()
+				.add(JsonMatcher.object().add("a", 1).contains())
+				.add(JsonMatcher.ANY_OBJECT)
+				.exactIgnoreOrderOptimal();
+		JsonArray value = (JsonArray) parseJson("""
+				[ { "a": 2 }, { "a": 3 } ]
+				""");
+
+		List<RecordedEvent> events = record(() -> assertFalse(matcher.test(value)));
+		assertEquals(1, events.size());
+		RecordedEvent event = events.get(0);
+		assertFalse(event.getBoolean("matched"));
+		assertEquals(2, event.getInt("arraySize"));
+		assertEquals(2, event.getLong("invocations"), "stops at the first expectation matching no element");
+	}
+
+	@Test
+	void slowMatch_parallel()
+	throws Exception
+	{
+		int size = 2_000;
+		JsonArrayBuilder values = Json.createArrayBuilder();
+		for (int i = 0; i < size; i++) {
+			values.add(Json.createObjectBuilder().add("id", i));
+		}
+		JsonArray value = values.build();
+		JsonMatcher.ArrayBuilder builder = JsonMatcher.array().add(JsonMatcher.object().add("id", size - 1).exact());
+		JsonMatcher<JsonArray> sequential = builder.containsIgnoreOrder();
+		JsonMatcher<JsonArray> parallel = builder.parallelThreshold(1_000).containsIgnoreOrder();
+
+		List<RecordedEvent> events = record(() -> {
+			assertTrue(sequential.test(value));
+			assertTrue(parallel.test(value));
+		});
+		assertEquals(2, events.size());
+		assertEquals(size, events.get(0).getLong("invocations"), "sequential: the expectation against every element");
+		assertEquals(size, events.get(1).getLong("invocations"), "parallel: tests on worker threads counted");
+	}
+
+	@Test
+	void slowMatch_threshold()
+	throws Exception
+	{
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array().add(1).add(2).containsIgnoreOrder();
+		try (Recording recording = new Recording()) {
+			recording.enable(SlowMatchEvent.NAME).withThreshold(Duration.ofHours(1));
+			recording.start();
+			assertTrue(matcher.test(parseJson("[ 2, 1 ]")));
+			recording.stop();
+			Path file = directory.resolve("threshold.jfr");
+			recording.dump(file);
+			assertTrue(RecordingFile.readAllEvents(file).stream()
+					.noneMatch(event -> event.getEventType().getName().equals(SlowMatchEvent.NAME)));
+		}
+	}
+
+	@Test
+	void slowMatch_noAllocationWithoutRecording()
+	{
+		JsonMatcher<JsonArray> matcher = JsonMatcher.array().add(1).add("a").add(JsonMatcher.ANY_OBJECT).containsIgnoreOrder();
+		JsonArray value = (JsonArray) parseJson("""
+				[ { "b": 2 }, "a", 1, null ]
+				""");
+
+		assertTrue(matcher.test(value));
+		assertEquals(0, allocatedBytesPerCall(() -> matcher.test(value)));
+	}
+
+	/** Record the events of every order-independent match performed by an action. */
+	private List<RecordedEvent> record(Runnable action)
+	throws Exception
+	{
+		try (Recording recording = new Recording()) {
+			recording.enable(SlowMatchEvent.NAME).withThreshold(Duration.ZERO);
+			recording.start();
+			action.run();
+			recording.stop();
+			Path file = directory.resolve("events.jfr");
+			recording.dump(file);
+			return RecordingFile.readAllEvents(file).stream()
+					.filter(event -> event.getEventType().getName().equals(SlowMatchEvent.NAME))
+					.toList();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package org.fierypit.util.test.json;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingTest
+{
+	// Custom matcher matching any JSON string containing at least one character.
+	private static final JsonMatcher<JsonString> TEST_MATCHER_NON_EMPTY_STRING =
+			value -> value instanceof JsonString jsonString && jsonString.getString().length() > 0;
+
+	private static final List<String> TEST_VALUES = List.of(
+			"null",
+			"true",
+			"false",
+			"123",
+			"\"msg\"",
+			"[]",
+			"{}",
+			"""
+			{ "msg-type": "event", "id": 42, "flag": true, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null } }
+			""",
+			"""
+			{ "msg-type": "event", "id": 42, "flag": false, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null } }
+			""",
+			"""
+			{ "msg-type": "event", "id": 42, "flag": true, "tags": [ "b", "a" ], "body": { "x": 1.5, "y": null } }
+			""",
+			"""
+			{ "msg-type": "event", "id": "42", "flag": true, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null } }
+			""",
+			"""
+			{ "msg-type": "event", "id": 42, "flag": true, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null }, "z": 0 }
+			""",
+			"""
+			{ "z": [ 1, { "a": 2 } ], "body": { "x": 1.5, "y": null }, "tags": [ "a", "b" ], "flag": true, "id": 42, "msg-type": "event" }
+			""",
+			"""
+			{ "msg-type": "other", "id": 42, "flag": true, "tags": [ "a", "" ], "body": { "x": 1.5 } }
+			""",
+			"""
+			[ "event", 42, [ 1, 2 ], { "a": "b" } ]
+			""",
+			"""
+			[ "event", 42, [ 2, 1 ], { "a": "b" } ]
+			""",
+			"""
+			[ "event", 42, [ 1, 2 ], { "a": "b" }, null ]
+			""");
+
+	@Test
+	void streaming_sameResults()
+	{
+		JsonMatcher.ObjectBuilder eventBuilder = JsonMatcher.object()
+				.add("msg-type", "event")
+				.add("id", JsonMatcher.ANY_NUMBER)
+				.add("flag", JsonMatcher.ANY_BOOLEAN)
+				.add("tags", JsonMatcher.array().add("a").add("b").exact())
+				.add("body", JsonMatcher.object().add("x", 1.5).contains());
+		List<JsonMatcher<?>> matchers = List.of(
+				JsonMatcher.value("msg"),
+				JsonMatcher.value(123),
+				JsonMatcher.NULL,
+				JsonMatcher.EMPTY_ARRAY,
+				JsonMatcher.EMPTY_OBJECT,
+				JsonMatcher.ANY_VALUE,
+				JsonMatcher.ANY_BOOLEAN,
+				JsonMatcher.ANY_NUMBER,
+				eventBuilder.exact(),
+				eventBuilder.contains(),
+				eventBuilder.contains().compile(),
+				eventBuilder.containsAdaptive(),
+				JsonMatcher.object()
+						.add("msg-type", JsonMatcher.ANY_STRING)
+						.add("flag", true)
+						.add("tags", JsonMatcher.array().add("a").add("b").containsIgnoreOrder())
+						.add("body", JsonMatcher.object().add("x", 1.5).addNull("y").exact())
+						.contains(),
+				JsonMatcher.object()
+						.add("tags", JsonMatcher.array().add("a").add(TEST_MATCHER_NON_EMPTY_STRING).exact())
+						.contains(),
+				JsonMatcher.array()
+						.add("event")
+						.add(JsonMatcher.ANY_NUMBER)
+						.add(JsonMatcher.array().add(1).add(2).exact())
+						.add(JsonMatcher.ANY_OBJECT)
+						.exact());
+
+		for (JsonMatcher<?> matcher : matchers) {
+			for (String json : TEST_VALUES) {
+				assertEquals(matcher.test(parseJson(json)), matcher.testStreaming(new StringReader(json)),
+						() -> matcher + " against " + json);
+			}
+		}
+	}
+
+	@Test
+	void streaming_stopsWhenDecided()
+	{
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object().add("msg-type", "event").add("id", 1).contains();
+
+		// Everything after the first mismatching member is ignored, even if it is not valid JSON.
+		assertFalse(matcher.testStreaming(new StringReader("""
+				{ "msg-type": "other", "id": 1, "rest": [ this is not JSON
+				""")), "first member does not match");
+
+		JsonMatcher<JsonObject> exactMatcher = JsonMatcher.object().add("id", 1).exact();
+		assertFalse(exactMatcher.testStreaming(new StringReader("""
+				{ "id": 1, "unexpected": 2, "rest": [ this is not JSON
+				""")), "unexpected member");
+	}
+
+	@Test
+	void streaming_ignoredMembersNotBuilt()
+	{
+		List<JsonValue> evaluated = new ArrayList<>();
+		JsonMatcher<JsonValue> recordingMatcher = value -> {
+			evaluated.add(value);
+			return true;
+		};
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("body", JsonMatcher.object().add("wanted", recordingMatcher).contains())
+				.contains();
+
+		assertTrue(matcher.testStreaming(new StringReader("""
+				{ "big": { "a": [ 1, 2, 3 ], "b": { "c": "d" } }, "body": { "ignored": [ 4 ], "wanted": { "e": 5 } } }
+				""")));
+		assertEquals(List.of(parseJson("{\"e\":5}")), evaluated, "only the wanted member is built");
+	}
+
+	@Test
+	void streaming_parserPositionedAfterMatch()
+	{
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object().add("a", JsonMatcher.ANY_NUMBER).contains();
+		try (JsonParser parser = Json.createParser(new StringReader("""
+				[ { "a": 1, "b": [ 2 ] }, { "b": { "c": 3 }, "a": 4 } ]
+				"""))) {
+			assertEquals(JsonParser.Event.START_ARRAY, parser.next());
+			assertTrue(matcher.testStreaming(parser), "first element");
+			assertTrue(matcher.testStreaming(parser), "second element");
+			assertEquals(JsonParser.Event.END_ARRAY, parser.next());
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package org.fierypit.util.test.json;
 
 import java.io.StringReader;
+import java.lang.management.ManagementFactory;
 
 import javax.json.Json;
 import javax.json.JsonValue;
@@ -13,4 +14,19 @@ class TestUtil
 	{
 		return Json.createReader(new StringReader(json)).readValue();
 	}
+
+	/** Measure the average number of bytes allocated by an action on this thread, after running it enough to be compiled. */
+	static long allocatedBytesPerCall(Runnable action)
+	{
+		int iterations = 200_000;
+		for (int i = 0; i < iterations; i++) {
+			action.run();
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long before = threads.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < iterations; i++) {
+			action.run();
+		}
+		return (threads.getCurrentThreadAllocatedBytes() - before) / iterations;
+	}
 }
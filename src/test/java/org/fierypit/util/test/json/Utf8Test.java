@@ -0,0 +1,193 @@
+package org.fierypit.util.test.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.stream.JsonParsingException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.fierypit.util.test.json.TestUtil.parseJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Utf8Test
+{
+	// Custom matcher matching any JSON string containing at least one character.
+	private static final JsonMatcher<JsonString> TEST_MATCHER_NON_EMPTY_STRING =
+			value -> value instanceof JsonString jsonString && jsonString.getString().length() > 0;
+
+	private static final List<String> TEST_VALUES = List.of(
+			"null",
+			"true",
+			"false",
+			"123",
+			"123.0",
+			"1.23e2",
+			"-5",
+			"12345678901234567890",
+			"\"msg\"",
+			"\"m\\u0073g\"",
+			"\"été 😀\"",
+			" [ ] ",
+			"{}",
+			"""
+			{ "msg-type": "event", "id": 42, "flag": true, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null } }
+			""",
+			"""
+			{ "msg-type": "event", "id": 42, "flag": false, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null } }
+			""",
+			"""
+			{ "msg-type": "event", "id": 42.0, "flag": true, "tags": [ "b", "a" ], "body": { "x": 1.50, "y": null } }
+			""",
+			"""
+			{ "msg-type": "event", "id": "42", "flag": true, "tags": [ "a", "b" ], "body": { "x": 15e-1, "y": null } }
+			""",
+			"""
+			{ "msg-type": "event", "id": 42, "flag": true, "tags": [ "a", "b" ], "body": { "x": 1.5, "y": null }, "z": 0 }
+			""",
+			"""
+			{ "z": [ 1, { "a": "]}\\"" } ], "body": { "x": 1.5, "y": null }, "tags": [ "a", "b" ], "flag": true, "id": 42,
+			  "msg\\u002dtype": "event" }
+			""",
+			"""
+			{ "msg-type": "other", "id": 42, "flag": true, "tags": [ "a", "" ], "body": { "x": 1.5 } }
+			""",
+			"""
+			{ "été": "été 😀", "big": 12345678901234567890, "neg": -7 }
+			""",
+			"""
+			[ "event", 42, [ 1, 2 ], { "a": "b" } ]
+			""",
+			"""
+			[ "event", 42, [ 2, 1 ], { "a": "b" } ]
+			""",
+			"""
+			[ "event", 42, [ 1, 2 ], { "a": "b" }, null ]
+			""");
+
+	@Test
+	void utf8_sameResults()
+	{
+		JsonMatcher.ObjectBuilder eventBuilder = JsonMatcher.object()
+				.add("msg-type", "event")
+				.add("id", JsonMatcher.ANY_NUMBER)
+				.add("flag", JsonMatcher.ANY_BOOLEAN)
+				.add("tags", JsonMatcher.array().add("a").add("b").exact())
+				.add("body", JsonMatcher.object().add("x", 1.5).contains());
+		List<JsonMatcher<?>> matchers = List.of(
+				JsonMatcher.value("msg"),
+				JsonMatcher.value("été 😀"),
+				JsonMatcher.value(123),
+				JsonMatcher.value(new BigDecimal("123.0")),
+				JsonMatcher.value(new BigDecimal("1.23e2")),
+				JsonMatcher.value(-5),
+				JsonMatcher.value(new BigInteger("12345678901234567890")),
+				JsonMatcher.NULL,
+				JsonMatcher.value(true),
+				JsonMatcher.EMPTY_ARRAY,
+				JsonMatcher.EMPTY_OBJECT,
+				JsonMatcher.ANY_VALUE,
+				JsonMatcher.ANY_BOOLEAN,
+				JsonMatcher.ANY_NUMBER,
+				eventBuilder.exact(),
+				eventBuilder.contains(),
+				eventBuilder.contains().compile(),
+				JsonMatcher.object()
+						.add("msg-type", JsonMatcher.ANY_STRING)
+						.add("flag", true)
+						.add("tags", JsonMatcher.array().add("a").add("b").containsIgnoreOrder())
+						.add("body", JsonMatcher.object().add("x", 1.5).addNull("y").exact())
+						.contains(),
+				JsonMatcher.object()
+						.add("tags", JsonMatcher.array().add("a").add(TEST_MATCHER_NON_EMPTY_STRING).exact())
+						.contains(),
+				JsonMatcher.object()
+						.add("été", "été 😀")
+						.add("big", new BigInteger("12345678901234567890"))
+						.add("neg", -7)
+						.exact(),
+				JsonMatcher.array()
+						.add("event")
+						.add(JsonMatcher.ANY_NUMBER)
+						.add(JsonMatcher.array().add(1).add(2).exact())
+						.add(JsonMatcher.ANY_OBJECT)
+						.exact());
+
+		for (JsonMatcher<?> matcher : matchers) {
+			for (String json : TEST_VALUES) {
+				assertEquals(matcher.test(parseJson(json)), matcher.testUtf8(json.getBytes(StandardCharsets.UTF_8)),
+						() -> matcher + " against " + json);
+			}
+		}
+	}
+
+	@Test
+	void utf8_byteBufferRemaining()
+	{
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object().add("a", "b").exact();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+		buffer.put("xxx{\"a\":\"b\"}yyy".getBytes(StandardCharsets.UTF_8));
+		buffer.position(3).limit(12);
+
+		assertTrue(matcher.testUtf8(buffer), "matches the remaining bytes");
+		assertEquals(3, buffer.position(), "position unchanged");
+		assertEquals(12, buffer.limit(), "limit unchanged");
+	}
+
+	@Test
+	void utf8_stopsWhenDecided()
+	{
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object().add("msg-type", "event").add("id", 1).contains();
+
+		assertFalse(matcher.testUtf8("""
+				{ "msg-type": "other", "id": 1, "rest": [ this is not JSON
+				""".getBytes(StandardCharsets.UTF_8)), "first member does not match");
+		assertThrows(JsonParsingException.class, () -> matcher.testUtf8("""
+				{ "msg-type": "event", "id": 1, "rest": [ 1, 2
+				""".getBytes(StandardCharsets.UTF_8)), "truncated input");
+		assertThrows(JsonParsingException.class, () -> matcher.testUtf8("""
+				{ "msg-type" "event" }
+				""".getBytes(StandardCharsets.UTF_8)), "missing colon");
+	}
+
+	@Test
+	void utf8_invalidNumbers()
+	{
+		JsonMatcher<JsonObject> literal = JsonMatcher.object().add("a", 1.5).exact();
+		JsonMatcher<JsonObject> skipped = JsonMatcher.object().add("a", JsonMatcher.ANY_NUMBER).exact();
+
+		for (String number : List.of("1-2", "1e", "1.5.5", "01", "-", "-01", "1.", ".5", "1e+", "+1", "1.5e2e2")) {
+			String json = "{\"a\":" + number + "}";
+			byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+			assertThrows(JsonParsingException.class, () -> literal.testUtf8(bytes), json);
+			assertThrows(JsonParsingException.class, () -> skipped.testUtf8(bytes), json);
+		}
+		assertThrows(JsonParsingException.class, () -> literal.testUtf8("1.".getBytes(StandardCharsets.UTF_8)),
+				"truncated fraction");
+		assertTrue(skipped.testUtf8("{\"a\":-0.5E+2}".getBytes(StandardCharsets.UTF_8)), "valid number");
+		assertTrue(JsonMatcher.value(0).testUtf8("-0".getBytes(StandardCharsets.UTF_8)), "negative zero");
+	}
+
+	@Test
+	void utf8_onlyCapturedValuesBuilt()
+	{
+		List<JsonValue> captured = new ArrayList<>();
+		JsonMatcher<JsonObject> matcher = JsonMatcher.object()
+				.add("type", "event")
+				.add("body", JsonMatcher.ANY_OBJECT.capture(captured::add))
+				.contains();
+
+		assertTrue(matcher.testUtf8("""
+				{ "ignored": { "a": [ 1, 2, 3 ] }, "type": "event", "body": { "x": "\\u00e9" } }
+				""".getBytes(StandardCharsets.UTF_8)));
+		assertEquals(List.of(parseJson("{\"x\":\"é\"}")), captured);
+	}
+}
@@ -3,12 +3,14 @@ package org.fierypit.util.test.json;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
 import javax.json.JsonString;
 import javax.json.JsonValue;
 
@@ -80,6 +82,107 @@ class ValueMatcherTest
 		assertEquals("98765432109876543210.123456789", matcher.toString());
 	}
 
+	/** Numeric literals must agree with {@link JsonNumber#equals(Object)}, including on scale. */
+	@Test
+	void value_number_sameAsEquals()
+	{
+		List<JsonNumber> numbers = List.of(Json.createValue(0), Json.createValue(-1), Json.createValue(42), Json.createValue(42L),
+				Json.createValue(Long.MAX_VALUE), Json.createValue(Long.MIN_VALUE), Json.createValue(42.0), Json.createValue(0.1),
+				Json.createValue(new BigDecimal("42.00")), Json.createValue(new BigDecimal("4.2e1")),
+				Json.createValue(new BigInteger("123456789012345678901234567890")),
+				Json.createValue(new BigDecimal(Long.MAX_VALUE).add(BigDecimal.ONE)),
+				(JsonNumber) parseJson("[ 42 ]").asJsonArray().get(0), (JsonNumber) parseJson("[ 4.20 ]").asJsonArray().get(0));
+		for (JsonNumber expected : numbers) {
+			JsonMatcher<JsonNumber> matcher = JsonMatcher.value(expected);
+			for (JsonNumber actual : numbers) {
+				assertEquals(expected.equals(actual), matcher.test(actual), expected + " against " + actual);
+			}
+			assertFalse(matcher.test(Json.createValue(expected.toString())));
+		}
+	}
+
+	@Test
+	void value_number_noBigDecimal()
+	{
+		JsonNumber actual = new JsonNumber() {
+			@Override public boolean isIntegral() { return true; }
+			@Override public int intValue() { return 42; }
+			@Override public int intValueExact() { return 42; }
+			@Override public long longValue() { return 42; }
+			@Override public long longValueExact() { return 42; }
+			@Override public BigInteger bigIntegerValue() { throw new AssertionError(); }
+			@Override public BigInteger bigIntegerValueExact() { throw new AssertionError(); }
+			@Override public double doubleValue() { return 42; }
+			@Override public BigDecimal bigDecimalValue() { throw new AssertionError("BigDecimal not needed"); }
+			@Override public ValueType getValueType() { return ValueType.NUMBER; }
+		};
+		assertTrue(JsonMatcher.value(42).test(actual));
+		assertFalse(JsonMatcher.value(43L).test(actual));
+		assertFalse(JsonMatcher.value(42.5).test(actual));
+		assertTrue(JsonMatcher.array().add(42).exact().compile().test(Json.createArrayBuilder().add(actual).build()));
+	}
+
+	@Test
+	void value_largeDocument()
+	{
+		JsonObject expected = document(100, "x", false);
+		JsonMatcher<JsonObject> matcher = JsonMatcher.value(expected);
+		assertTrue(matcher instanceof DocumentValueMatcher, "large document");
+		assertFalse(JsonMatcher.value(document(3, "x", false)) instanceof DocumentValueMatcher, "small document");
+
+		JsonObject equal = document(100, "x", false);
+		assertNotSame(expected, equal);
+		assertTrue(matcher.test(expected));
+		assertTrue(matcher.test(equal));
+		assertTrue(StructuralHash.knownEqual(equal, expected), "equality remembered");
+		assertTrue(matcher.test(equal), "same instance again");
+		JsonObject another = document(100, "x", false);
+		assertTrue(matcher.test(another));
+		assertTrue(StructuralHash.knownEqual(another, expected), "equality of each instance remembered");
+		assertFalse(matcher.test(document(100, "y", false)), "differs in the last member");
+		assertFalse(matcher.test(document(101, "x", false)));
+		assertFalse(matcher.test(Json.createArrayBuilder().add(expected).build()));
+		assertFalse(matcher.test(JsonValue.NULL));
+
+		JsonObjectBuilder reversed = Json.createObjectBuilder();
+		for (int i = 99; i >= 0; i--) {
+			reversed.add("m" + i, (i == 99) ? Json.createValue("x") : Json.createValue(i));
+		}
+		assertTrue(matcher.test(reversed.build()), "member order ignored, as by equals");
+		assertFalse(matcher.test(document(100, "x", true)), "1.0 differs from 1, as by equals");
+		assertEquals(expected.toString(), matcher.toString());
+	}
+
+	@Test
+	void structuralHash_consistentWithEquals()
+	{
+		List<JsonValue> values = List.of(Json.createValue(1), Json.createValue(1L), Json.createValue(new BigDecimal("1.0")),
+				Json.createValue(new BigInteger("123456789012345678901234567890")), Json.createValue("1"), JsonValue.TRUE,
+				JsonValue.NULL, parseJson("{ \"a\": [ 1, 2 ], \"b\": {} }"), parseJson("{ \"b\": {}, \"a\": [ 1, 2 ] }"),
+				parseJson("[ 2, 1 ]"), parseJson("[ 1, 2 ]"), document(100, "x", false), document(100, "x", false));
+		for (JsonValue a : values) {
+			for (JsonValue b : values) {
+				if (a.equals(b)) {
+					assertEquals(StructuralHash.of(a), StructuralHash.of(b), a + " and " + b);
+				}
+			}
+		}
+		assertNotEquals(StructuralHash.of(parseJson("[ 1, 2 ]")), StructuralHash.of(parseJson("[ 2, 1 ]")));
+		long[] size = new long[1];
+		assertEquals(StructuralHash.of(document(100, "x", false)), StructuralHash.of(document(100, "x", false), size));
+		assertEquals(101, size[0]);
+	}
+
+	/** An object with {@code size} members; the last is a string, and the others integers, optionally with one decimal place. */
+	private static JsonObject document(int size, String last, boolean decimal)
+	{
+		JsonObjectBuilder builder = Json.createObjectBuilder();
+		for (int i = 0; i < size - 1; i++) {
+			builder.add("m" + i, decimal ? Json.createValue(BigDecimal.valueOf(i).setScale(1)) : Json.createValue(i));
+		}
+		return builder.add("m" + (size - 1), last).build();
+	}
+
 	@Test
 	void value_boolean()
 	{